@@ -0,0 +1,211 @@
+package com.hot.cmt.comment.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import com.hot.cmt.comment.common.Constants;
+import com.hot.cmt.comment.tokenize.MMTokenizer;
+
+/**
+ * 基准测试用的合成词库和评论
+ * 词取自mmseg4j自带的分词词典，用固定的随机种子分配到各个情感词库和pmi分数表，
+ * 评论由这些词加上语气词、停用词和标点随机拼接而成。不依赖外部文件，可以离线运行，
+ * 同一版本的mmseg4j每次生成的数据相同
+ * @author yongleixiao
+ *
+ */
+public final class BenchmarkData {
+
+	private static final long SEED = 20141118L;
+	private static final String ENCODING = "UTF-8";
+	
+	private static final String[] TONE_WORDS = {"很", "非常", "太", "特别", "十分", "极其", "真", "超"};
+	private static final String[] STOP_WORDS = {"的", "了", "是", "在", "我", "你", "他", "和", "就", "也", "，", "。", "！", "？"};
+	
+	/* 各词库的大小 */
+	private static final int SEN_WORDS = 1000;
+	private static final int SEM_WORDS = 2000;
+	private static final int CON_WORDS = 500;
+	private static final int PMI_WORDS = 40000;
+	
+	/* 评论的长度，按字数 */
+	public static final String SHORT = "short";
+	public static final String MEDIUM = "medium";
+	public static final String LONG = "long";
+	
+	private static List<String> words = null;
+	private static String wordPath = null;
+	
+	private BenchmarkData() {
+	}
+	
+	/**
+	 * 生成合成词库的目录，每个JVM只生成一次
+	 * @return 以路径分隔符结尾的目录
+	 * @throws IOException
+	 */
+	public static synchronized String wordPath() throws IOException {
+		if (wordPath != null) {
+			return wordPath;
+		}
+		List<String> all = words();
+		File dir = createTempDir("sentiment-bench-dict");
+		Random random = new Random(SEED);
+		int offset = 0;
+		writeWords(new File(dir, Constants.TONE_WORDS_FILE), list(TONE_WORDS));
+		writeWords(new File(dir, Constants.STOP_WORDS_FILE), list(STOP_WORDS));
+		writeWords(new File(dir, Constants.POS_SEN_DICT_FILE), all.subList(offset, offset += SEN_WORDS));
+		writeWords(new File(dir, Constants.NEG_SEN_DICT_FILE), all.subList(offset, offset += SEN_WORDS));
+		writeWords(new File(dir, Constants.POS_SEM_DICT_FILE), all.subList(offset, offset += SEM_WORDS));
+		writeWords(new File(dir, Constants.NEG_SEM_DICT_FILE), all.subList(offset, offset += SEM_WORDS));
+		writeWords(new File(dir, Constants.POS_CON_DICT_FILE), all.subList(offset, offset += CON_WORDS));
+		writeWords(new File(dir, Constants.NEG_CON_DICT_FILE), all.subList(offset, offset += CON_WORDS));
+		/* 正负例的pmi分数表部分重叠 */
+		int pmiStart = offset;
+		writeScores(new File(dir, Constants.POS_PMI_SCORE_FILE), all.subList(pmiStart, pmiStart + PMI_WORDS), random);
+		writeScores(new File(dir, Constants.NEG_PMI_SCORE_FILE), 
+				all.subList(pmiStart + PMI_WORDS / 2, pmiStart + PMI_WORDS * 3 / 2), random);
+		wordPath = dir.getPath() + File.separator;
+		return wordPath;
+	}
+	
+	/**
+	 * 生成一批评论
+	 * @param length SHORT、MEDIUM或LONG
+	 * @param count
+	 * @return
+	 * @throws IOException
+	 */
+	public static String[] comments(String length, int count) throws IOException {
+		int minChars;
+		int maxChars;
+		if (SHORT.equals(length)) {
+			minChars = 4;
+			maxChars = 12;
+		} else if (MEDIUM.equals(length)) {
+			minChars = 30;
+			maxChars = 60;
+		} else if (LONG.equals(length)) {
+			minChars = 150;
+			maxChars = 300;
+		} else {
+			throw new IllegalArgumentException("unknown comment length " + length);
+		}
+		List<String> all = words();
+		/* 大部分词来自词库覆盖的前一部分，少量为词库之外的词 */
+		int vocabulary = Math.min(all.size(), 2 * (SEN_WORDS + SEM_WORDS + CON_WORDS) + PMI_WORDS * 2);
+		Random random = new Random(SEED + length.hashCode());
+		String[] comments = new String[count];
+		for (int i = 0; i < count; i++) {
+			int chars = minChars + random.nextInt(maxChars - minChars + 1);
+			StringBuilder sb = new StringBuilder(chars + 8);
+			while (sb.length() < chars) {
+				int dice = random.nextInt(10);
+				if (dice == 0) {
+					sb.append(TONE_WORDS[random.nextInt(TONE_WORDS.length)]);
+				} else if (dice <= 2) {
+					sb.append(STOP_WORDS[random.nextInt(STOP_WORDS.length)]);
+				} else if (dice == 3) {
+					sb.append(all.get(random.nextInt(all.size())));
+				} else {
+					sb.append(all.get(random.nextInt(vocabulary)));
+				}
+			}
+			comments[i] = sb.toString();
+		}
+		return comments;
+	}
+	
+	/**
+	 * 把评论写成每行一条的语料文件
+	 * @param comments
+	 * @return
+	 * @throws IOException
+	 */
+	public static File corpusFile(String[] comments) throws IOException {
+		File file = File.createTempFile("sentiment-bench-corpus", ".txt");
+		writeWords(file, list(comments));
+		return file;
+	}
+	
+	/**
+	 * mmseg4j自带词典中2到4个字的词，打乱顺序
+	 * @return
+	 * @throws IOException
+	 */
+	private static synchronized List<String> words() throws IOException {
+		if (words != null) {
+			return words;
+		}
+		InputStream in = MMTokenizer.class.getClassLoader().getResourceAsStream("data/words.dic");
+		if (in == null) {
+			throw new IOException("data/words.dic not found in classpath");
+		}
+		List<String> results = new ArrayList<String>();
+		BufferedReader br = new BufferedReader(new InputStreamReader(in, ENCODING));
+		try {
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				String word = line.trim();
+				if (word.length() >= 2 && word.length() <= 4) {
+					results.add(word);
+				}
+			}
+		} finally {
+			br.close();
+		}
+		Collections.shuffle(results, new Random(SEED));
+		words = results;
+		return words;
+	}
+	
+	private static List<String> list(String[] array) {
+		List<String> results = new ArrayList<String>(array.length);
+		Collections.addAll(results, array);
+		return results;
+	}
+	
+	private static void writeWords(File file, List<String> lines) throws IOException {
+		file.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), ENCODING);
+		try {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+	}
+	
+	private static void writeScores(File file, List<String> words, Random random) throws IOException {
+		file.deleteOnExit();
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), ENCODING);
+		try {
+			for (String word : words) {
+				writer.write(word + "=" + (random.nextDouble() * 3.0D) + "\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+	
+	private static File createTempDir(String prefix) throws IOException {
+		File dir = File.createTempFile(prefix, "");
+		if (!dir.delete() || !dir.mkdirs()) {
+			throw new IOException("can not create " + dir);
+		}
+		dir.deleteOnExit();
+		return dir;
+	}
+}
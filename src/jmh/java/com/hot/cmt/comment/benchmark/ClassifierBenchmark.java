@@ -0,0 +1,80 @@
+package com.hot.cmt.comment.benchmark;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hot.cmt.comment.bayes.Classifier;
+import com.hot.cmt.comment.bayes.SentimentScore;
+import com.hot.cmt.comment.common.Constants.SentimentType;
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+
+/**
+ * 端到端分类，包括分词、n-gram匹配、打分和判定；scoreDirect不分词，直接扫描原文
+ * @author yongleixiao
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClassifierBenchmark {
+
+	@Param({BenchmarkData.SHORT, BenchmarkData.MEDIUM, BenchmarkData.LONG})
+	private String length;
+	
+	private Classifier classifier;
+	private SentimentScore score;
+	private String[] comments;
+	private int next = 0;
+	
+	@Setup
+	public void setup() throws IOException {
+		classifier = new Classifier(new Lexicon(new TrendencyWordsLoader(BenchmarkData.wordPath())));
+		score = new SentimentScore();
+		comments = BenchmarkData.comments(length, 1024);
+	}
+	
+	private String nextComment() {
+		String comment = comments[next];
+		next = (next + 1) & (comments.length - 1);
+		return comment;
+	}
+	
+	@Benchmark
+	public Map<String, Double> getJudgments() {
+		return classifier.getJudgments(nextComment());
+	}
+	
+	@Benchmark
+	public SentimentScore score() {
+		classifier.score(nextComment(), score);
+		return score;
+	}
+	
+	@Benchmark
+	public SentimentScore scoreDirect() {
+		classifier.scoreDirect(nextComment(), score);
+		return score;
+	}
+	
+	@Benchmark
+	public SentimentType classify() {
+		return classifier.classify(nextComment());
+	}
+}
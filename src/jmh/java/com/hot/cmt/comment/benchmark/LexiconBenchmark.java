@@ -0,0 +1,78 @@
+package com.hot.cmt.comment.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+import com.hot.cmt.comment.tokenize.MMTokenizer;
+
+/**
+ * 词典查找，每次调用查找一批分词结果中的所有词
+ * loaderCascade为原来Classifier.getWordType逐个词库判断再取pmi分数的做法
+ * @author yongleixiao
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexiconBenchmark {
+
+	private TrendencyWordsLoader loader;
+	private Lexicon lexicon;
+	private String[] tokens;
+	
+	@Setup
+	public void setup() throws IOException {
+		loader = new TrendencyWordsLoader(BenchmarkData.wordPath());
+		lexicon = new Lexicon(loader);
+		MMTokenizer tokenizer = new MMTokenizer();
+		List<String> results = new ArrayList<String>();
+		for (String comment : BenchmarkData.comments(BenchmarkData.MEDIUM, 64)) {
+			results.addAll(tokenizer.getSplitedWords(comment));
+		}
+		tokens = results.toArray(new String[results.size()]);
+	}
+	
+	@Benchmark
+	public void loaderCascade(Blackhole bh) {
+		for (String word : tokens) {
+			if (loader.isPosSenWord(word) || loader.isPosSemWord(word) || loader.isPosCommentWord(word)
+					|| loader.isNegSenWord(word) || loader.isNegSemWord(word) || loader.isNegCommentWord(word)
+					|| loader.isToneWords(word) || loader.isStopWord(word)) {
+				bh.consume(true);
+			} else {
+				bh.consume(loader.getPosPMIScoreOfWord(word));
+				bh.consume(loader.getNegPMIScoreOfWord(word));
+			}
+		}
+	}
+	
+	@Benchmark
+	public void lexiconLookup(Blackhole bh) {
+		for (String word : tokens) {
+			int id = lexicon.find(word);
+			if (id != Lexicon.NOT_FOUND) {
+				bh.consume(lexicon.getType(id));
+				bh.consume(lexicon.getWeight(id));
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package com.hot.cmt.comment.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconCompiler;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+
+/**
+ * 词典启动耗时：解析文本词库再编译，对比映射编译好的二进制词典
+ * @author yongleixiao
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+public class LexiconLoadBenchmark {
+
+	private String wordPath;
+	private File compiled;
+	
+	@Setup
+	public void setup() throws IOException {
+		wordPath = BenchmarkData.wordPath();
+		compiled = File.createTempFile("lexicon", ".bin");
+		compiled.deleteOnExit();
+		LexiconCompiler.compile(new TrendencyWordsLoader(wordPath), compiled);
+	}
+	
+	@Benchmark
+	public Lexicon compileText() {
+		return new Lexicon(new TrendencyWordsLoader(wordPath));
+	}
+	
+	@Benchmark
+	public Lexicon loadMapped() throws IOException {
+		return Lexicon.load(compiled);
+	}
+}
@@ -0,0 +1,71 @@
+package com.hot.cmt.comment.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconTrie;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+import com.hot.cmt.comment.terms.NGramGenerator;
+import com.hot.cmt.comment.terms.NGramMatcher;
+import com.hot.cmt.comment.tokenize.MMTokenizer;
+
+/**
+ * n-gram生成与匹配
+ * @author yongleixiao
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NGramBenchmark {
+
+	@Param({BenchmarkData.SHORT, BenchmarkData.MEDIUM, BenchmarkData.LONG})
+	private String length;
+	
+	private List<String> tokens;
+	private String[] tokenArray;
+	private LexiconTrie trie;
+	private NGramMatcher matcher;
+	
+	@Setup
+	public void setup() throws IOException {
+		Lexicon lexicon = new Lexicon(new TrendencyWordsLoader(BenchmarkData.wordPath()));
+		trie = lexicon.getTrie();
+		matcher = new NGramMatcher();
+		tokens = new MMTokenizer().getSplitedWords(BenchmarkData.comments(length, 1)[0]);
+		tokenArray = tokens.toArray(new String[tokens.size()]);
+	}
+	
+	@Benchmark
+	public List<String> getBiGram() {
+		return NGramGenerator.getBiGram(tokenArray);
+	}
+	
+	@Benchmark
+	public List<String> getTriGram() {
+		return NGramGenerator.getTriGram(tokenArray);
+	}
+	
+	@Benchmark
+	public NGramMatcher matchAllOrders() {
+		matcher.match(trie, tokens);
+		return matcher;
+	}
+}
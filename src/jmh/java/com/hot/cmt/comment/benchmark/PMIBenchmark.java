@@ -0,0 +1,77 @@
+package com.hot.cmt.comment.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+import com.hot.cmt.comment.preprocess.PMIGenerator;
+import com.hot.cmt.comment.tokenize.MMTokenizer;
+
+/**
+ * 情感词与共现词之间的pmi分数
+ * 语料为一万条中等长度的合成评论，词对取自同一条评论，保证有共现。
+ * PMIGenerator按平台默认编码读语料，这里固定为UTF-8
+ * @author yongleixiao
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+public class PMIBenchmark {
+
+	private static final int CORPUS_SIZE = 10000;
+	private static final int PAIRS = 1024;
+	
+	private PMIGenerator generator;
+	private String[] firstWords;
+	private String[] secondWords;
+	private int next = 0;
+	
+	@Setup
+	public void setup() throws IOException {
+		String[] comments = BenchmarkData.comments(BenchmarkData.MEDIUM, CORPUS_SIZE);
+		File corpus = BenchmarkData.corpusFile(comments);
+		generator = new PMIGenerator(new TrendencyWordsLoader(BenchmarkData.wordPath()));
+		generator.initFromCorpus(corpus.getPath());
+		
+		MMTokenizer tokenizer = new MMTokenizer();
+		Random random = new Random(PAIRS);
+		List<String> first = new ArrayList<String>();
+		List<String> second = new ArrayList<String>();
+		while (first.size() < PAIRS) {
+			List<String> words = tokenizer.getSplitedWords(comments[random.nextInt(comments.length)]);
+			if (words.size() < 2) {
+				continue;
+			}
+			first.add(words.get(random.nextInt(words.size())));
+			second.add(words.get(random.nextInt(words.size())));
+		}
+		firstWords = first.toArray(new String[PAIRS]);
+		secondWords = second.toArray(new String[PAIRS]);
+	}
+	
+	@Benchmark
+	public double getPMIScore() {
+		int i = next;
+		next = (next + 1) & (PAIRS - 1);
+		return generator.getPMIScore(firstWords[i], secondWords[i]);
+	}
+}
@@ -0,0 +1,57 @@
+package com.hot.cmt.comment.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.chenlb.mmseg4j.Dictionary;
+import com.hot.cmt.comment.tokenize.SegDictionary;
+import com.hot.cmt.comment.tokenize.SegDictionaryCompiler;
+
+/**
+ * 分词词典启动耗时：mmseg4j解析文本词典，对比映射编译好的二进制词典
+ * 词典目录为空目录，两者都只使用mmseg4j自带的词典
+ * @author yongleixiao
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Dfile.encoding=UTF-8")
+public class SegDictionaryLoadBenchmark {
+
+	private File dictPath;
+	private File compiled;
+	
+	@Setup
+	public void setup() throws IOException {
+		compiled = File.createTempFile("tokenizer", ".bin");
+		compiled.deleteOnExit();
+		dictPath = new File(compiled.getParentFile(), "empty-mmseg-dict");
+		SegDictionaryCompiler.compile(dictPath.getPath(), compiled);
+	}
+	
+	@Benchmark
+	public Dictionary loadText() {
+		Dictionary.clear(dictPath);
+		return Dictionary.getInstance(dictPath);
+	}
+	
+	@Benchmark
+	public SegDictionary loadMapped() throws IOException {
+		return SegDictionary.load(compiled);
+	}
+}
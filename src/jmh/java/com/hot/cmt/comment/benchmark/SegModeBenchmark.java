@@ -0,0 +1,90 @@
+package com.hot.cmt.comment.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hot.cmt.comment.bayes.Classifier;
+import com.hot.cmt.comment.bayes.SentimentScore;
+import com.hot.cmt.comment.common.Constants.SentimentType;
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+import com.hot.cmt.comment.tokenize.SegMode;
+import com.hot.cmt.comment.tokenize.TokenOffsets;
+import com.hot.cmt.comment.tokenize.Tokenizer;
+
+/**
+ * 不同切分算法的分词和分类耗时
+ * setup时输出各算法的分类结果与COMPLEX一致的比例
+ * @author yongleixiao
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegModeBenchmark {
+
+	@Param({BenchmarkData.SHORT, BenchmarkData.MEDIUM, BenchmarkData.LONG})
+	private String length;
+	
+	@Param({"COMPLEX", "SIMPLE", "MAX_MATCH"})
+	private String mode;
+	
+	private SegMode segMode;
+	private Classifier classifier;
+	private Tokenizer tokenizer;
+	private TokenOffsets tokens = new TokenOffsets();
+	private SentimentScore score = new SentimentScore();
+	private String[] comments;
+	private int next = 0;
+	
+	@Setup
+	public void setup() throws IOException {
+		segMode = SegMode.valueOf(mode);
+		classifier = new Classifier(new Lexicon(new TrendencyWordsLoader(BenchmarkData.wordPath())));
+		tokenizer = segMode.create(classifier.getReloadableLexicon());
+		comments = BenchmarkData.comments(length, 1024);
+		int agreed = 0;
+		for (String comment : comments) {
+			classifier.score(comment, SegMode.COMPLEX, score);
+			SentimentType expected = classifier.judgeSenType(score);
+			classifier.score(comment, segMode, score);
+			if (classifier.judgeSenType(score) == expected) {
+				agreed++;
+			}
+		}
+		System.out.printf("%s %s agreement with COMPLEX: %.2f%%%n", length, segMode, 100.0D * agreed / comments.length);
+	}
+	
+	private String nextComment() {
+		String comment = comments[next];
+		next = (next + 1) & (comments.length - 1);
+		return comment;
+	}
+	
+	@Benchmark
+	public TokenOffsets tokenize() {
+		tokenizer.tokenize(nextComment(), tokens);
+		return tokens;
+	}
+	
+	@Benchmark
+	public SentimentScore score() {
+		classifier.score(nextComment(), segMode, score);
+		return score;
+	}
+}
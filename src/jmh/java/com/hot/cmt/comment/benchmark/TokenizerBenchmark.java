@@ -0,0 +1,74 @@
+package com.hot.cmt.comment.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.hot.cmt.comment.tokenize.MMTokenizer;
+import com.hot.cmt.comment.tokenize.TokenOffsets;
+
+/**
+ * MMTokenizer分词，每次返回新列表、写入复用的列表和以偏移量输出三种方式
+ * @author yongleixiao
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenizerBenchmark {
+
+	@Param({BenchmarkData.SHORT, BenchmarkData.MEDIUM, BenchmarkData.LONG})
+	private String length;
+	
+	private MMTokenizer tokenizer;
+	private String[] comments;
+	private int next = 0;
+	private List<String> words = new ArrayList<String>();
+	private TokenOffsets tokens = new TokenOffsets();
+	
+	@Setup
+	public void setup() throws IOException {
+		tokenizer = new MMTokenizer();
+		comments = BenchmarkData.comments(length, 1024);
+	}
+	
+	@Benchmark
+	public List<String> getSplitedWords() {
+		String comment = comments[next];
+		next = (next + 1) & (comments.length - 1);
+		return tokenizer.getSplitedWords(comment);
+	}
+	
+	@Benchmark
+	public List<String> getSplitedWordsInto() {
+		String comment = comments[next];
+		next = (next + 1) & (comments.length - 1);
+		words.clear();
+		tokenizer.getSplitedWords(comment, words);
+		return words;
+	}
+	
+	@Benchmark
+	public TokenOffsets tokenize() {
+		String comment = comments[next];
+		next = (next + 1) & (comments.length - 1);
+		tokenizer.tokenize(comment, tokens);
+		return tokens;
+	}
+}
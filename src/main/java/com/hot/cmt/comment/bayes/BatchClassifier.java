@@ -0,0 +1,193 @@
+package com.hot.cmt.comment.bayes;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.ReloadableLexicon;
+import com.hot.cmt.comment.common.Constants.SentimentType;
+import com.hot.cmt.comment.metrics.ClassifierMetrics;
+
+/**
+ * 批量情感分类
+ * 把一批评论按下标切分后交给ForkJoinPool并行处理，结果按输入顺序返回。
+ * Lexicon只读，所有线程共享一份；分词器（ComplexSeg带有匹配状态）和打分的中间结果不能共享，
+ * 因此每个工作线程持有自己的Classifier，同一线程上的后续任务会复用它
+ * @author yongleixiao
+ *
+ */
+public class BatchClassifier {
+
+	/* 每个叶子任务至少处理的评论数，太小的任务调度开销大于收益 */
+	private static final int MIN_CHUNK_SIZE = 16;
+	/* 每个工作线程平均分到的任务数，多切几份用于负载均衡 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	
+	private final ReloadableLexicon lexicons;
+	private final ForkJoinPool pool;
+	/* 是否由本对象创建的线程池，是的话shutdown时关闭 */
+	private final boolean ownsPool;
+	private final ThreadLocal<Classifier> classifiers;
+	private volatile ScoreCache scoreCache = null;
+	private volatile ClassifierMetrics metrics = null;
+	
+	/**
+	 * 使用与cpu核数相同并行度的线程池
+	 * @param lexicon
+	 */
+	public BatchClassifier(Lexicon lexicon) {
+		this(new ReloadableLexicon(lexicon), new ForkJoinPool(), true);
+	}
+	
+	/**
+	 * 使用可以热加载的词典和与cpu核数相同并行度的线程池
+	 * @param lexicons
+	 */
+	public BatchClassifier(ReloadableLexicon lexicons) {
+		this(lexicons, new ForkJoinPool(), true);
+	}
+	
+	/**
+	 * 使用调用方提供的线程池，线程池由调用方关闭
+	 * @param lexicon
+	 * @param pool
+	 */
+	public BatchClassifier(Lexicon lexicon, ForkJoinPool pool) {
+		this(new ReloadableLexicon(lexicon), pool, false);
+	}
+	
+	/**
+	 * 使用可以热加载的词典和调用方提供的线程池，线程池由调用方关闭
+	 * @param lexicons
+	 * @param pool
+	 */
+	public BatchClassifier(ReloadableLexicon lexicons, ForkJoinPool pool) {
+		this(lexicons, pool, false);
+	}
+	
+	private BatchClassifier(final ReloadableLexicon lexicons, ForkJoinPool pool, boolean ownsPool) {
+		this.lexicons = lexicons;
+		this.pool = pool;
+		this.ownsPool = ownsPool;
+		this.classifiers = new ThreadLocal<Classifier>() {
+			@Override
+			protected Classifier initialValue() {
+				return new Classifier(lexicons);
+			}
+		};
+	}
+	
+	/**
+	 * 批量分类
+	 * @param sentences
+	 * @return 与输入顺序一致的情感类别
+	 */
+	public SentimentType[] classifyBatch(String[] sentences) {
+		SentimentType[] types = new SentimentType[sentences.length];
+		pool.invoke(new ClassifyTask(sentences, null, types, 0, sentences.length, chunkSize(sentences.length)));
+		return types;
+	}
+	
+	public List<SentimentType> classifyBatch(List<String> sentences) {
+		return Arrays.asList(classifyBatch(sentences.toArray(new String[sentences.size()])));
+	}
+	
+	/**
+	 * 批量计算正负例得分
+	 * @param sentences
+	 * @return 与输入顺序一致的得分
+	 */
+	public SentimentScore[] scoreBatch(String[] sentences) {
+		SentimentScore[] scores = new SentimentScore[sentences.length];
+		for (int i = 0; i < scores.length; i++) {
+			scores[i] = new SentimentScore();
+		}
+		pool.invoke(new ClassifyTask(sentences, scores, null, 0, sentences.length, chunkSize(sentences.length)));
+		return scores;
+	}
+	
+	/**
+	 * 设置所有工作线程共享的打分结果缓存，null表示不使用缓存
+	 * @param scoreCache
+	 */
+	public void setScoreCache(ScoreCache scoreCache) {
+		this.scoreCache = scoreCache;
+	}
+	
+	/**
+	 * 设置所有工作线程共享的分类指标，null表示不记录
+	 * @param metrics
+	 */
+	public void setMetrics(ClassifierMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * 当前的词典快照
+	 * @return
+	 */
+	public Lexicon getLexicon() {
+		return lexicons.get();
+	}
+	
+	/**
+	 * 关闭自己创建的线程池，调用方提供的线程池不受影响
+	 */
+	public void shutdown() {
+		if (ownsPool) {
+			pool.shutdown();
+		}
+	}
+	
+	private int chunkSize(int total) {
+		return Math.max(MIN_CHUNK_SIZE, total / (pool.getParallelism() * CHUNKS_PER_THREAD));
+	}
+	
+	/**
+	 * 处理[from, to)区间的评论，超过chunkSize时对半拆分
+	 * scores和types至少有一个不为null
+	 */
+	private class ClassifyTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final String[] sentences;
+		private final SentimentScore[] scores;
+		private final SentimentType[] types;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+		
+		ClassifyTask(String[] sentences, SentimentScore[] scores, SentimentType[] types, 
+				int from, int to, int chunkSize) {
+			this.sentences = sentences;
+			this.scores = scores;
+			this.types = types;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				Classifier classifier = classifiers.get();
+				classifier.setScoreCache(scoreCache);
+				classifier.setMetrics(metrics);
+				for (int i = from; i < to; i++) {
+					if (scores != null) {
+						classifier.score(sentences[i], scores[i]);
+					} else {
+						types[i] = classifier.classify(sentences[i]);
+					}
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ClassifyTask(sentences, scores, types, from, mid, chunkSize),
+					new ClassifyTask(sentences, scores, types, mid, to, chunkSize));
+		}
+	}
+}
@@ -1,27 +1,36 @@
 package com.hot.cmt.comment.bayes;
 
-import java.io.BufferedReader;
-import java.io.FileInputStream;
-import java.io.FileWriter;
-import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.StringUtils;
 
 import com.hot.cmt.comment.common.Constants;
-import com.hot.cmt.comment.common.TrendencyWordsLoader;
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconRegistry;
+import com.hot.cmt.comment.common.ReloadableLexicon;
 import com.hot.cmt.comment.common.Constants.SentimentType;
 import com.hot.cmt.comment.common.Constants.WordType;
-import com.hot.cmt.comment.terms.NGramGenerator;
-import com.hot.cmt.comment.tokenize.MMTokenizer;
+import com.hot.cmt.comment.metrics.ClassifierMetrics;
+import com.hot.cmt.comment.metrics.Stage;
+import com.hot.cmt.comment.terms.DirectScanner;
+import com.hot.cmt.comment.terms.NGramMatcher;
+import com.hot.cmt.comment.tokenize.SegMode;
+import com.hot.cmt.comment.tokenize.TokenOffsets;
+import com.hot.cmt.comment.tokenize.Tokenizer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * 
+ * 基于词典和pmi分数的情感分类
+ * 分词器和打分的中间结果都属于实例本身，一个实例只能在一个线程中使用；
+ * 多线程时每个线程各自创建实例并共享同一个Lexicon，参见BatchClassifier。
+ * 每次打分开始时读取一次词典快照，词典热加载不影响正在进行的打分
  * @author yongleixiao
  *
  */
@@ -29,197 +38,496 @@ public class Classifier {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(Classifier.class);
 	
-	private TrendencyWordsLoader wordLoader = null;
-	private MMTokenizer tokenizer = null;
+	private ReloadableLexicon lexicons = null;
+	/* 词典是否从LexiconRegistry引用 */
+	private boolean registered = false;
+	/* 每种切分算法一个分词器，第一次使用时创建 */
+	private final Tokenizer[] tokenizers = new Tokenizer[SegMode.values().length];
+	/* 默认的切分算法，由配置项Tokenizer_Mode指定 */
+	private SegMode segMode = SegMode.configured();
+	/* score时复用的分词结果，以偏移量表示，explain返回的明细持有自己的列表 */
+	private final TokenOffsets tokens = new TokenOffsets();
+	private NGramMatcher matcher = null;
+	/* scoreDirect使用，第一次调用时创建 */
+	private DirectScanner scanner = null;
+	private SentimentScore scratchScore = new SentimentScore();
+	/* 抽样和慢请求的明细默认输出到日志 */
+	private static final ExplanationListener LOGGING_LISTENER = new ExplanationListener() {
+		public void onExplanation(Explanation explanation, long elapsedNanos, boolean slow) {
+			LOGGER.info("explain slow = {}, cost = {}us, {}", slow, elapsedNanos / 1000L, explanation);
+		}
+	};
+	
+	/* 默认关闭抽样，打分时不做任何额外的事情 */
+	private double explainSampleRate = 0.0D;
+	private long slowThresholdNanos = 0L;
+	private ExplanationListener explanationListener = LOGGING_LISTENER;
+	/* 默认不使用缓存 */
+	private ScoreCache scoreCache = null;
+	/* 默认不记录指标 */
+	private ClassifierMetrics metrics = null;
+	
 	private static final String POS_TAG = "positive";
 	private static final String NEG_TAG = "negitive";
 	
+	/**
+	 * 引用LexiconRegistry中共享的词典，不再使用时调用close释放
+	 */
 	public Classifier() {
-		wordLoader = new TrendencyWordsLoader();
-		tokenizer = new MMTokenizer(); 
+		this(LexiconRegistry.acquire());
+		registered = true;
+	}
+	
+	/**
+	 * 使用已经编译好的词典，多个实例可以共享同一个Lexicon
+	 * @param lexicon
+	 */
+	public Classifier(Lexicon lexicon) {
+		this(new ReloadableLexicon(lexicon));
+	}
+	
+	/**
+	 * 使用可以热加载的词典，多个实例可以共享
+	 * @param lexicons
+	 */
+	public Classifier(ReloadableLexicon lexicons) {
+		this.lexicons = lexicons;
+		matcher = new NGramMatcher();
+	}
+	
+	/**
+	 * 释放从LexiconRegistry引用的词典，自行传入的词典不受影响
+	 */
+	public void close() {
+		if (registered) {
+			registered = false;
+			LexiconRegistry.release(lexicons);
+		}
+	}
+	
+	/**
+	 * 当前的词典快照
+	 * @return
+	 */
+	public Lexicon getLexicon() {
+		return lexicons.get();
+	}
+	
+	public ReloadableLexicon getReloadableLexicon() {
+		return lexicons;
+	}
+	
+	/**
+	 * 设置打分结果缓存，可以与其他Classifier共享，null表示不使用缓存
+	 * @param scoreCache
+	 */
+	public void setScoreCache(ScoreCache scoreCache) {
+		this.scoreCache = scoreCache;
+	}
+	
+	public ScoreCache getScoreCache() {
+		return scoreCache;
+	}
+	
+	/**
+	 * 设置分类指标，可以与其他Classifier共享，null表示不记录
+	 * @param metrics
+	 */
+	public void setMetrics(ClassifierMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	public ClassifierMetrics getMetrics() {
+		return metrics;
+	}
+	
+	/**
+	 * 按比例抽样生成分类明细，0表示关闭
+	 * @param rate 0-1
+	 */
+	public void setExplainSampleRate(double rate) {
+		this.explainSampleRate = Math.max(0.0D, Math.min(rate, 1.0D));
+	}
+	
+	/**
+	 * 打分耗时超过阈值时生成分类明细，0表示关闭
+	 * @param threshold
+	 * @param unit
+	 */
+	public void setSlowThreshold(long threshold, TimeUnit unit) {
+		this.slowThresholdNanos = Math.max(unit.toNanos(threshold), 0L);
 	}
 	
+	/**
+	 * 设置默认的切分算法
+	 * @param mode
+	 */
+	public void setSegMode(SegMode mode) {
+		if (mode == null) {
+			throw new IllegalArgumentException("mode is null");
+		}
+		this.segMode = mode;
+	}
+	
+	public SegMode getSegMode() {
+		return segMode;
+	}
+	
+	/**
+	 * 接收抽样明细，默认输出到日志
+	 * @param listener
+	 */
+	public void setExplanationListener(ExplanationListener listener) {
+		this.explanationListener = listener == null ? LOGGING_LISTENER : listener;
+	}
+	
+	/**
+	 * 计算正负例得分，返回Map形式的结果，兼容原有接口
+	 * @param sentence
+	 * @return
+	 */
 	public Map<String, Double> getJudgments(String sentence) {
+		SentimentScore score = new SentimentScore();
+		score(sentence, score);
 		Map<String, Double> result = new HashMap<String, Double>();
-		result.put(POS_TAG, 0.0D);
-		result.put(NEG_TAG, 0.0D);
+		result.put(POS_TAG, score.getPositive());
+		result.put(NEG_TAG, score.getNegative());
+		return result;
+	}
+	
+	/**
+	 * 计算正负例得分并写入调用方提供的score，score会先被清零
+	 * 打分过程中不创建Map，也不装箱
+	 * @param sentence
+	 * @param score
+	 */
+	public void score(String sentence, SentimentScore score) {
+		score(sentence, segMode, score);
+	}
+	
+	/**
+	 * 用指定的切分算法打分，短评论可以使用更快的算法
+	 * @param sentence
+	 * @param mode
+	 * @param score
+	 */
+	public void score(String sentence, SegMode mode, SentimentScore score) {
+		score.reset();
 		if (StringUtils.isBlank(sentence)) { 
-			return result;
+			return;
 		}
-		List<String> rawWords = tokenizer.getSplitedWords(sentence);
-		LOGGER.info("tokenizer = {}", rawWords.toString());
-		if (rawWords.isEmpty()) {
-			return result;
+		ClassifierMetrics metrics = this.metrics;
+		long start = metrics == null ? 0L : System.nanoTime();
+		Lexicon lexicon = lexicons.get();
+		long cacheKey = 0L;
+		if (scoreCache != null) {
+			/* 不同的切分算法结果不同，按算法区分缓存，COMPLEX的key不变 */
+			cacheKey = ScoreCache.key(sentence) ^ mode.ordinal();
+			if (scoreCache.get(cacheKey, lexicon, score)) {
+				if (metrics != null) {
+					long nanos = System.nanoTime() - start;
+					metrics.recordLatency(Stage.CACHE_HIT, nanos);
+					metrics.recordLatency(Stage.TOTAL, nanos);
+				}
+				return;
+			}
 		}
-		Map<String, Double> rawScore = judgeNGramList(rawWords);
-		LOGGER.info("uniGramWords = {}, rawScore = {}", rawWords.toString(), rawScore.toString());
-		result = addScores(result, rawScore);
-		
-		int wordCnt = rawWords.size();
-		if (wordCnt > 1) {
-			List<String> biGramWords = NGramGenerator.getBiGram(rawWords.toArray(new String[0]));
-			rawScore = judgeNGramList(biGramWords);
-			LOGGER.info("biGramWords = {}, rawScore = {}", biGramWords.toString(), rawScore.toString());
-			result = addScores(result, rawScore);
-		}
-		if (wordCnt > 2) {
-			List<String> triGramWords = NGramGenerator.getTriGram(rawWords.toArray(new String[0]));
-			rawScore = judgeNGramList(triGramWords);
-			LOGGER.info("triGramWords = {}, rawScore = {}", triGramWords.toString(), rawScore.toString());
-			result = addScores(result, rawScore);
+		if (explainSampleRate > 0.0D || slowThresholdNanos > 0L) {
+			scoreSampled(lexicon, mode, sentence, score);
+		} else {
+			judgeTokens(lexicon, tokenize(lexicon, mode, sentence), score);
 		}
-		return result;
+		if (scoreCache != null) {
+			scoreCache.put(cacheKey, lexicon, score);
+		}
+		if (metrics != null) {
+			metrics.recordLatency(Stage.TOTAL, System.nanoTime() - start);
+		}
+	}
+	
+	/**
+	 * 不分词，直接用词典的自动机在原文上扫描出最长的词条并打分，结果写入score，score会先被清零
+	 * 只有一次线性扫描，适合对延迟敏感的调用方。词典中的词都能被分词器切成单个词时与score的结果相同；
+	 * 跨越多个分词结果的n-gram只按最长的词条计一次。不使用缓存，不生成明细
+	 * @param sentence
+	 * @param score
+	 */
+	public void scoreDirect(String sentence, SentimentScore score) {
+		score.reset();
+		if (StringUtils.isBlank(sentence)) {
+			return;
+		}
+		ClassifierMetrics metrics = this.metrics;
+		long start = metrics == null ? 0L : System.nanoTime();
+		Lexicon lexicon = lexicons.get();
+		if (scanner == null) {
+			scanner = new DirectScanner();
+		}
+		int size = scanner.scan(lexicon, sentence);
+		judgeNGramList(lexicon, scanner.entries(), size, 1, score, null);
+		if (metrics != null) {
+			metrics.recordLatency(Stage.TOTAL, System.nanoTime() - start);
+		}
+	}
+	
+	private Tokenizer tokenizer(SegMode mode) {
+		Tokenizer tokenizer = tokenizers[mode.ordinal()];
+		if (tokenizer == null) {
+			tokenizer = mode.create(lexicons);
+			tokenizers[mode.ordinal()] = tokenizer;
+		}
+		return tokenizer;
+	}
+	
+	/**
+	 * 用本次打分的词典快照分词，MAX_MATCH不会在打分中途切换到新词典
+	 */
+	private TokenOffsets tokenize(Lexicon lexicon, SegMode mode, String sentence) {
+		Tokenizer tokenizer = tokenizer(mode);
+		ClassifierMetrics metrics = this.metrics;
+		if (metrics == null) {
+			tokenizer.tokenize(sentence, lexicon, tokens);
+			return tokens;
+		}
+		long start = System.nanoTime();
+		tokenizer.tokenize(sentence, lexicon, tokens);
+		metrics.recordLatency(Stage.TOKENIZE, System.nanoTime() - start);
+		return tokens;
+	}
+	
+	/**
+	 * 打分并在被抽样或者耗时超过阈值时生成明细，交给explanationListener
+	 * @param sentence
+	 * @param score
+	 */
+	private void scoreSampled(Lexicon lexicon, SegMode mode, String sentence, SentimentScore score) {
+		long start = System.nanoTime();
+		judgeTokens(lexicon, tokenize(lexicon, mode, sentence), score);
+		long elapsed = System.nanoTime() - start;
+		boolean slow = slowThresholdNanos > 0L && elapsed >= slowThresholdNanos;
+		if (slow || (explainSampleRate > 0.0D && ThreadLocalRandom.current().nextDouble() < explainSampleRate)) {
+			explanationListener.onExplanation(explain(lexicon, mode, sentence), elapsed, slow);
+		}
+	}
+	
+	/**
+	 * 分类并返回每个命中词典的n-gram的明细，用于排查问题，开销比score大很多
+	 * @param sentence
+	 * @return
+	 */
+	public Explanation explain(String sentence) {
+		return explain(lexicons.get(), segMode, sentence);
+	}
+	
+	private Explanation explain(Lexicon lexicon, SegMode mode, String sentence) {
+		List<String> rawWords = null;
+		if (!StringUtils.isBlank(sentence)) {
+			tokenizer(mode).tokenize(sentence, lexicon, tokens);
+			rawWords = new ArrayList<String>(tokens.size());
+			for (int i = 0; i < tokens.size(); i++) {
+				rawWords.add(tokens.token(i));
+			}
+		}
+		Explanation explanation = new Explanation(sentence, rawWords);
+		judgeWords(lexicon, rawWords, explanation.getScore(), explanation);
+		explanation.setType(judgeSenType(explanation.getScore()));
+		return explanation;
+	}
+	
+	/**
+	 * 对已经分好词的评论打分，结果写入score，score会先被清零
+	 * 用于分词和打分在不同线程中进行的场景
+	 * @param rawWords 分词结果，可以为null
+	 * @param score
+	 */
+	public void scoreWords(List<String> rawWords, SentimentScore score) {
+		judgeWords(lexicons.get(), rawWords, score, null);
+	}
+	
+	private void judgeWords(Lexicon lexicon, List<String> rawWords, SentimentScore score, Explanation trace) {
+		score.reset();
+		if (rawWords == null || rawWords.isEmpty()) {
+			return;
+		}
+		ClassifierMetrics metrics = trace == null ? this.metrics : null;
+		if (metrics == null) {
+			matcher.match(lexicon.getTrie(), rawWords);
+			judgeMatches(lexicon, score, trace);
+			return;
+		}
+		metrics.recordTokenCount(rawWords.size());
+		long start = System.nanoTime();
+		matcher.match(lexicon.getTrie(), rawWords);
+		judgeMatches(lexicon, score, metrics, start);
+	}
+	
+	/**
+	 * 和judgeWords相同，分词结果以偏移量表示，整个过程不创建字符串
+	 * @param lexicon
+	 * @param tokens
+	 * @param score
+	 */
+	private void judgeTokens(Lexicon lexicon, TokenOffsets tokens, SentimentScore score) {
+		score.reset();
+		if (tokens.isEmpty()) {
+			return;
+		}
+		ClassifierMetrics metrics = this.metrics;
+		if (metrics == null) {
+			matcher.match(lexicon.getTrie(), tokens);
+			judgeMatches(lexicon, score, null);
+			return;
+		}
+		metrics.recordTokenCount(tokens.size());
+		long start = System.nanoTime();
+		matcher.match(lexicon.getTrie(), tokens);
+		judgeMatches(lexicon, score, metrics, start);
+	}
+	
+	private void judgeMatches(Lexicon lexicon, SentimentScore score, Explanation trace) {
+		for (int order = 1; order <= NGramMatcher.MAX_ORDER; order++) {
+			judgeNGramList(lexicon, matcher.entries(order), matcher.size(order), order, score, trace);
+		}
+	}
+	
+	/**
+	 * 按阶记录耗时，start为开始匹配的时间
+	 */
+	private void judgeMatches(Lexicon lexicon, SentimentScore score, ClassifierMetrics metrics, long start) {
+		long now = System.nanoTime();
+		metrics.recordLatency(Stage.LOOKUP, now - start);
+		for (int order = 1; order <= NGramMatcher.MAX_ORDER; order++) {
+			start = now;
+			judgeNGramList(lexicon, matcher.entries(order), matcher.size(order), order, score, null);
+			now = System.nanoTime();
+			metrics.recordLatency(Stage.ofOrder(order), now - start);
+		}
+	}
+	
+	/**
+	 * 直接返回情感类别，复用内部的score，因此和分词器一样不能在多个线程间共享
+	 * @param sentence
+	 * @return
+	 */
+	public SentimentType classify(String sentence) {
+		score(sentence, scratchScore);
+		return judgeSenType(scratchScore);
 	}
 	
 	/**
 	 * 先判断是不是情感词，如果不是再判断是不是评价词，如果再不是，看看是不是语气词
 	 * 如果是未知的，则
 	 * 以后算法调整基本只需要调整这里，类别主要是两类或者三类，及positive、negative
-	 * @param wordList
-	 * @return
+	 * @param lexicon 本次打分使用的词典快照
+	 * @param entries n-gram匹配到的词条编号，词典中不存在的按权重为0的中性词处理
+	 * @param size
+	 * @param order n-gram的阶数
+	 * @param score
+	 * @param trace 需要记录明细时不为null
 	 */
-	private Map<String, Double> judgeNGramList(List<String> wordList) {
-		int size = wordList.size();
+	private void judgeNGramList(Lexicon lexicon, int[] entries, int size, int order, 
+			SentimentScore score, Explanation trace) {
 		double pos = 0.0D;
 		double neg = 0.0D;
 		for (int i = 0; i < size; i++) {
-			WordType wType = getWordType(wordList.get(i));
-			//LOGGER.info("word = {} $$ wordType = {}", wordList.get(i), wType);
-			switch (wType) {
+			int entry = entries[i];
+			if (entry == Lexicon.NOT_FOUND) {
+				continue;
+			}
+			WordType entryType = lexicon.getType(entry);
+			double weight = lexicon.getWeight(entry);
+			switch (entryType) {
 				case NEUTRAL_WORD:
-					double weight = getWordWeight(wordList.get(i));
 					if (weight < 0) {
 						neg -= weight;
 					} else {
 						pos += weight;
 					}
+					if (trace != null) {
+						trace.addTerm(order, i, entryType, weight, 1.0D, weight < 0 ? 0.0D : weight, weight < 0 ? -weight : 0.0D);
+					}
 					break;
 				case POS: 
-					pos += Constants.NORMAL_WEIGHT;
-					break;
-				case NEG:
-					neg += Constants.NORMAL_WEIGHT;
-					break;
 				case POS_SEM:
-					pos += Constants.NORMAL_SEMANTIC_WEIGHT;
-					break;
 				case POS_COMMENT:
-					pos += Constants.COMMENT_WEIGHT;
+					pos += weight;
+					if (trace != null) {
+						trace.addTerm(order, i, entryType, weight, 1.0D, weight, 0.0D);
+					}
 					break;
+				case NEG:
 				case NEG_SEM:
-					neg += Constants.NORMAL_SEMANTIC_WEIGHT;
-					break;
 				case NEG_COMMENT:
-					neg += Constants.COMMENT_WEIGHT;
+					neg += weight;
+					if (trace != null) {
+						trace.addTerm(order, i, entryType, weight, 1.0D, 0.0D, weight);
+					}
 					break;
 				case TONE:
-					for (int j = i + 1; j < size;) { //语气词，想下搜索一个，进行语气的判断
-						String word = wordList.get(j);
-						WordType type = getWordType(word);
+					if (trace != null) {
+						trace.addTerm(order, i, entryType, weight, 1.0D, 0.0D, 0.0D);
+					}
+					if (i + 1 < size) { //语气词，向下搜索一个，进行语气的判断
+						int next = entries[i + 1];
+						if (next == Lexicon.NOT_FOUND) {
+							break;
+						}
+						WordType type = lexicon.getType(next);
 						if (type == WordType.STOP_WORD || type == WordType.NEUTRAL_WORD) {
 							break;
 						}
+						double nextWeight = lexicon.getWeight(next);
+						double toneScore = nextWeight * Constants.TONE_WEIGHT;
 						if (type == WordType.POS || type == WordType.POS_COMMENT || type == WordType.POS_SEM) {
-							pos += getWordWeight(word) * Constants.TONE_WEIGHT;
+							pos += toneScore;
+							if (trace != null) {
+								trace.addTerm(order, i + 1, type, nextWeight, Constants.TONE_WEIGHT, toneScore, 0.0D);
+							}
 						}
 						if (type == WordType.NEG || type == WordType.NEG_COMMENT || type == WordType.NEG_SEM) {
-							neg += getWordWeight(word) * Constants.TONE_WEIGHT;
+							neg += toneScore;
+							if (trace != null) {
+								trace.addTerm(order, i + 1, type, nextWeight, Constants.TONE_WEIGHT, 0.0D, toneScore);
+							}
 						}
-						i = j;
-						break;
+						i++;
 					}
 					break;
 				default:
 					break;
 			}
 		}
-		Map<String, Double> result = new HashMap<String, Double>();
-		result.put(POS_TAG, pos);
-		result.put(NEG_TAG, neg);
-		return result;
+		score.addPositive(pos);
+		score.addNegative(neg);
 	}
 	
-	private Double getWordWeight(String word) {
-		WordType wType = getWordType(word);
-		if (wType == WordType.POS || wType == WordType.NEG) {
-			return Constants.NORMAL_WEIGHT;
-		}
-		if (wType == WordType.POS_SEM || wType == WordType.NEG_SEM) {
-			return Constants.NORMAL_SEMANTIC_WEIGHT;
-		}
-		if (wType == WordType.POS_COMMENT || wType == WordType.NEG_COMMENT) {
-			return Constants.COMMENT_WEIGHT;
-		}
-		if (wType == WordType.NEUTRAL_WORD) {
-			double posPMIScore = wordLoader.getPosPMIScoreOfWord(word);
-			double negPMIScore = wordLoader.getNegPMIScoreOfWord(word);
-			if (posPMIScore == 0.0D) {
-				return -Constants.NORMAL_WEIGHT * negPMIScore;
-			}
-			if (negPMIScore == 0.0D) {
-				return Constants.NORMAL_WEIGHT * posPMIScore;
-			}
-			if (posPMIScore/negPMIScore < 0.68D) {
-				return -Constants.NORMAL_WEIGHT * (negPMIScore - posPMIScore);
-			}
-			if (negPMIScore/posPMIScore < 0.68D) {
-				return Constants.NORMAL_WEIGHT * (posPMIScore - negPMIScore);
-			}
+	public SentimentType judgeSenType(Map<String, Double> score) {
+		if (score.isEmpty()) {
+			return SentimentType.NEUTRAL;
 		}
-		return 0.0D;
+		return judgeSenType(score.get(POS_TAG), score.get(NEG_TAG));
 	}
 	
-	private WordType getWordType(String word) {
-		if (wordLoader.isPosSenWord(word)) {
-			return WordType.POS;
-		}
-		if (wordLoader.isPosSemWord(word)) {
-			return WordType.POS_SEM;
-		}
-		if (wordLoader.isPosCommentWord(word)) {
-			return WordType.POS_COMMENT;
-		}
-		if (wordLoader.isNegSenWord(word)) {
-			return WordType.NEG;
-		}
-		if (wordLoader.isNegSemWord(word)) {
-			return WordType.NEG_SEM;
-		}
-		if (wordLoader.isNegCommentWord(word)) {
-			return WordType.NEG_COMMENT;
-		}
-		if (wordLoader.isToneWords(word)) {
-			return WordType.TONE;
-		}
-		if (wordLoader.isStopWord(word)) {
-			return WordType.STOP_WORD;
-		}
-		return WordType.NEUTRAL_WORD;	
+	public SentimentType judgeSenType(SentimentScore score) {
+		return judgeSenType(score.getPositive(), score.getNegative());
 	}
 	
-	private Map<String, Double> addScores(Map<String, Double> first, Map<String, Double> second) {
-		Map<String, Double> result = new HashMap<String, Double>();
-		result.put(POS_TAG, 0.0D);
-		result.put(NEG_TAG, 0.0D);
-		double score = 0.0D;
-		if (first.containsKey(POS_TAG) && second.containsKey(POS_TAG)) {
-			score = first.get(POS_TAG) + second.get(POS_TAG);
-			result.put(POS_TAG, score);
-		}
-		if (first.containsKey(NEG_TAG) && second.containsKey(NEG_TAG)) {
-			score = first.get(NEG_TAG) + second.get(NEG_TAG);
-			result.put(NEG_TAG, score);
+	public SentimentType judgeSenType(double positive, double negative) {
+		ClassifierMetrics metrics = this.metrics;
+		if (metrics == null) {
+			return judge(positive, negative);
 		}
+		long start = System.nanoTime();
+		SentimentType result = judge(positive, negative);
+		metrics.recordLatency(Stage.JUDGE, System.nanoTime() - start);
+		metrics.recordSentiment(result);
 		return result;
 	}
 	
-	public SentimentType judgeSenType(Map<String, Double> score) {
+	private static SentimentType judge(double positive, double negative) {
 		SentimentType result = SentimentType.NEUTRAL;
-		if (score.isEmpty()) {
-			return result;
-		}
-		double pos = score.get(POS_TAG) + 0.0000001D;
-		double neg = score.get(NEG_TAG) + 0.0000001D;
+		double pos = positive + 0.0000001D;
+		double neg = negative + 0.0000001D;
 		double res = (Math.abs(pos-neg)/(pos+neg));
 		if (res > Constants.SEN_THRESHOLD) {
 			if (pos >= neg) {
@@ -244,6 +552,7 @@ public class Classifier {
 		System.out.printf("negitive: %f\n", result.get(NEG_TAG));
 		SentimentType type = cls.judgeSenType(result);
 		System.out.printf("type: %d\n", type.value());
+		cls.close();
 		
 	}
 		
@@ -0,0 +1,166 @@
+package com.hot.cmt.comment.bayes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.hot.cmt.comment.common.Constants.SentimentType;
+import com.hot.cmt.comment.common.Constants.WordType;
+
+/**
+ * 一次分类的明细，用于排查分类结果
+ * 记录分词结果以及每个命中词典的n-gram的词性、权重、语气词倍数和对正负例得分的贡献。
+ * 只在显式调用Classifier.explain或者被抽样时生成，正常打分不会创建
+ * @author yongleixiao
+ *
+ */
+public class Explanation {
+
+	private final String sentence;
+	private final List<String> tokens;
+	private final List<Term> terms = new ArrayList<Term>();
+	private final SentimentScore score = new SentimentScore();
+	private SentimentType type = SentimentType.UN_KNOWN;
+	
+	Explanation(String sentence, List<String> tokens) {
+		this.sentence = sentence;
+		this.tokens = tokens == null ? Collections.<String>emptyList() : tokens;
+	}
+	
+	void addTerm(int order, int position, WordType wordType, double weight, double toneMultiplier, 
+			double positive, double negative) {
+		StringBuilder text = new StringBuilder();
+		for (int i = position; i < position + order; i++) {
+			text.append(tokens.get(i));
+		}
+		terms.add(new Term(text.toString(), order, position, wordType, weight, 
+				toneMultiplier, positive, negative));
+	}
+	
+	void setType(SentimentType type) {
+		this.type = type;
+	}
+	
+	public String getSentence() {
+		return sentence;
+	}
+	
+	public List<String> getTokens() {
+		return tokens;
+	}
+	
+	public List<Term> getTerms() {
+		return terms;
+	}
+	
+	public SentimentScore getScore() {
+		return score;
+	}
+	
+	public SentimentType getType() {
+		return type;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("sentence = ").append(sentence)
+			.append(", tokens = ").append(tokens)
+			.append(", positive = ").append(score.getPositive())
+			.append(", negative = ").append(score.getNegative())
+			.append(", type = ").append(type);
+		for (Term term : terms) {
+			sb.append("\n\t").append(term);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * 一个命中词典的n-gram
+	 */
+	public static class Term {
+		private final String text;
+		private final int order;
+		private final int position;
+		private final WordType type;
+		private final double weight;
+		private final double toneMultiplier;
+		private final double positive;
+		private final double negative;
+		
+		Term(String text, int order, int position, WordType type, double weight, 
+				double toneMultiplier, double positive, double negative) {
+			this.text = text;
+			this.order = order;
+			this.position = position;
+			this.type = type;
+			this.weight = weight;
+			this.toneMultiplier = toneMultiplier;
+			this.positive = positive;
+			this.negative = negative;
+		}
+		
+		public String getText() {
+			return text;
+		}
+		
+		/**
+		 * n-gram的阶数，1-3
+		 * @return
+		 */
+		public int getOrder() {
+			return order;
+		}
+		
+		/**
+		 * 第一个词在分词结果中的下标
+		 * @return
+		 */
+		public int getPosition() {
+			return position;
+		}
+		
+		public WordType getType() {
+			return type;
+		}
+		
+		/**
+		 * 词典中的权重
+		 * @return
+		 */
+		public double getWeight() {
+			return weight;
+		}
+		
+		/**
+		 * 前面是语气词时为Constants.TONE_WEIGHT，否则为1
+		 * @return
+		 */
+		public double getToneMultiplier() {
+			return toneMultiplier;
+		}
+		
+		/**
+		 * 对正例得分的贡献
+		 * @return
+		 */
+		public double getPositive() {
+			return positive;
+		}
+		
+		/**
+		 * 对负例得分的贡献
+		 * @return
+		 */
+		public double getNegative() {
+			return negative;
+		}
+		
+		@Override
+		public String toString() {
+			return text + " order = " + order + ", position = " + position + ", type = " + type 
+					+ ", weight = " + weight + ", tone = " + toneMultiplier 
+					+ ", positive = " + positive + ", negative = " + negative;
+		}
+	}
+}
@@ -0,0 +1,17 @@
+package com.hot.cmt.comment.bayes;
+
+/**
+ * 接收被抽样或者耗时过长的分类明细
+ * 在打分的线程中同步回调，实现需要尽快返回
+ * @author yongleixiao
+ *
+ */
+public interface ExplanationListener {
+
+	/**
+	 * @param explanation 分类明细
+	 * @param elapsedNanos 原始打分的耗时
+	 * @param slow 是否因为耗时超过阈值而生成
+	 */
+	void onExplanation(Explanation explanation, long elapsedNanos, boolean slow);
+}
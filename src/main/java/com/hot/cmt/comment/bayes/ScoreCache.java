@@ -0,0 +1,262 @@
+package com.hot.cmt.comment.bayes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.hot.cmt.comment.common.Lexicon;
+
+/**
+ * 评论打分结果的缓存
+ * 评论中大量重复（复制粘贴、“顶”、“沙发”、纯表情），归一化后相同的评论直接返回缓存的得分。
+ * 归一化会去掉空白和标点、全角转半角、英文字母转小写，key为归一化文本的64位哈希，不保存原文。
+ * 缓存分段加锁，每段按LRU淘汰，可以被多个线程中的Classifier共享。
+ * 每条缓存记录打分时的词典版本，只有与当前词典版本相同时才命中，因此清空缓存和切换版本不需要是原子的；
+ * 词典变化后第一次访问时清空整个缓存，只是为了尽快释放旧版本的记录。
+ * 词典热加载切换期间仍在使用旧词典的调用不会命中也不会写入缓存。
+ * maxEntries不大于0时不缓存任何记录，get总是返回false
+ * @author yongleixiao
+ *
+ */
+public class ScoreCache {
+
+	private static final int MAX_SEGMENTS = 16;
+	
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	
+	private final Segment[] segments;
+	private final int maxEntries;
+	
+	/* 见过的最新词典版本，更旧的词典不再读写缓存 */
+	private volatile long lexiconVersion = -1L;
+	
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+	private final AtomicLong invalidationCount = new AtomicLong();
+	
+	/**
+	 * @param maxEntries 最多缓存的评论数，不大于0时不缓存
+	 */
+	public ScoreCache(int maxEntries) {
+		this.maxEntries = maxEntries;
+		if (maxEntries <= 0) {
+			segments = new Segment[0];
+			return;
+		}
+		/* 段数为2的幂，条数较少时减少段数，保证每段至少一条并且总数不超过maxEntries */
+		int segmentCount = Integer.highestOneBit(Math.min(maxEntries, MAX_SEGMENTS));
+		int segmentEntries = maxEntries / segmentCount;
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment(segmentEntries);
+		}
+	}
+	
+	/**
+	 * 查找缓存，命中时把得分写入score
+	 * @param key 由key(String)计算
+	 * @param lexicon 当前使用的词典
+	 * @param score
+	 * @return 是否命中
+	 */
+	public boolean get(long key, Lexicon lexicon, SentimentScore score) {
+		if (segments.length == 0) {
+			return false;
+		}
+		CachedScore cached = checkVersion(lexicon) ? segmentFor(key).get(key) : null;
+		/* 清空和切换版本之间写入的旧版本记录在这里被排除 */
+		if (cached == null || cached.version != lexicon.getVersion()) {
+			missCount.incrementAndGet();
+			return false;
+		}
+		hitCount.incrementAndGet();
+		score.reset();
+		score.addPositive(cached.positive);
+		score.addNegative(cached.negative);
+		return true;
+	}
+	
+	public void put(long key, Lexicon lexicon, SentimentScore score) {
+		if (segments.length == 0 || !checkVersion(lexicon)) {
+			return;
+		}
+		segmentFor(key).put(key, new CachedScore(lexicon.getVersion(), score.getPositive(), score.getNegative()));
+	}
+	
+	/**
+	 * 清空缓存
+	 */
+	public void invalidateAll() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+		invalidationCount.incrementAndGet();
+	}
+	
+	/**
+	 * 计算评论的缓存key：去掉空白和标点，全角转半角，英文字母转小写后的FNV-1a哈希
+	 * @param sentence
+	 * @return
+	 */
+	public static long key(String sentence) {
+		long hash = FNV_OFFSET;
+		int length = sentence.length();
+		for (int i = 0; i < length; i++) {
+			char c = normalize(sentence.charAt(i));
+			if (c == 0) {
+				continue;
+			}
+			hash ^= c;
+			hash *= FNV_PRIME;
+		}
+		return hash;
+	}
+	
+	/**
+	 * 单个字符的归一化
+	 * @param c
+	 * @return 需要去掉的字符返回0
+	 */
+	static char normalize(char c) {
+		if (c == '\u3000') {
+			return 0;
+		}
+		if (c >= '\uff01' && c <= '\uff5e') {
+			c = (char) (c - 0xfee0);
+		}
+		if (c >= 'A' && c <= 'Z') {
+			return (char) (c + ('a' - 'A'));
+		}
+		if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+			return 0;
+		}
+		switch (Character.getType(c)) {
+			case Character.CONNECTOR_PUNCTUATION:
+			case Character.DASH_PUNCTUATION:
+			case Character.START_PUNCTUATION:
+			case Character.END_PUNCTUATION:
+			case Character.INITIAL_QUOTE_PUNCTUATION:
+			case Character.FINAL_QUOTE_PUNCTUATION:
+			case Character.OTHER_PUNCTUATION:
+				return 0;
+			default:
+				return c;
+		}
+	}
+	
+	/**
+	 * 词典版本号单调递增，遇到更新的词典时清空缓存
+	 * @param lexicon
+	 * @return 词典比缓存的版本旧时返回false
+	 */
+	private boolean checkVersion(Lexicon lexicon) {
+		long version = lexicon.getVersion();
+		if (version == lexiconVersion) {
+			return true;
+		}
+		synchronized (this) {
+			if (version > lexiconVersion) {
+				invalidateAll();
+				lexiconVersion = version;
+			}
+			return version == lexiconVersion;
+		}
+	}
+	
+	private Segment segmentFor(long key) {
+		int h = (int) (key ^ (key >>> 32));
+		return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+	}
+	
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	
+	public long getMissCount() {
+		return missCount.get();
+	}
+	
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+	
+	public long getInvalidationCount() {
+		return invalidationCount.get();
+	}
+	
+	public double getHitRate() {
+		long hits = hitCount.get();
+		long total = hits + missCount.get();
+		return total == 0L ? 0.0D : (double) hits / total;
+	}
+	
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+	
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+	
+	@Override
+	public String toString() {
+		return "ScoreCache[size=" + size() + ", hits=" + getHitCount() + ", misses=" + getMissCount() 
+				+ ", evictions=" + getEvictionCount() + ", hitRate=" + getHitRate() + "]";
+	}
+	
+	private static class CachedScore {
+		final long version;
+		final double positive;
+		final double negative;
+		
+		CachedScore(long version, double positive, double negative) {
+			this.version = version;
+			this.positive = positive;
+			this.negative = negative;
+		}
+	}
+	
+	/**
+	 * 按访问顺序淘汰的一段缓存
+	 */
+	private class Segment {
+		private final LinkedHashMap<Long, CachedScore> entries;
+		
+		Segment(final int capacity) {
+			entries = new LinkedHashMap<Long, CachedScore>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Long, CachedScore> eldest) {
+					if (size() > capacity) {
+						evictionCount.incrementAndGet();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+		
+		synchronized CachedScore get(long key) {
+			return entries.get(key);
+		}
+		
+		synchronized void put(long key, CachedScore score) {
+			entries.put(key, score);
+		}
+		
+		synchronized void clear() {
+			entries.clear();
+		}
+		
+		synchronized int size() {
+			return entries.size();
+		}
+	}
+}
@@ -0,0 +1,50 @@
+package com.hot.cmt.comment.bayes;
+
+/**
+ * 一条评论的正负例得分
+ * 使用原始类型累加，可以在多次打分之间复用，避免每次打分都创建Map和装箱
+ * @author yongleixiao
+ *
+ */
+public class SentimentScore {
+
+	private double positive = 0.0D;
+	private double negative = 0.0D;
+	
+	public SentimentScore() {
+	}
+	
+	public SentimentScore(double positive, double negative) {
+		this.positive = positive;
+		this.negative = negative;
+	}
+	
+	/**
+	 * 清零，复用前调用
+	 */
+	public void reset() {
+		positive = 0.0D;
+		negative = 0.0D;
+	}
+	
+	public void addPositive(double score) {
+		positive += score;
+	}
+	
+	public void addNegative(double score) {
+		negative += score;
+	}
+	
+	public double getPositive() {
+		return positive;
+	}
+	
+	public double getNegative() {
+		return negative;
+	}
+	
+	@Override
+	public String toString() {
+		return "SentimentScore[positive=" + positive + ", negative=" + negative + "]";
+	}
+}
@@ -15,50 +15,94 @@ public class Constants {
 	public static final String WORD_PATH = config.get("Word_Path");
 	
 	/* 语气词库路径  */ 
-	public static final String TONE_WORDS = WORD_PATH + config.get("Tone_Words");
+	public static final String TONE_WORDS_FILE = config.get("Tone_Words", "sen_level.txt");
+	public static final String TONE_WORDS = WORD_PATH + TONE_WORDS_FILE;
 	
 	/* 正例情感词库 */
-	public static final String POS_SEN_DICT = WORD_PATH + config.get("Pos_Sen_Dict");
+	public static final String POS_SEN_DICT_FILE = config.get("Pos_Sen_Dict", "pos_sen_exp.txt");
+	public static final String POS_SEN_DICT = WORD_PATH + POS_SEN_DICT_FILE;
 	
 	/* 经过同义词扩展的正例情感词库 */
-	public static final String POS_SEM_DICT = WORD_PATH + config.get("Pos_Sem_Dict");
+	public static final String POS_SEM_DICT_FILE = config.get("Pos_Sem_Dict", "pos_sem_exp.txt");
+	public static final String POS_SEM_DICT = WORD_PATH + POS_SEM_DICT_FILE;
 	
 	/* 正例评价词库 */
-	public static final String POS_CON_DICT = WORD_PATH + config.get("Pos_Con_Dict");
+	public static final String POS_CON_DICT_FILE = config.get("Pos_Con_Dict", "pos_con.txt");
+	public static final String POS_CON_DICT = WORD_PATH + POS_CON_DICT_FILE;
 	
 	/* 负例情感词库 */
-	public static final String NEG_SEN_DICT = WORD_PATH + config.get("Neg_Sen_Dict");
+	public static final String NEG_SEN_DICT_FILE = config.get("Neg_Sen_Dict", "neg_sen_exp.txt");
+	public static final String NEG_SEN_DICT = WORD_PATH + NEG_SEN_DICT_FILE;
 	
 	/* 经过同义词扩展的负例情感词库 */
-	public static final String NEG_SEM_DICT = WORD_PATH + config.get("Neg_Sem_Dict");
+	public static final String NEG_SEM_DICT_FILE = config.get("Neg_Sem_Dict", "neg_sem_exp.txt");
+	public static final String NEG_SEM_DICT = WORD_PATH + NEG_SEM_DICT_FILE;
 	
 	/* 负例评价词库 */
-	public static final String NEG_CON_DICT = WORD_PATH + config.get("Neg_Con_Dict");
+	public static final String NEG_CON_DICT_FILE = config.get("Neg_Con_Dict", "neg_con.txt");
+	public static final String NEG_CON_DICT = WORD_PATH + NEG_CON_DICT_FILE;
 	
 	/* 停用词表 */
-	public static final String STOP_WORDS = WORD_PATH + config.get("Stop_Words");
+	public static final String STOP_WORDS_FILE = config.get("Stop_Words", "stop_words.txt");
+	public static final String STOP_WORDS = WORD_PATH + STOP_WORDS_FILE;
 	
 	/* 与正例的pmiscore的路径  */
-	public static final String POS_PMI_SCORE = WORD_PATH + config.get("Pos_Pmi_Score");
+	public static final String POS_PMI_SCORE_FILE = config.get("Pos_Pmi_Score", "pos_pmi_score.txt");
+	public static final String POS_PMI_SCORE = WORD_PATH + POS_PMI_SCORE_FILE;
 	
 	/* 与负例的pmiscore的路径 */
-	public static final String NEG_PMI_SCORE = WORD_PATH + config.get("Neg_Pmi_Score");
+	public static final String NEG_PMI_SCORE_FILE = config.get("Neg_Pmi_Score", "neg_pmi_score.txt");
+	public static final String NEG_PMI_SCORE = WORD_PATH + NEG_PMI_SCORE_FILE;
+	
+	/* LexiconCompiler编译出的二进制词典，存在且比文本词库新时直接映射 */
+	public static final String LEXICON_FILE = config.get("Lexicon_File", "lexicon.bin");
+	
+	/* 检查词库变化并热加载的间隔秒数，0表示不检查 */
+	public static final int LEXICON_RELOAD_SECONDS = config.getInt("Lexicon_Reload_Seconds", 0);
+	
+	/* 热加载的新词典条数少于原来的这个比例时保留原来的词典，0表示不检查 */
+	public static final double LEXICON_RELOAD_MIN_RATIO = config.getDouble("Lexicon_Reload_Min_Ratio", 0.5D);
+	
+	/* 没有编译好的词典时，先用词性词库提供服务，pmi分数在后台加载完成后再替换为完整的词典 */
+	public static final boolean LEXICON_LAZY_PMI = config.getBoolean("Lexicon_Lazy_PMI", false);
+	
+	/* mmseg4j的词典目录，classpath:开头时从classpath读取 */
+	public static final String TOKENIZER_DICT_PATH = config.get("Tokenizer_Dict_Path", "D:/changyancomments/worddict/data");
+	
+	/* SegDictionaryCompiler编译出的分词词典，放在词典目录下 */
+	public static final String TOKENIZER_DICT_FILE = config.get("Tokenizer_Dict_File", "tokenizer.bin");
+	
+	/* 分类使用的切分算法：complex、simple或者max_match，见SegMode */
+	public static final String TOKENIZER_MODE = config.get("Tokenizer_Mode", "complex");
+	
+	/* 计算pmi分数的线程数，0表示与cpu核数相同 */
+	public static final int PMI_PARALLELISM = config.getInt("Pmi_Parallelism", 0);
+	
+	/* 计算pmi时是否映射读取语料，否则按行读取 */
+	public static final boolean PMI_CORPUS_MAPPED = config.getBoolean("Pmi_Corpus_Mapped", false);
+	
+	/* 计算pmi时共现计数占用的内存上限（MB），大于0时分词结果和共现次数写入磁盘，0表示全部在内存中计算
+	 * 包括按词分配的计数数组和归并缓冲区，不包括词表和词频 */
+	public static final int PMI_MEMORY_MB = config.getInt("Pmi_Memory_Mb", 0);
+	
+	/* 外存模式下临时文件的目录 */
+	public static final String PMI_SPILL_DIR = config.get("Pmi_Spill_Dir", System.getProperty("java.io.tmpdir"));
 	
 	/* 情感词的默认权重  */
-	public static final Double NORMAL_WEIGHT = config.getDouble("Normal_Weight");
+	public static final Double NORMAL_WEIGHT = config.getDouble("Normal_Weight", 1.0D);
 	
 	/* 评价词的默认权重 */
-	public static final Double COMMENT_WEIGHT = config.getDouble("Comment_Weight");
+	public static final Double COMMENT_WEIGHT = config.getDouble("Comment_Weight", 0.8D);
 	
 	/* 出现语气词的权重 */
-	public static final Double TONE_WEIGHT = config.getDouble("Tone_Weight");
+	public static final Double TONE_WEIGHT = config.getDouble("Tone_Weight", 2.0D);
 	
 	/* 经过语义扩展的情感词权重 */
-	public static final Double NORMAL_SEMANTIC_WEIGHT = config.getDouble("Normal_Semantic_Weight");
+	public static final Double NORMAL_SEMANTIC_WEIGHT = config.getDouble("Normal_Semantic_Weight", 0.35D);
 	
 	
 	/* 情感判定的阈值 */
-	public static final Double SEN_THRESHOLD = config.getDouble("Sen_Threshold");
+	public static final Double SEN_THRESHOLD = config.getDouble("Sen_Threshold", 0.56D);
 	
 	
 	/* 词性*/
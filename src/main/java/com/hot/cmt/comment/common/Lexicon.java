@@ -0,0 +1,193 @@
+package com.hot.cmt.comment.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.hot.cmt.comment.common.Constants.WordType;
+
+/**
+ * 编译后的只读词典
+ * 把TrendencyWordsLoader中的各个词库合并成一张表，一次查找即可得到词性、权重和pmi分数，
+ * 替代原来逐个词库判断的做法。数据按LexiconCompiler的二进制格式按列存放在一个缓冲区中，
+ * 可以在堆上编译，也可以通过load直接映射编译好的文件，此时启动不需要解析文本，也不占用堆内存。
+ * 构造完成后不再修改，可以在多个线程间共享
+ * @author yongleixiao
+ *
+ */
+public class Lexicon {
+
+	/* 词典中不存在的词的编号 */
+	public static final int NOT_FOUND = -1;
+	
+	/* 每次编译分配一个新版本号，依赖词典内容的缓存据此失效 */
+	private static final AtomicLong VERSIONS = new AtomicLong();
+	
+	private static final WordType[] TYPES = WordType.values();
+	
+	private final long version = VERSIONS.incrementAndGet();
+	private final int entryCount;
+	/* 按词条编号存放的词性、权重和pmi分数 */
+	private final ByteBuffer types;
+	private final DoubleBuffer weights;
+	private final DoubleBuffer posPMIScores;
+	private final DoubleBuffer negPMIScores;
+	/* 所有词条的trie，用于跨分词结果的n-gram匹配 */
+	private final LexiconTrie trie;
+	/* 第一次直接扫描时由trie建立 */
+	private volatile LexiconAutomaton automaton = null;
+	
+	public Lexicon(TrendencyWordsLoader loader) {
+		this(LexiconCompiler.compile(loader));
+	}
+	
+	/**
+	 * 读取LexiconCompiler格式的缓冲区，只建立视图，不复制数据
+	 * @param buffer
+	 */
+	Lexicon(ByteBuffer buffer) {
+		ByteBuffer header = section(buffer, 0, LexiconCompiler.HEADER_SIZE);
+		if (header.getInt() != LexiconCompiler.MAGIC) {
+			throw new IllegalArgumentException("not a compiled lexicon");
+		}
+		int formatVersion = header.getInt();
+		if (formatVersion != LexiconCompiler.FORMAT_VERSION) {
+			throw new IllegalArgumentException("unsupported lexicon format version " + formatVersion 
+					+ ", expected " + LexiconCompiler.FORMAT_VERSION);
+		}
+		int nodeCount = header.getInt();
+		entryCount = header.getInt();
+		/* 之后是编译时的权重配置，只在LexiconCompiler.isUpToDate中检查 */
+		if (buffer.remaining() < LexiconCompiler.size(nodeCount, entryCount)) {
+			throw new IllegalArgumentException("truncated lexicon, " + buffer.remaining() + " bytes");
+		}
+		
+		int offset = LexiconCompiler.HEADER_SIZE;
+		weights = section(buffer, offset, 8 * entryCount).asDoubleBuffer();
+		offset += 8 * entryCount;
+		posPMIScores = section(buffer, offset, 8 * entryCount).asDoubleBuffer();
+		offset += 8 * entryCount;
+		negPMIScores = section(buffer, offset, 8 * entryCount).asDoubleBuffer();
+		offset += 8 * entryCount;
+		ByteBuffer edgeStart = section(buffer, offset, 4 * (nodeCount + 1));
+		offset += 4 * (nodeCount + 1);
+		ByteBuffer nodeEntries = section(buffer, offset, 4 * nodeCount);
+		offset += 4 * nodeCount;
+		ByteBuffer edgeLabels = section(buffer, offset, 2 * (nodeCount - 1));
+		offset += 2 * (nodeCount - 1);
+		types = section(buffer, offset, entryCount);
+		trie = new LexiconTrie(edgeStart.asIntBuffer(), edgeLabels.asCharBuffer(), nodeEntries.asIntBuffer());
+	}
+	
+	/**
+	 * 以只读方式映射LexiconCompiler编译好的词典文件
+	 * @param file
+	 * @return
+	 * @throws IOException 文件不存在、格式不对或者版本不匹配
+	 */
+	public static Lexicon load(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new Lexicon(buffer);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + ": " + e.getMessage());
+		} finally {
+			/* 关闭文件不影响已经建立的映射 */
+			raf.close();
+		}
+	}
+	
+	/**
+	 * 查找词的编号
+	 * @param word
+	 * @return 词典中不存在返回NOT_FOUND
+	 */
+	public int find(CharSequence word) {
+		return find(word, 0, word.length());
+	}
+	
+	/**
+	 * 查找text[start, end)的编号
+	 * @param text
+	 * @param start
+	 * @param end
+	 * @return 词典中不存在返回NOT_FOUND
+	 */
+	public int find(CharSequence text, int start, int end) {
+		int node = trie.walk(LexiconTrie.ROOT, text, start, end);
+		return node == LexiconTrie.NO_NODE ? NOT_FOUND : trie.entry(node);
+	}
+	
+	public WordType getType(int id) {
+		return TYPES[types.get(id)];
+	}
+	
+	public double getWeight(int id) {
+		return weights.get(id);
+	}
+	
+	public double getPosPMIScore(int id) {
+		return posPMIScores.get(id);
+	}
+	
+	public double getNegPMIScore(int id) {
+		return negPMIScores.get(id);
+	}
+	
+	/**
+	 * 查找词的编译结果，词典中不存在的词返回LexiconEntry.NEUTRAL
+	 * 每次命中都会创建新的LexiconEntry，打分时应使用find和按编号读取的方法
+	 * @param word
+	 * @return
+	 */
+	public LexiconEntry lookup(String word) {
+		int id = find(word);
+		if (id == NOT_FOUND) {
+			return LexiconEntry.NEUTRAL;
+		}
+		return new LexiconEntry(getType(id), getWeight(id), getPosPMIScore(id), getNegPMIScore(id));
+	}
+	
+	public LexiconTrie getTrie() {
+		return trie;
+	}
+	
+	/**
+	 * 在trie上建立的多模式匹配自动机，第一次调用时建立，之后共享
+	 * @return
+	 */
+	public LexiconAutomaton getAutomaton() {
+		LexiconAutomaton result = automaton;
+		if (result == null) {
+			synchronized (this) {
+				result = automaton;
+				if (result == null) {
+					result = new LexiconAutomaton(trie);
+					automaton = result;
+				}
+			}
+		}
+		return result;
+	}
+	
+	public long getVersion() {
+		return version;
+	}
+	
+	public int size() {
+		return entryCount;
+	}
+	
+	private static ByteBuffer section(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer section = buffer.duplicate();
+		section.position(buffer.position() + offset);
+		section.limit(buffer.position() + offset + length);
+		return section.slice().order(LexiconCompiler.ORDER);
+	}
+}
@@ -0,0 +1,99 @@
+package com.hot.cmt.comment.common;
+
+/**
+ * 在词典trie上建立的Aho-Corasick自动机
+ * 状态就是trie的节点，另外为每个节点保存失配链接和输出链接，一次从左到右扫描即可得到每个位置结束的所有词条，
+ * 不需要先分词。trie的节点按层次遍历编号，父节点总在子节点之前，按编号顺序一遍即可建立失配链接。
+ * 建立后只读，可以在多个线程间共享
+ * @author yongleixiao
+ *
+ */
+public class LexiconAutomaton {
+
+	private final LexiconTrie trie;
+	/* 失配链接：节点对应字符串的最长真后缀所在的节点 */
+	private final int[] fail;
+	/* 节点本身是词条时为自己，否则为失配链上第一个词条节点，没有为NO_NODE */
+	private final int[] output;
+	/* 词条节点的下一个更短的词条后缀，没有为NO_NODE */
+	private final int[] nextOutput;
+	/* 节点对应字符串的长度 */
+	private final int[] depth;
+
+	LexiconAutomaton(LexiconTrie trie) {
+		this.trie = trie;
+		int nodeCount = trie.nodeCount();
+		fail = new int[nodeCount];
+		output = new int[nodeCount];
+		nextOutput = new int[nodeCount];
+		depth = new int[nodeCount];
+		fail[LexiconTrie.ROOT] = LexiconTrie.ROOT;
+		output[LexiconTrie.ROOT] = LexiconTrie.NO_NODE;
+		nextOutput[LexiconTrie.ROOT] = LexiconTrie.NO_NODE;
+		for (int parent = 0; parent < nodeCount; parent++) {
+			int end = trie.firstChild(parent + 1);
+			for (int node = trie.firstChild(parent); node < end; node++) {
+				fail[node] = parent == LexiconTrie.ROOT ? LexiconTrie.ROOT : next(fail[parent], trie.label(node));
+				depth[node] = depth[parent] + 1;
+				int suffix = output[fail[node]];
+				output[node] = trie.entry(node) != Lexicon.NOT_FOUND ? node : suffix;
+				nextOutput[node] = suffix;
+			}
+		}
+	}
+
+	/**
+	 * 从state读入字符c后的状态，失配时沿失配链接回退
+	 * @param state
+	 * @param c
+	 * @return
+	 */
+	public int next(int state, char c) {
+		while (true) {
+			int child = trie.child(state, c);
+			if (child != LexiconTrie.NO_NODE) {
+				return child;
+			}
+			if (state == LexiconTrie.ROOT) {
+				return LexiconTrie.ROOT;
+			}
+			state = fail[state];
+		}
+	}
+
+	/**
+	 * 在state结束的最长词条所在的节点
+	 * @param state
+	 * @return 没有返回LexiconTrie.NO_NODE
+	 */
+	public int output(int state) {
+		return output[state];
+	}
+
+	/**
+	 * 词条节点之后下一个更短的、同样在此结束的词条节点
+	 * @param node output或者nextOutput返回的节点
+	 * @return 没有返回LexiconTrie.NO_NODE
+	 */
+	public int nextOutput(int node) {
+		return nextOutput[node];
+	}
+
+	/**
+	 * 节点对应的词条长度
+	 * @param node
+	 * @return
+	 */
+	public int depth(int node) {
+		return depth[node];
+	}
+
+	/**
+	 * 节点对应的词条编号
+	 * @param node
+	 * @return
+	 */
+	public int entry(int node) {
+		return trie.entry(node);
+	}
+}
@@ -0,0 +1,393 @@
+package com.hot.cmt.comment.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hot.cmt.comment.common.Constants.WordType;
+import com.hot.cmt.comment.util.AtomicFiles;
+
+/**
+ * 把文本词库和pmi分数编译成二进制词典
+ * 格式（小端）：
+ * <pre>
+ * int    magic, version, nodeCount, entryCount
+ * double normalWeight, commentWeight, normalSemanticWeight
+ * double weights[entryCount], posPMIScores[entryCount], negPMIScores[entryCount]
+ * int    edgeStart[nodeCount + 1], nodeEntries[nodeCount]
+ * char   edgeLabels[nodeCount - 1]
+ * byte   types[entryCount]
+ * </pre>
+ * trie节点按层次遍历编号，第j条边指向节点j+1，因此不需要单独存放边的目标节点；
+ * 词条按节点顺序编号。同一格式既可以在堆上构造，也可以写成文件后由Lexicon.load直接映射。
+ * 词条的权重由编译时的权重配置算出，配置记录在文件头中，与当前配置不同时编译文件视为过期
+ * @author yongleixiao
+ *
+ */
+public class LexiconCompiler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LexiconCompiler.class);
+
+	/* "SLEX" */
+	static final int MAGIC = 0x534c4558;
+
+	/* 格式变化时递增，旧文件需要重新编译 */
+	static final int FORMAT_VERSION = 2;
+
+	static final int HEADER_SIZE = 40;
+
+	static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/* 编译时读取的文本词库 */
+	private static final String[] SOURCE_FILES = {
+		Constants.TONE_WORDS_FILE, Constants.POS_SEN_DICT_FILE, Constants.POS_SEM_DICT_FILE,
+		Constants.POS_CON_DICT_FILE, Constants.NEG_SEN_DICT_FILE, Constants.NEG_SEM_DICT_FILE,
+		Constants.NEG_CON_DICT_FILE, Constants.STOP_WORDS_FILE, Constants.POS_PMI_SCORE_FILE,
+		Constants.NEG_PMI_SCORE_FILE
+	};
+
+	/* 中性词pmi分数比例的判定阈值 */
+	private static final double PMI_RATIO_THRESHOLD = 0.68D;
+
+	private LexiconCompiler() {
+	}
+
+	/**
+	 * 在堆上编译，pmi分数仍在后台加载时等待加载完成
+	 * @param loader
+	 * @return 编译结果，position为0
+	 */
+	public static ByteBuffer compile(TrendencyWordsLoader loader) {
+		return compile(loader, true);
+	}
+
+	/**
+	 * 在堆上编译
+	 * @param loader
+	 * @param withPMI 为false时只编译词性词库，不包含中性词，所有词的pmi分数为0，不等待pmi分数加载
+	 * @return 编译结果，position为0
+	 */
+	public static ByteBuffer compile(TrendencyWordsLoader loader, boolean withPMI) {
+		BuildNode root = new BuildNode();
+		int nodeCount = 1;
+		for (Map.Entry<String, LexiconEntry> entry : mergeWords(loader, withPMI).entrySet()) {
+			String word = entry.getKey();
+			BuildNode node = root;
+			for (int i = 0; i < word.length(); i++) {
+				Character c = word.charAt(i);
+				BuildNode child = node.children.get(c);
+				if (child == null) {
+					child = new BuildNode();
+					node.children.put(c, child);
+					nodeCount++;
+				}
+				node = child;
+			}
+			node.entry = entry.getValue();
+		}
+
+		int[] edgeStart = new int[nodeCount + 1];
+		int[] nodeEntries = new int[nodeCount];
+		char[] edgeLabels = new char[nodeCount - 1];
+		LexiconEntry[] entries = new LexiconEntry[nodeCount];
+		int entryCount = 0;
+
+		Queue<BuildNode> queue = new ArrayDeque<BuildNode>();
+		queue.add(root);
+		int nodeId = 0;
+		int nextId = 1;
+		while (!queue.isEmpty()) {
+			BuildNode node = queue.poll();
+			if (node.entry == null) {
+				nodeEntries[nodeId] = Lexicon.NOT_FOUND;
+			} else {
+				nodeEntries[nodeId] = entryCount;
+				entries[entryCount++] = node.entry;
+			}
+			edgeStart[nodeId] = nextId - 1;
+			for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+				edgeLabels[nextId - 1] = child.getKey();
+				queue.add(child.getValue());
+				nextId++;
+			}
+			nodeId++;
+		}
+		edgeStart[nodeCount] = nodeCount - 1;
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size(nodeCount, entryCount)).order(ORDER);
+		buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(nodeCount).putInt(entryCount);
+		for (double parameter : weightParameters()) {
+			buffer.putDouble(parameter);
+		}
+		for (int i = 0; i < entryCount; i++) {
+			buffer.putDouble(entries[i].getWeight());
+		}
+		for (int i = 0; i < entryCount; i++) {
+			buffer.putDouble(entries[i].getPosPMIScore());
+		}
+		for (int i = 0; i < entryCount; i++) {
+			buffer.putDouble(entries[i].getNegPMIScore());
+		}
+		for (int start : edgeStart) {
+			buffer.putInt(start);
+		}
+		for (int entry : nodeEntries) {
+			buffer.putInt(entry);
+		}
+		for (char label : edgeLabels) {
+			buffer.putChar(label);
+		}
+		for (int i = 0; i < entryCount; i++) {
+			buffer.put((byte) entries[i].getType().ordinal());
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * 编译并写入文件
+	 * 先写临时文件再原子替换，已经映射旧文件的Lexicon不受影响
+	 * @param loader
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void compile(TrendencyWordsLoader loader, File file) throws IOException {
+		AtomicFiles.write(file, compile(loader));
+	}
+	
+	/**
+	 * 当前配置中决定词条权重的参数，按文件头中的顺序
+	 * @return
+	 */
+	static double[] weightParameters() {
+		return new double[] {Constants.NORMAL_WEIGHT, Constants.COMMENT_WEIGHT, Constants.NORMAL_SEMANTIC_WEIGHT};
+	}
+
+	/**
+	 * 词库目录下编译好的二进制词典
+	 * @param wordPath
+	 * @return
+	 */
+	public static File compiledFile(String wordPath) {
+		return new File(wordPath + Constants.LEXICON_FILE);
+	}
+
+	/**
+	 * 编译好的文件是否存在、格式版本和权重配置与当前一致，并且不早于词库目录下的任何一个文本词库
+	 * @param compiled
+	 * @param wordPath
+	 * @return
+	 */
+	public static boolean isUpToDate(File compiled, String wordPath) {
+		if (!compiled.isFile()) {
+			return false;
+		}
+		long compiledTime = compiled.lastModified();
+		for (String name : SOURCE_FILES) {
+			if (new File(wordPath + name).lastModified() > compiledTime) {
+				return false;
+			}
+		}
+		return hasCurrentHeader(compiled);
+	}
+	
+	/**
+	 * 文件头中的格式版本和权重配置是否与当前一致
+	 * @param compiled
+	 * @return 读取失败时为false
+	 */
+	private static boolean hasCurrentHeader(File compiled) {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ORDER);
+		try {
+			RandomAccessFile raf = new RandomAccessFile(compiled, "r");
+			try {
+				while (header.hasRemaining() && raf.getChannel().read(header) >= 0) {
+				}
+			} finally {
+				raf.close();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+		if (header.hasRemaining()) {
+			return false;
+		}
+		header.flip();
+		if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+			return false;
+		}
+		header.position(16);
+		double[] parameters = new double[3];
+		for (int i = 0; i < parameters.length; i++) {
+			parameters[i] = header.getDouble();
+		}
+		return Arrays.equals(parameters, weightParameters());
+	}
+
+	/**
+	 * 词库目录下文本词库和编译文件最新的修改时间，用于发现词库变化
+	 * @param wordPath
+	 * @return
+	 */
+	public static long lastModified(String wordPath) {
+		long modified = compiledFile(wordPath).lastModified();
+		for (String name : SOURCE_FILES) {
+			modified = Math.max(modified, new File(wordPath + name).lastModified());
+		}
+		return modified;
+	}
+
+	/**
+	 * 映射词库目录下编译好的二进制词典
+	 * @param wordPath
+	 * @return 文件不存在、已过期或者无法读取时返回null
+	 */
+	static Lexicon loadCompiled(String wordPath) {
+		if (wordPath == null) {
+			return null;
+		}
+		File file = compiledFile(wordPath);
+		if (!file.exists()) {
+			return null;
+		}
+		if (!isUpToDate(file, wordPath)) {
+			LOGGER.warn("compiled lexicon {} is older than the word files or was compiled with other weights, ignored", file);
+			return null;
+		}
+		try {
+			return Lexicon.load(file);
+		} catch (IOException e) {
+			LOGGER.warn("compiled lexicon " + file + " can not be loaded, ignored", e);
+			return null;
+		}
+	}
+
+	/**
+	 * 二进制词典的总字节数
+	 * @param nodeCount
+	 * @param entryCount
+	 * @return
+	 */
+	static long size(int nodeCount, int entryCount) {
+		return HEADER_SIZE + 24L * entryCount + 4L * (nodeCount + 1) + 4L * nodeCount
+				+ 2L * (nodeCount - 1) + entryCount;
+	}
+
+	/**
+	 * 按原来的判断顺序合并词库：正例情感词、正例扩展词、正例评价词、负例情感词、负例扩展词、
+	 * 负例评价词、语气词、停用词，先出现的词性优先；其余有pmi分数的词作为中性词
+	 * @param loader
+	 * @param withPMI
+	 * @return
+	 */
+	private static Map<String, LexiconEntry> mergeWords(TrendencyWordsLoader loader, boolean withPMI) {
+		Map<String, LexiconEntry> results = new HashMap<String, LexiconEntry>();
+		PMIScoreTable pmiScores = withPMI ? loader.getPMIScores() : new PMIScoreTable(0);
+
+		addWords(results, loader.getPosSenWordsMap().keySet(), WordType.POS, pmiScores);
+		addWords(results, loader.getPosSemWordsMap().keySet(), WordType.POS_SEM, pmiScores);
+		addWords(results, loader.getPosCommentWordsMap().keySet(), WordType.POS_COMMENT, pmiScores);
+		addWords(results, loader.getNegSenWordsMap().keySet(), WordType.NEG, pmiScores);
+		addWords(results, loader.getNegSemWordsMap().keySet(), WordType.NEG_SEM, pmiScores);
+		addWords(results, loader.getNegCommentWordsMap().keySet(), WordType.NEG_COMMENT, pmiScores);
+		addWords(results, loader.getToneWords(), WordType.TONE, pmiScores);
+		addWords(results, loader.getStopWords(), WordType.STOP_WORD, pmiScores);
+		/* 其余有pmi分数的词 */
+		for (int i = 0; i < pmiScores.size(); i++) {
+			addWord(results, pmiScores.word(i), WordType.NEUTRAL_WORD, 
+					pmiScores.getPosScore(i), pmiScores.getNegScore(i));
+		}
+		return results;
+	}
+
+	private static void addWords(Map<String, LexiconEntry> results, Collection<String> words,
+			WordType type, PMIScoreTable pmiScores) {
+		for (String word : words) {
+			int index = pmiScores.find(word);
+			if (index == PMIScoreTable.NOT_FOUND) {
+				addWord(results, word, type, 0.0D, 0.0D);
+			} else {
+				addWord(results, word, type, pmiScores.getPosScore(index), pmiScores.getNegScore(index));
+			}
+		}
+	}
+
+	private static void addWord(Map<String, LexiconEntry> results, String word, WordType type,
+			double posPMIScore, double negPMIScore) {
+		if (results.containsKey(word)) {
+			return;
+		}
+		double weight = getStaticWeight(type, posPMIScore, negPMIScore);
+		results.put(word, new LexiconEntry(type, weight, posPMIScore, negPMIScore));
+	}
+
+	/**
+	 * 词的静态权重，中性词按照与正负例情感词的pmi分数折算
+	 * @param type
+	 * @param posPMIScore
+	 * @param negPMIScore
+	 * @return
+	 */
+	static double getStaticWeight(WordType type, double posPMIScore, double negPMIScore) {
+		switch (type) {
+			case POS:
+			case NEG:
+				return Constants.NORMAL_WEIGHT;
+			case POS_SEM:
+			case NEG_SEM:
+				return Constants.NORMAL_SEMANTIC_WEIGHT;
+			case POS_COMMENT:
+			case NEG_COMMENT:
+				return Constants.COMMENT_WEIGHT;
+			case NEUTRAL_WORD:
+				if (posPMIScore == 0.0D) {
+					return -Constants.NORMAL_WEIGHT * negPMIScore;
+				}
+				if (negPMIScore == 0.0D) {
+					return Constants.NORMAL_WEIGHT * posPMIScore;
+				}
+				if (posPMIScore/negPMIScore < PMI_RATIO_THRESHOLD) {
+					return -Constants.NORMAL_WEIGHT * (negPMIScore - posPMIScore);
+				}
+				if (negPMIScore/posPMIScore < PMI_RATIO_THRESHOLD) {
+					return Constants.NORMAL_WEIGHT * (posPMIScore - negPMIScore);
+				}
+				return 0.0D;
+			default:
+				return 0.0D;
+		}
+	}
+
+	private static class BuildNode {
+		TreeMap<Character, BuildNode> children = new TreeMap<Character, BuildNode>();
+		LexiconEntry entry;
+	}
+
+	/**
+	 * 用法：LexiconCompiler [词库目录] [输出文件]
+	 * 词库目录默认为配置中的Word_Path，输出文件默认为词库目录下的Lexicon_File
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		String wordPath = args.length > 0 ? args[0] : Constants.WORD_PATH;
+		File file = args.length > 1 ? new File(args[1]) : compiledFile(wordPath);
+		long start = System.currentTimeMillis();
+		TrendencyWordsLoader loader = new TrendencyWordsLoader(wordPath);
+		compile(loader, file);
+		LOGGER.info("compiled lexicon from {} to {}, {} bytes, cost {}ms",
+				wordPath, file, file.length(), System.currentTimeMillis() - start);
+	}
+}
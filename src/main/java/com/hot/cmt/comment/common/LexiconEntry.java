@@ -0,0 +1,53 @@
+package com.hot.cmt.comment.common;
+
+import com.hot.cmt.comment.common.Constants.WordType;
+
+/**
+ * 词典中一个词的编译结果：词性、静态权重以及与正负例情感词的pmi分数
+ * 一次查找即可拿到打分需要的全部信息
+ * @author yongleixiao
+ *
+ */
+public class LexiconEntry {
+
+	/* 词典中不存在的词，按中性词处理，权重为0 */
+	public static final LexiconEntry NEUTRAL = new LexiconEntry(WordType.NEUTRAL_WORD, 0.0D, 0.0D, 0.0D);
+	
+	private final WordType type;
+	private final double weight;
+	private final double posPMIScore;
+	private final double negPMIScore;
+	
+	public LexiconEntry(WordType type, double weight, double posPMIScore, double negPMIScore) {
+		this.type = type;
+		this.weight = weight;
+		this.posPMIScore = posPMIScore;
+		this.negPMIScore = negPMIScore;
+	}
+	
+	public WordType getType() {
+		return type;
+	}
+	
+	/**
+	 * 词的权重，情感词、评价词为对应的默认权重
+	 * 中性词为pmi分数折算的权重，小于0表示偏向负例
+	 * @return
+	 */
+	public double getWeight() {
+		return weight;
+	}
+	
+	public double getPosPMIScore() {
+		return posPMIScore;
+	}
+	
+	public double getNegPMIScore() {
+		return negPMIScore;
+	}
+	
+	@Override
+	public String toString() {
+		return "LexiconEntry[type=" + type + ", weight=" + weight + "]";
+	}
+}
@@ -0,0 +1,330 @@
+package com.hot.cmt.comment.common;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 进程内共享的词库
+ * 同一个词库目录在一个JVM中只加载、编译一次，所有Classifier引用同一个ReloadableLexicon，
+ * PMIGenerator引用同一个TrendencyWordsLoader。acquire时加载并增加引用计数，release时减少，
+ * 计数归零后释放对应的对象，下次acquire重新加载。
+ * 词库目录下有LexiconCompiler编译好并且不过期的二进制词典时直接映射，不再解析文本词库。
+ * 配置了Lexicon_Reload_Seconds时，被引用期间监视词库目录，文件变化后热加载。
+ * 全局锁只保护映射和引用计数，加载词库不持有锁，不同目录可以同时加载
+ * @author yongleixiao
+ *
+ */
+public final class LexiconRegistry {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LexiconRegistry.class);
+	
+	/* 词库目录到共享词库的映射 */
+	private static final Map<String, Holder> HOLDERS = new HashMap<String, Holder>();
+	
+	private LexiconRegistry() {
+	}
+	
+	/**
+	 * 引用配置中的词库目录编译出的词典
+	 * @return
+	 */
+	public static ReloadableLexicon acquire() {
+		return acquire(Constants.WORD_PATH);
+	}
+	
+	/**
+	 * 引用指定词库目录编译出的词典，第一次引用时映射编译好的文件，没有可用的文件时加载并编译
+	 * 加载在调用线程中进行，不持有全局锁；同一个目录同时acquire时只加载一次，其余线程等待结果
+	 * @param wordPath
+	 * @return
+	 * @throws IllegalStateException 加载失败，下次acquire重新加载
+	 */
+	public static ReloadableLexicon acquire(final String wordPath) {
+		final Holder holder;
+		FutureTask<ReloadableLexicon> task;
+		boolean owner = false;
+		synchronized (LexiconRegistry.class) {
+			holder = holder(wordPath);
+			/* 先增加计数，加载期间holder不会被移除 */
+			holder.lexiconRefs++;
+			if (holder.lexiconTask == null) {
+				holder.lexiconTask = new FutureTask<ReloadableLexicon>(new Callable<ReloadableLexicon>() {
+					public ReloadableLexicon call() {
+						return load(wordPath, holder);
+					}
+				});
+				owner = true;
+			}
+			task = holder.lexiconTask;
+		}
+		if (owner) {
+			task.run();
+		}
+		try {
+			ReloadableLexicon lexicon = await(task);
+			synchronized (LexiconRegistry.class) {
+				if (holder.lexicon == null) {
+					holder.lexicon = lexicon;
+					holder.trim();
+				}
+			}
+			return lexicon;
+		} catch (RuntimeException e) {
+			synchronized (LexiconRegistry.class) {
+				holder.lexiconRefs--;
+				if (holder.lexiconTask == task) {
+					holder.lexiconTask = null;
+				}
+				evict(holder);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * 映射或者编译词典，在第一个acquire的线程中执行
+	 */
+	private static ReloadableLexicon load(String wordPath, Holder holder) {
+		long start = System.currentTimeMillis();
+		long modified = LexiconCompiler.lastModified(wordPath);
+		Lexicon lexicon = LexiconCompiler.loadCompiled(wordPath);
+		TrendencyWordsLoader loader = null;
+		boolean partial = false;
+		if (lexicon != null) {
+			LOGGER.info("lexicon mapped, word_path = {}, size = {}, cost = {}ms", 
+					wordPath, lexicon.size(), System.currentTimeMillis() - start);
+		} else {
+			loader = awaitLoader(holder);
+			/* 原始词库可能已经由更早的acquireWords加载 */
+			modified = holder.loaderModified;
+			if (loader.isPMILoaded()) {
+				lexicon = new Lexicon(loader);
+				LOGGER.info("lexicon compiled, word_path = {}, size = {}, cost = {}ms", 
+						wordPath, lexicon.size(), System.currentTimeMillis() - start);
+			} else {
+				lexicon = new Lexicon(LexiconCompiler.compile(loader, false));
+				partial = true;
+				LOGGER.info("lexicon compiled without pmi scores, word_path = {}, size = {}, cost = {}ms", 
+						wordPath, lexicon.size(), System.currentTimeMillis() - start);
+			}
+		}
+		ReloadableLexicon reloadable = new ReloadableLexicon(wordPath, lexicon, modified);
+		if (partial) {
+			reloadable.completeInBackground(lexicon, loader);
+		}
+		if (Constants.LEXICON_RELOAD_SECONDS > 0 && wordPath != null) {
+			reloadable.startWatching(Constants.LEXICON_RELOAD_SECONDS, TimeUnit.SECONDS);
+		}
+		return reloadable;
+	}
+	
+	/**
+	 * 引用配置中的词库目录加载出的原始词库
+	 * @return
+	 */
+	public static TrendencyWordsLoader acquireWords() {
+		return acquireWords(Constants.WORD_PATH);
+	}
+	
+	/**
+	 * 引用指定词库目录加载出的原始词库，供需要分别访问各个词库的PMIGenerator使用
+	 * 与acquire一样在调用线程中加载，不持有全局锁
+	 * @param wordPath
+	 * @return
+	 * @throws IllegalStateException 加载失败
+	 */
+	public static TrendencyWordsLoader acquireWords(String wordPath) {
+		Holder holder;
+		synchronized (LexiconRegistry.class) {
+			holder = holder(wordPath);
+			holder.wordsRefs++;
+		}
+		try {
+			return awaitLoader(holder);
+		} catch (RuntimeException e) {
+			synchronized (LexiconRegistry.class) {
+				holder.wordsRefs--;
+				evict(holder);
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * 词库目录的原始词库，没有时在当前线程中加载，其他线程等待
+	 * 调用方要持有holder的引用计数
+	 */
+	private static TrendencyWordsLoader awaitLoader(final Holder holder) {
+		FutureTask<TrendencyWordsLoader> task;
+		boolean owner = false;
+		synchronized (LexiconRegistry.class) {
+			if (holder.loaderTask == null) {
+				holder.loaderTask = new FutureTask<TrendencyWordsLoader>(new Callable<TrendencyWordsLoader>() {
+					public TrendencyWordsLoader call() {
+						holder.loaderModified = LexiconCompiler.lastModified(holder.wordPath);
+						return new TrendencyWordsLoader(holder.wordPath, Constants.LEXICON_LAZY_PMI);
+					}
+				});
+				owner = true;
+			}
+			task = holder.loaderTask;
+		}
+		if (owner) {
+			task.run();
+		}
+		try {
+			return await(task);
+		} catch (RuntimeException e) {
+			synchronized (LexiconRegistry.class) {
+				if (holder.loaderTask == task) {
+					holder.loaderTask = null;
+				}
+			}
+			throw e;
+		}
+	}
+	
+	/**
+	 * 等待加载完成，中断时继续等待并保留中断状态
+	 * @param task
+	 * @return
+	 */
+	private static <T> T await(FutureTask<T> task) {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException("load lexicon failed", cause);
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * 释放对词典的引用
+	 * @param lexicon
+	 */
+	public static synchronized void release(ReloadableLexicon lexicon) {
+		for (Holder holder : HOLDERS.values()) {
+			if (holder.lexicon == lexicon && holder.lexiconRefs > 0) {
+				if (--holder.lexiconRefs == 0) {
+					holder.lexicon.stopWatching();
+					holder.lexicon = null;
+					holder.lexiconTask = null;
+				}
+				evict(holder);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * 释放对原始词库的引用
+	 * @param loader
+	 */
+	public static synchronized void release(TrendencyWordsLoader loader) {
+		for (Holder holder : HOLDERS.values()) {
+			if (loader != null && holder.loader() == loader && holder.wordsRefs > 0) {
+				holder.wordsRefs--;
+				holder.trim();
+				evict(holder);
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * 当前被引用的词库目录数
+	 * @return
+	 */
+	public static synchronized int size() {
+		return HOLDERS.size();
+	}
+	
+	private static Holder holder(String wordPath) {
+		String key = String.valueOf(wordPath);
+		Holder holder = HOLDERS.get(key);
+		if (holder == null) {
+			holder = new Holder(wordPath);
+			HOLDERS.put(key, holder);
+		}
+		return holder;
+	}
+	
+	private static void evict(Holder holder) {
+		if (holder.lexiconRefs == 0 && holder.wordsRefs == 0) {
+			String key = String.valueOf(holder.wordPath);
+			HOLDERS.remove(key);
+			LOGGER.info("lexicon released, word_path = {}", key);
+		}
+	}
+	
+	/**
+	 * 一个词库目录对应的共享对象，字段在LexiconRegistry.class的锁中访问；
+	 * 加载由FutureTask在第一个引用的线程中进行，不持有锁
+	 */
+	private static class Holder {
+		final String wordPath;
+		FutureTask<TrendencyWordsLoader> loaderTask;
+		/* 加载原始词库之前的修改时间，在loaderTask中写入，等待loaderTask完成后读取 */
+		volatile long loaderModified;
+		FutureTask<ReloadableLexicon> lexiconTask;
+		/* lexiconTask完成后的结果，release时按它查找 */
+		ReloadableLexicon lexicon;
+		int lexiconRefs = 0;
+		int wordsRefs = 0;
+		
+		Holder(String wordPath) {
+			this.wordPath = wordPath;
+		}
+		
+		/**
+		 * 已经加载完成的原始词库
+		 * @return 没有或者还在加载时返回null
+		 */
+		TrendencyWordsLoader loader() {
+			if (loaderTask == null || !loaderTask.isDone()) {
+				return null;
+			}
+			try {
+				return loaderTask.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			} catch (ExecutionException e) {
+				return null;
+			}
+		}
+		
+		/**
+		 * 词典已经编译并且没有PMIGenerator引用时，不再保留原始词库
+		 */
+		void trim() {
+			if (wordsRefs == 0 && lexicon != null && (loaderTask == null || loaderTask.isDone())) {
+				loaderTask = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package com.hot.cmt.comment.common;
+
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * 由词典所有词条编译出的字符trie
+ * 节点按层次遍历编号，子节点的边按字符排序后连续存放，查找子节点时二分，第j条边指向节点j+1，
+ * 这样可以跨越多个分词结果连续匹配，不需要拼接字符串。数据直接读取Lexicon的缓冲区，
+ * 词典从文件映射时不占用堆内存。只读，可以在多个线程间共享
+ * @author yongleixiao
+ *
+ */
+public class LexiconTrie {
+
+	/* 不存在的节点 */
+	public static final int NO_NODE = -1;
+	
+	/* 根节点 */
+	public static final int ROOT = 0;
+	
+	/* 节点i的边为[edgeStart[i], edgeStart[i+1]) */
+	private final IntBuffer edgeStart;
+	private final CharBuffer edgeLabels;
+	/* 节点对应的词条编号，不是完整词的节点为Lexicon.NOT_FOUND */
+	private final IntBuffer nodeEntries;
+	
+	/**
+	 * 在编译好的缓冲区上建立视图，不复制数据
+	 * @param edgeStart
+	 * @param edgeLabels
+	 * @param nodeEntries
+	 */
+	public LexiconTrie(IntBuffer edgeStart, CharBuffer edgeLabels, IntBuffer nodeEntries) {
+		this.edgeStart = edgeStart;
+		this.edgeLabels = edgeLabels;
+		this.nodeEntries = nodeEntries;
+	}
+	
+	/**
+	 * 从node出发沿字符c走一步
+	 * @param node
+	 * @param c
+	 * @return 子节点，不存在返回NO_NODE
+	 */
+	public int child(int node, char c) {
+		int low = edgeStart.get(node);
+		int high = edgeStart.get(node + 1) - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char label = edgeLabels.get(mid);
+			if (label < c) {
+				low = mid + 1;
+			} else if (label > c) {
+				high = mid - 1;
+			} else {
+				return mid + 1;
+			}
+		}
+		return NO_NODE;
+	}
+	
+	/**
+	 * 从node出发依次走过text[start, end)中的字符
+	 * @param node
+	 * @param text
+	 * @param start
+	 * @param end
+	 * @return 到达的节点，中途失配返回NO_NODE
+	 */
+	public int walk(int node, CharSequence text, int start, int end) {
+		for (int i = start; i < end && node != NO_NODE; i++) {
+			node = child(node, text.charAt(i));
+		}
+		return node;
+	}
+	
+	/**
+	 * 节点对应的词条编号
+	 * @param node
+	 * @return 不是完整的词返回Lexicon.NOT_FOUND
+	 */
+	public int entry(int node) {
+		return nodeEntries.get(node);
+	}
+	
+	/**
+	 * 节点的第一个子节点，子节点按字符排序后连续编号，node的子节点为[firstChild(node), firstChild(node + 1))
+	 * @param node
+	 * @return
+	 */
+	public int firstChild(int node) {
+		return edgeStart.get(node) + 1;
+	}
+	
+	/**
+	 * 从父节点到node的边上的字符
+	 * @param node 不能是根节点
+	 * @return
+	 */
+	public char label(int node) {
+		return edgeLabels.get(node - 1);
+	}
+	
+	public int nodeCount() {
+		return nodeEntries.capacity();
+	}
+}
@@ -0,0 +1,231 @@
+package com.hot.cmt.comment.common;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 词与正负例情感词的pmi分数
+ * 词通过Vocabulary映射为下标，正负例分数按下标存放在double数组中，一次查找同时得到两个分数，
+ * 不装箱，也没有HashMap的Entry对象。加载完成后只读，可以在多个线程间共享
+ * @author yongleixiao
+ *
+ */
+public class PMIScoreTable {
+
+	/* 不存在的词 */
+	public static final int NOT_FOUND = Vocabulary.UNKNOWN;
+	
+	private static final byte HAS_POS = 1;
+	private static final byte HAS_NEG = 2;
+	
+	/* 估算内存时使用的对象大小，按64位JVM开启指针压缩计算 */
+	private static final int REFERENCE_BYTES = 4;
+	private static final int HASHMAP_ENTRY_BYTES = 32;
+	private static final int DOUBLE_BYTES = 16;
+	
+	private final Vocabulary words;
+	private double[] posScores;
+	private double[] negScores;
+	/* 每个词是否有正例、负例分数 */
+	private byte[] flags;
+	/* 有正例、负例分数的词数 */
+	private int posCount = 0;
+	private int negCount = 0;
+	
+	public PMIScoreTable() {
+		this(1024);
+	}
+	
+	/**
+	 * @param expectedSize 预计的词数
+	 */
+	public PMIScoreTable(int expectedSize) {
+		int capacity = Math.max(expectedSize, 8);
+		words = new Vocabulary(capacity);
+		posScores = new double[capacity];
+		negScores = new double[capacity];
+		flags = new byte[capacity];
+	}
+	
+	/**
+	 * 设置词的正例pmi分数，已经存在时覆盖
+	 * @param word
+	 * @param score
+	 */
+	public void putPosScore(String word, double score) {
+		int index = indexFor(word);
+		posScores[index] = score;
+		if ((flags[index] & HAS_POS) == 0) {
+			flags[index] |= HAS_POS;
+			posCount++;
+		}
+	}
+	
+	/**
+	 * 设置词的负例pmi分数，已经存在时覆盖
+	 * @param word
+	 * @param score
+	 */
+	public void putNegScore(String word, double score) {
+		int index = indexFor(word);
+		negScores[index] = score;
+		if ((flags[index] & HAS_NEG) == 0) {
+			flags[index] |= HAS_NEG;
+			negCount++;
+		}
+	}
+	
+	/**
+	 * 把other中的分数合并进来，同一个词的同一种分数以other为准
+	 * @param other
+	 */
+	public void putAll(PMIScoreTable other) {
+		for (int i = 0; i < other.size(); i++) {
+			if (other.hasPosScore(i)) {
+				putPosScore(other.word(i), other.posScores[i]);
+			}
+			if (other.hasNegScore(i)) {
+				putNegScore(other.word(i), other.negScores[i]);
+			}
+		}
+	}
+	
+	/**
+	 * 词的下标
+	 * @param word
+	 * @return 不存在返回NOT_FOUND
+	 */
+	public int find(String word) {
+		return words.find(word);
+	}
+	
+	public String word(int index) {
+		return words.word(index);
+	}
+	
+	public boolean hasPosScore(int index) {
+		return (flags[index] & HAS_POS) != 0;
+	}
+	
+	public boolean hasNegScore(int index) {
+		return (flags[index] & HAS_NEG) != 0;
+	}
+	
+	/**
+	 * @param index
+	 * @return 没有正例分数时为0
+	 */
+	public double getPosScore(int index) {
+		return posScores[index];
+	}
+	
+	/**
+	 * @param index
+	 * @return 没有负例分数时为0
+	 */
+	public double getNegScore(int index) {
+		return negScores[index];
+	}
+	
+	public double getPosScore(String word) {
+		int index = find(word);
+		return index == NOT_FOUND ? 0.0D : posScores[index];
+	}
+	
+	public double getNegScore(String word) {
+		int index = find(word);
+		return index == NOT_FOUND ? 0.0D : negScores[index];
+	}
+	
+	/**
+	 * 词数，下标范围为[0, size)
+	 * @return
+	 */
+	public int size() {
+		return words.size();
+	}
+	
+	public int getPosCount() {
+		return posCount;
+	}
+	
+	public int getNegCount() {
+		return negCount;
+	}
+	
+	/**
+	 * 正例分数的Map形式，每次调用都创建新的Map，只用于兼容
+	 * @return
+	 */
+	public Map<String, Double> toPosScoreMap() {
+		Map<String, Double> results = new HashMap<String, Double>(posCount * 4 / 3 + 1);
+		for (int i = 0; i < size(); i++) {
+			if (hasPosScore(i)) {
+				results.put(word(i), posScores[i]);
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 负例分数的Map形式，每次调用都创建新的Map，只用于兼容
+	 * @return
+	 */
+	public Map<String, Double> toNegScoreMap() {
+		Map<String, Double> results = new HashMap<String, Double>(negCount * 4 / 3 + 1);
+		for (int i = 0; i < size(); i++) {
+			if (hasNegScore(i)) {
+				results.put(word(i), negScores[i]);
+			}
+		}
+		return results;
+	}
+	
+	/**
+	 * 估算占用的堆内存，不含词本身的字符
+	 * @return
+	 */
+	public long footprintBytes() {
+		return words.footprintBytes() + 8L * posScores.length + 8L * negScores.length + flags.length;
+	}
+	
+	/**
+	 * 估算同样的数据用两个HashMap&lt;String, Double&gt;保存时占用的堆内存，不含词本身
+	 * @return
+	 */
+	public long hashMapFootprintBytes() {
+		return mapFootprint(posCount) + mapFootprint(negCount);
+	}
+	
+	/**
+	 * 内存占用报告
+	 * @return
+	 */
+	public String footprint() {
+		return "pmi scores: words = " + size() + ", pos = " + posCount + ", neg = " + negCount 
+				+ ", table = " + footprintBytes() / 1024 + "KB, as two HashMaps = " 
+				+ hashMapFootprintBytes() / 1024 + "KB (excluding word strings)";
+	}
+	
+	private static long mapFootprint(int entries) {
+		long buckets = Integer.highestOneBit(Math.max(entries * 4 / 3, 1)) * 2L;
+		return buckets * REFERENCE_BYTES + (long) entries * (HASHMAP_ENTRY_BYTES + DOUBLE_BYTES);
+	}
+	
+	private int indexFor(String word) {
+		int index = words.intern(word);
+		if (index == posScores.length) {
+			int capacity = index * 2;
+			posScores = Arrays.copyOf(posScores, capacity);
+			negScores = Arrays.copyOf(negScores, capacity);
+			flags = Arrays.copyOf(flags, capacity);
+		}
+		return index;
+	}
+	
+	@Override
+	public String toString() {
+		return footprint();
+	}
+}
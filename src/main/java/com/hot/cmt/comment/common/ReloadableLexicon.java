@@ -0,0 +1,220 @@
+package com.hot.cmt.comment.common;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hot.cmt.comment.common.TrendencyWordsLoader.FileLoad;
+
+/**
+ * 可以热加载的词典
+ * 持有当前词典的快照，重新加载时在调用线程（或者监视线程）中完整构造新的Lexicon后原子替换，
+ * 打分线程每次调用只读取一次快照，不加锁，不会看到加载了一半的词典；替换前已经开始的调用继续使用旧快照。
+ * 监视线程按固定间隔检查词库目录下文本词库和编译文件的修改时间，修改时间连续两次检查不变后才加载，
+ * 避免读到正在写入的文件。有词库文件读取出错，或者新词典的条数比原来少很多时，不替换原来的快照
+ * @author yongleixiao
+ *
+ */
+public class ReloadableLexicon {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ReloadableLexicon.class);
+	
+	/* 为null时词典固定，不能重新加载 */
+	private final String wordPath;
+	private final AtomicReference<Lexicon> current;
+	private final AtomicLong reloadCount = new AtomicLong();
+	/* 串行化重新加载，打分线程不会进入 */
+	private final Object reloadLock = new Object();
+	/* 当前快照对应的词库修改时间 */
+	private volatile long loadedModified;
+	/* 监视线程上一次看到的修改时间 */
+	private long pendingModified;
+	private ScheduledExecutorService watchExecutor = null;
+	
+	/**
+	 * 固定的词典，不能重新加载
+	 * @param lexicon
+	 */
+	public ReloadableLexicon(Lexicon lexicon) {
+		this.wordPath = null;
+		this.current = new AtomicReference<Lexicon>(lexicon);
+	}
+	
+	/**
+	 * 从词库目录加载，优先映射编译好的二进制词典
+	 * @param wordPath
+	 */
+	public ReloadableLexicon(String wordPath) {
+		/* 参数先于构造方法体求值，修改时间在加载之前取得 */
+		this(wordPath, null, LexiconCompiler.lastModified(wordPath));
+	}
+	
+	/**
+	 * 使用已经从wordPath加载好的词典作为初始快照
+	 * 修改时间必须在加载之前取得，加载期间被修改的文件在下次检查时重新加载；
+	 * 在加载之后取得会把加载期间的修改当作已经加载过
+	 * @param wordPath
+	 * @param initial 为null时从词库目录加载
+	 * @param loadedModified 加载initial之前由LexiconCompiler.lastModified取得的修改时间
+	 */
+	public ReloadableLexicon(String wordPath, Lexicon initial, long loadedModified) {
+		this.wordPath = wordPath;
+		this.loadedModified = loadedModified;
+		this.pendingModified = loadedModified;
+		this.current = new AtomicReference<Lexicon>(initial == null ? load(wordPath) : initial);
+	}
+	
+	/**
+	 * 当前的词典快照，一次打分应只读取一次
+	 * @return
+	 */
+	public Lexicon get() {
+		return current.get();
+	}
+	
+	public String getWordPath() {
+		return wordPath;
+	}
+	
+	public long getReloadCount() {
+		return reloadCount.get();
+	}
+	
+	/**
+	 * 当前快照是只包含词性词库的临时词典时，在后台等待loader的pmi分数加载完成，
+	 * 编译完整的词典并替换；期间如果已经重新加载过则不再替换
+	 * @param partial 由loader的词性词库编译出的当前快照
+	 * @param loader pmi分数仍在后台加载
+	 */
+	void completeInBackground(final Lexicon partial, final TrendencyWordsLoader loader) {
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					loader.awaitPMIScores();
+					long start = System.currentTimeMillis();
+					Lexicon full = new Lexicon(loader);
+					if (current.compareAndSet(partial, full)) {
+						LOGGER.info("lexicon completed with pmi scores, word_path = {}, size = {} -> {}, cost = {}ms", 
+								wordPath, partial.size(), full.size(), System.currentTimeMillis() - start);
+					}
+				} catch (RuntimeException e) {
+					LOGGER.error("complete lexicon failed, word_path = " + wordPath, e);
+				}
+			}
+		}, "lexicon-complete");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	/**
+	 * 在调用线程中重新加载词库目录并替换当前快照。加载失败、有词库文件读取出错，
+	 * 或者条数少于原来的LEXICON_RELOAD_MIN_RATIO时保留原来的快照
+	 * @return 是否替换
+	 */
+	public boolean reload() {
+		if (wordPath == null) {
+			throw new IllegalStateException("fixed lexicon can not be reloaded");
+		}
+		synchronized (reloadLock) {
+			long modified = LexiconCompiler.lastModified(wordPath);
+			long start = System.currentTimeMillis();
+			Lexicon next;
+			try {
+				next = LexiconCompiler.loadCompiled(wordPath);
+				if (next == null) {
+					TrendencyWordsLoader loader = new TrendencyWordsLoader(wordPath);
+					/* 出错的文件只保留了出错前读到的部分，不能用来替换完整的词典 */
+					for (FileLoad load : loader.getLoadReport()) {
+						if (load.isFailed()) {
+							LOGGER.warn("reload lexicon failed on {}, keep the previous one, word_path = {}", load, wordPath);
+							return false;
+						}
+					}
+					next = new Lexicon(loader);
+				}
+			} catch (RuntimeException e) {
+				LOGGER.error("reload lexicon failed, word_path = " + wordPath, e);
+				return false;
+			}
+			Lexicon previous = current.get();
+			if (next.size() < previous.size() * Constants.LEXICON_RELOAD_MIN_RATIO) {
+				LOGGER.warn("reloaded lexicon shrinks from {} to {} entries, keep the previous one, word_path = {}", 
+						previous.size(), next.size(), wordPath);
+				return false;
+			}
+			current.set(next);
+			loadedModified = modified;
+			reloadCount.incrementAndGet();
+			LOGGER.info("lexicon reloaded, word_path = {}, size = {} -> {}, cost = {}ms", 
+					wordPath, previous.size(), next.size(), System.currentTimeMillis() - start);
+			return true;
+		}
+	}
+	
+	/**
+	 * 启动监视线程，词库文件有变化时在该线程中重新加载
+	 * @param period 检查间隔
+	 * @param unit
+	 */
+	public synchronized void startWatching(long period, TimeUnit unit) {
+		if (wordPath == null) {
+			throw new IllegalStateException("fixed lexicon can not be reloaded");
+		}
+		stopWatching();
+		watchExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "lexicon-reload");
+				thread.setDaemon(true);
+				/* 加载时尽量不和打分线程争抢CPU */
+				thread.setPriority(Thread.MIN_PRIORITY);
+				return thread;
+			}
+		});
+		watchExecutor.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				try {
+					checkModified();
+				} catch (RuntimeException e) {
+					LOGGER.error("check lexicon failed, word_path = " + wordPath, e);
+				}
+			}
+		}, period, period, unit);
+	}
+	
+	public synchronized void stopWatching() {
+		if (watchExecutor != null) {
+			watchExecutor.shutdownNow();
+			watchExecutor = null;
+		}
+	}
+	
+	private void checkModified() {
+		long modified = LexiconCompiler.lastModified(wordPath);
+		if (modified == loadedModified) {
+			pendingModified = modified;
+			return;
+		}
+		if (modified != pendingModified) {
+			/* 文件可能还在写入，下次检查时没有变化再加载 */
+			pendingModified = modified;
+			return;
+		}
+		reload();
+	}
+	
+	/**
+	 * 映射词库目录下不过期的编译文件，没有时解析文本词库并编译
+	 * @param wordPath
+	 * @return
+	 */
+	static Lexicon load(String wordPath) {
+		Lexicon lexicon = LexiconCompiler.loadCompiled(wordPath);
+		return lexicon != null ? lexicon : new Lexicon(new TrendencyWordsLoader(wordPath));
+	}
+}
@@ -1,11 +1,22 @@
 package com.hot.cmt.comment.common;
 import java.io.BufferedReader;   
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;   
+import java.util.List;
 import java.util.Map;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.hot.cmt.comment.common.Constants;
 
@@ -14,13 +25,21 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * 
+ * 加载情感词库、语气词、停用词和pmi分数
+ * 十个文件并行加载，构造返回时词性词库已经加载完成；pmi分数可以选择在后台继续加载，
+ * 此时访问pmi分数的方法会等待加载完成。每个文件的耗时、条数和错误记录在getLoadReport中。
+ * 加载完成后只读，可以在多个线程间共享
  * @author yongleixiao
  *
  */
 public class TrendencyWordsLoader {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(TrendencyWordsLoader.class);
+	
+	/* 加载线程数，文件读取以io为主，不少于2个 */
+	private static final int LOAD_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	
+	private static final AtomicInteger LOADER_IDS = new AtomicInteger();
 
 	/* 语气词库  */
 	private Set<String> toneWords;
@@ -39,104 +58,299 @@ public class TrendencyWordsLoader {
 	/* 负例评价词库 */
 	private Map<String, Double> negCommentWordMap;
 	
-	/* 加载词的pmi分数 */
-	private Map<String, Double> posPMIScores;
-	private Map<String, Double> negPMIScores;
+	/* 加载词的pmi分数，正负例在一张表中，可能仍在后台加载 */
+	private Future<PMIScoreTable> pmiScores;
 	
 	/* 停用词表 */
 	private Set<String> stopWords;
+	
+	/* 每个文件的加载情况 */
+	private final List<FileLoad> loadReport = new ArrayList<FileLoad>();
       
     public TrendencyWordsLoader() {  
-        loadWords();  
-    }
-    
-    private Map<String, Double> loadWordsWithWeight(String path) {
-    	Map<String, Double> results = new HashMap<String, Double>();
-    	String line = null;  
-        String word = null;
-        try {
-        	InputStreamReader is = new InputStreamReader(new FileInputStream(path), "UTF-8");            
-            BufferedReader br = new BufferedReader(is);
-            while((line = br.readLine()) != null){  
-                  word = line.trim();               
-                  results.put(word, 0.0D);  
-            }
-            br.close();
-            is.close();
-        } catch(Exception e) {
-        	
-        }
-        LOGGER.info("word_path = {} size = {}", path, results.size());
-        return results;    
-    }
-    
-    
-    
-    private Map<String, Double> loadPMIScores(String path) {
-    	Map<String, Double> results = new HashMap<String, Double>();
-    	String line = null;  
-        String word = null;
-        double weight = 0.0D;
-        try {
-        	InputStreamReader is = new InputStreamReader(new FileInputStream(path), "UTF-8");             
-            BufferedReader br = new BufferedReader(is);
-            while((line = br.readLine()) != null){  
-                  String[] array = StringUtils.split(line.trim(), "="); 
-                  if (array.length != 2) {
-                	  continue;
-                  }
-                  word = array[0];
-                  weight = Double.parseDouble(array[1]);
-                  results.put(word, weight);  
-            }
-            br.close();
-            is.close();
-        } catch(Exception e) {
-        	
-        }
-        LOGGER.info("word_pmi_score_path = {} size = {}", path, results.size());
-        return results;    
-    }
-    
-    
-    private Set<String> loadWords(String path) {
-    	Set<String> results = new HashSet<String>();
-    	String line = null;
-    	String word = null;
-    	try {
-    		InputStreamReader is = new InputStreamReader(new FileInputStream(path),"UTF-8");             
-            BufferedReader br = new BufferedReader(is);
-            while((line = br.readLine()) != null){  
-                  word = line.trim();               
-                  results.add(word);  
-            }
-            br.close();
-            is.close();
-    	} catch(Exception e) {
-    		
+        this(Constants.WORD_PATH);  
+    }
+    
+    /**
+     * 从指定目录加载词库，文件名与配置中的一致
+     * @param wordPath 词库目录，以路径分隔符结尾
+     */
+    public TrendencyWordsLoader(String wordPath) {
+    	this(wordPath, false);
+    }
+    
+    /**
+     * 从指定目录加载词库
+     * @param wordPath 词库目录，以路径分隔符结尾
+     * @param lazyPMI 为true时构造只等待词性词库，pmi分数在后台继续加载
+     */
+    public TrendencyWordsLoader(String wordPath, boolean lazyPMI) {
+    	loadAllWords(wordPath, lazyPMI);
+    }
+    
+    /**
+     * 读取一个词库文件，出错时保留已经读到的部分并记录错误
+     */
+    private abstract static class FileTask<T> implements Callable<T> {
+    	final FileLoad load;
+    	final T results;
+    	
+    	FileTask(FileLoad load, T results) {
+    		this.load = load;
+    		this.results = results;
+    	}
+    	
+    	public T call() {
+    		long start = System.nanoTime();
+    		BufferedReader br = null;
+    		try {
+    			br = new BufferedReader(new InputStreamReader(new FileInputStream(load.getPath()), "UTF-8"));
+    			String line = null;
+    			while ((line = br.readLine()) != null) {
+    				parse(line);
+    			}
+    		} catch (Exception e) {
+    			load.error = e;
+    		} finally {
+    			if (br != null) {
+    				try {
+    					br.close();
+    				} catch (IOException e) {
+    					
+    				}
+    			}
+    		}
+    		load.finish(size(), System.nanoTime() - start);
+    		return results;
     	}
-    	LOGGER.info("word_path = {} size = {}", path, results.size());
-    	return results;
+    	
+    	abstract void parse(String line);
+    	
+    	abstract int size();
+    }
+    
+    private Future<Map<String, Double>> loadWordsWithWeight(ExecutorService executor, String path) {
+    	FileLoad load = newLoad(path);
+    	return executor.submit(new FileTask<Map<String, Double>>(load, new HashMap<String, Double>()) {
+    		void parse(String line) {
+    			results.put(line.trim(), 0.0D);
+    		}
+    		
+    		int size() {
+    			return results.size();
+    		}
+    	});
+    }
+    
+    private Future<PMIScoreTable> loadPMIScores(ExecutorService executor, String path, final boolean positive) {
+    	FileLoad load = newLoad(path);
+    	return executor.submit(new FileTask<PMIScoreTable>(load, new PMIScoreTable()) {
+    		void parse(String line) {
+    			String[] array = StringUtils.split(line.trim(), "="); 
+    			if (array.length != 2) {
+    				return;
+    			}
+    			if (positive) {
+    				results.putPosScore(array[0], Double.parseDouble(array[1]));
+    			} else {
+    				results.putNegScore(array[0], Double.parseDouble(array[1]));
+    			}
+    		}
+    		
+    		int size() {
+    			return results.size();
+    		}
+    	});
+    }
+    
+    private Future<Set<String>> loadWords(ExecutorService executor, String path) {
+    	FileLoad load = newLoad(path);
+    	return executor.submit(new FileTask<Set<String>>(load, new HashSet<String>()) {
+    		void parse(String line) {
+    			results.add(line.trim());
+    		}
+    		
+    		int size() {
+    			return results.size();
+    		}
+    	});
+    }
+    
+    private FileLoad newLoad(String path) {
+    	FileLoad load = new FileLoad(path);
+    	loadReport.add(load);
+    	return load;
     }
       
-    private void loadWords() { 
-    	toneWords = loadWords(Constants.TONE_WORDS);
-    	
-    	posSenWordMap = loadWordsWithWeight(Constants.POS_SEN_DICT);
-    	posSemWordMap = loadWordsWithWeight(Constants.POS_SEM_DICT);
-    	posCommentWordMap = loadWordsWithWeight(Constants.POS_CON_DICT);
-    	
-    	negSenWordMap = loadWordsWithWeight(Constants.NEG_SEN_DICT);
-    	negSemWordMap = loadWordsWithWeight(Constants.NEG_SEM_DICT);
-    	negCommentWordMap = loadWordsWithWeight(Constants.NEG_CON_DICT);
-    
-        stopWords = loadWords(Constants.STOP_WORDS);
-        
-        posPMIScores = loadPMIScores(Constants.POS_PMI_SCORE);
-        negPMIScores = loadPMIScores(Constants.NEG_PMI_SCORE);
-        
+    private void loadAllWords(String wordPath, boolean lazyPMI) { 
+    	long start = System.currentTimeMillis();
+    	final int loaderId = LOADER_IDS.incrementAndGet();
+    	ExecutorService executor = Executors.newFixedThreadPool(Math.min(LOAD_THREADS, 10), new ThreadFactory() {
+    		private int threadId = 0;
+    		
+    		public synchronized Thread newThread(Runnable r) {
+    			Thread thread = new Thread(r, "words-loader-" + loaderId + "-" + (++threadId));
+    			thread.setDaemon(true);
+    			return thread;
+    		}
+    	});
+    	/* 词性词库很小，先提交，不排在pmi分数后面 */
+    	Future<Set<String>> tone = loadWords(executor, wordPath + Constants.TONE_WORDS_FILE);
+    	
+    	Future<Map<String, Double>> posSen = loadWordsWithWeight(executor, wordPath + Constants.POS_SEN_DICT_FILE);
+    	Future<Map<String, Double>> posSem = loadWordsWithWeight(executor, wordPath + Constants.POS_SEM_DICT_FILE);
+    	Future<Map<String, Double>> posComment = loadWordsWithWeight(executor, wordPath + Constants.POS_CON_DICT_FILE);
+    	
+    	Future<Map<String, Double>> negSen = loadWordsWithWeight(executor, wordPath + Constants.NEG_SEN_DICT_FILE);
+    	Future<Map<String, Double>> negSem = loadWordsWithWeight(executor, wordPath + Constants.NEG_SEM_DICT_FILE);
+    	Future<Map<String, Double>> negComment = loadWordsWithWeight(executor, wordPath + Constants.NEG_CON_DICT_FILE);
+    	
+    	Future<Set<String>> stop = loadWords(executor, wordPath + Constants.STOP_WORDS_FILE);
+    	
+    	final Future<PMIScoreTable> posPMIScores = loadPMIScores(executor, wordPath + Constants.POS_PMI_SCORE_FILE, true);
+    	final Future<PMIScoreTable> negPMIScores = loadPMIScores(executor, wordPath + Constants.NEG_PMI_SCORE_FILE, false);
+    	/* 两个文件并行解析后合并成一张表，排在所有读文件的任务之后，不会占住其他任务需要的线程 */
+    	pmiScores = executor.submit(new Callable<PMIScoreTable>() {
+    		public PMIScoreTable call() {
+    			PMIScoreTable scores = await(posPMIScores);
+    			scores.putAll(await(negPMIScores));
+    			LOGGER.info("{}", scores.footprint());
+    			return scores;
+    		}
+    	});
+    	/* 已提交的任务继续执行，线程在任务完成后退出 */
+    	executor.shutdown();
+    	
+    	toneWords = await(tone);
+    	posSenWordMap = await(posSen);
+    	posSemWordMap = await(posSem);
+    	posCommentWordMap = await(posComment);
+    	negSenWordMap = await(negSen);
+    	negSemWordMap = await(negSem);
+    	negCommentWordMap = await(negComment);
+    	stopWords = await(stop);
+    	if (!lazyPMI) {
+    		await(pmiScores);
+    	}
+    	logReport(wordPath, System.currentTimeMillis() - start);
     } 
     
+    private void logReport(String wordPath, long millis) {
+    	int failures = 0;
+    	for (FileLoad load : loadReport) {
+    		if (!load.isDone()) {
+    			LOGGER.info("{} loading in background", load.getPath());
+    		} else if (load.isFailed()) {
+    			failures++;
+    			LOGGER.warn("{} failed after {} entries: {}", load.getPath(), load.getEntries(), load.getError().toString());
+    		} else {
+    			LOGGER.info("{} size = {} cost = {}ms", load.getPath(), load.getEntries(), load.getMillis());
+    		}
+    	}
+    	LOGGER.info("word_path = {} loaded, files = {}, failures = {}, cost = {}ms", 
+    			wordPath, loadReport.size(), failures, millis);
+    }
+    
+    /**
+     * 等待后台加载完成，中断时返回空结果
+     * @param future
+     * @return
+     */
+    private static <T> T await(Future<T> future) {
+    	boolean interrupted = false;
+    	try {
+    		while (true) {
+    			try {
+    				return future.get();
+    			} catch (InterruptedException e) {
+    				interrupted = true;
+    			}
+    		}
+    	} catch (ExecutionException e) {
+    		throw new IllegalStateException("load words failed", e.getCause());
+    	} finally {
+    		if (interrupted) {
+    			Thread.currentThread().interrupt();
+    		}
+    	}
+    }
+    
+    /**
+     * 每个文件的加载情况，后台加载的pmi分数在完成前isDone为false
+     * @return
+     */
+    public List<FileLoad> getLoadReport() {
+    	return Collections.unmodifiableList(loadReport);
+    }
+    
+    /**
+     * pmi分数是否已经加载完成
+     * @return
+     */
+    public boolean isPMILoaded() {
+    	return pmiScores.isDone();
+    }
+    
+    /**
+     * 等待后台加载的pmi分数
+     */
+    public void awaitPMIScores() {
+    	await(pmiScores);
+    }
+    
+    /**
+     * 一个词库文件的加载情况
+     */
+    public static class FileLoad {
+    	private final String path;
+    	private volatile int entries = -1;
+    	private volatile long millis = -1L;
+    	private volatile Exception error = null;
+    	
+    	FileLoad(String path) {
+    		this.path = path;
+    	}
+    	
+    	void finish(int entries, long nanos) {
+    		this.millis = nanos / 1000000L;
+    		this.entries = entries;
+    	}
+    	
+    	public String getPath() {
+    		return path;
+    	}
+    	
+    	/**
+    	 * 读到的条数，出错时为出错前读到的条数，未完成为-1
+    	 * @return
+    	 */
+    	public int getEntries() {
+    		return entries;
+    	}
+    	
+    	public long getMillis() {
+    		return millis;
+    	}
+    	
+    	public Exception getError() {
+    		return error;
+    	}
+    	
+    	public boolean isDone() {
+    		return entries >= 0;
+    	}
+    	
+    	public boolean isFailed() {
+    		return error != null;
+    	}
+    	
+    	@Override
+    	public String toString() {
+    		return path + " entries = " + entries + ", cost = " + millis + "ms" 
+    				+ (error == null ? "" : ", error = " + error);
+    	}
+    }
+    
     public Set<String> getToneWords() {
     	return toneWords;
     }
@@ -202,27 +416,37 @@ public class TrendencyWordsLoader {
     }
       
     
+    /**
+     * 正负例pmi分数，仍在后台加载时等待加载完成
+     * @return
+     */
+    public PMIScoreTable getPMIScores() {
+    	return await(pmiScores);
+    }
+    
+    /**
+     * 正例pmi分数的Map形式，每次调用都创建新的Map，应使用getPMIScores
+     * @return
+     */
     public Map<String, Double> getPosPMIScores() {
-    	return posPMIScores;
+    	return getPMIScores().toPosScoreMap();
     }
     
+    /**
+     * 负例pmi分数的Map形式，每次调用都创建新的Map，应使用getPMIScores
+     * @return
+     */
     public Map<String, Double> getNegPMIScores() {
-    	return negPMIScores;
+    	return getPMIScores().toNegScoreMap();
     }
     
     
     public double getPosPMIScoreOfWord(String word) {
-    	if (posPMIScores.containsKey(word)) {
-    		return posPMIScores.get(word);
-    	}
-    	return 0.0D;
+    	return getPMIScores().getPosScore(word);
     }
     
     public double getNegPMIScoreOfWord(String word) {
-    	if (negPMIScores.containsKey(word)) {
-    		return negPMIScores.get(word);
-    	}
-    	return 0.0D;
+    	return getPMIScores().getNegScore(word);
     }
     
 }
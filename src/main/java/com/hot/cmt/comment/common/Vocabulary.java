@@ -0,0 +1,163 @@
+package com.hot.cmt.comment.common;
+
+import java.util.Arrays;
+
+/**
+ * 词表，把词映射为从0开始连续的int ID
+ * 之后的计算只处理ID，词相关的数据可以按ID存放在基本类型的数组中。
+ * 开放寻址的哈希表只保存ID，词本身按ID存放在数组中。intern会修改词表，不能在多个线程中同时调用
+ * @author yongleixiao
+ *
+ */
+public class Vocabulary {
+
+	/* 词表中不存在的词 */
+	public static final int UNKNOWN = -1;
+	
+	/* 按ID存放的词 */
+	private String[] words;
+	/* 开放寻址的哈希表，保存ID + 1，0表示空 */
+	private int[] table;
+	private int mask;
+	private int size = 0;
+	
+	public Vocabulary() {
+		this(1024);
+	}
+	
+	/**
+	 * @param expectedSize 预计的词数
+	 */
+	public Vocabulary(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+		table = new int[capacity];
+		mask = capacity - 1;
+		words = new String[Math.max(expectedSize, 8)];
+	}
+	
+	/**
+	 * 词的ID，不存在时分配一个新ID
+	 * @param word
+	 * @return
+	 */
+	public int intern(String word) {
+		int slot = hash(word) & mask;
+		int id;
+		while ((id = table[slot] - 1) != UNKNOWN) {
+			if (words[id].equals(word)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		id = size++;
+		if (id == words.length) {
+			words = Arrays.copyOf(words, id * 2);
+		}
+		words[id] = word;
+		table[slot] = id + 1;
+		if (size * 2 > table.length) {
+			rehash();
+		}
+		return id;
+	}
+	
+	/**
+	 * 字符数组中一段字符的ID，不存在时分配一个新ID，只有新词才创建字符串
+	 * @param chars
+	 * @param offset
+	 * @param length
+	 * @return
+	 */
+	public int intern(char[] chars, int offset, int length) {
+		int h = 0;
+		for (int i = offset; i < offset + length; i++) {
+			h = 31 * h + chars[i];
+		}
+		int slot = mix(h) & mask;
+		int id;
+		while ((id = table[slot] - 1) != UNKNOWN) {
+			if (matches(words[id], chars, offset, length)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return intern(new String(chars, offset, length));
+	}
+	
+	/**
+	 * 词的ID
+	 * @param word
+	 * @return 不存在返回UNKNOWN
+	 */
+	public int find(String word) {
+		int slot = hash(word) & mask;
+		int id;
+		while ((id = table[slot] - 1) != UNKNOWN) {
+			if (words[id].equals(word)) {
+				return id;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return UNKNOWN;
+	}
+	
+	/**
+	 * ID对应的词
+	 * @param id
+	 * @return
+	 */
+	public String word(int id) {
+		if (id < 0 || id >= size) {
+			throw new IndexOutOfBoundsException("id = " + id + ", size = " + size);
+		}
+		return words[id];
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * 估算哈希表和词数组占用的堆内存，不含词本身，引用按指针压缩计算
+	 * @return
+	 */
+	public long footprintBytes() {
+		return 4L * table.length + 4L * words.length;
+	}
+	
+	private void rehash() {
+		int[] newTable = new int[table.length * 2];
+		int newMask = newTable.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = hash(words[id]) & newMask;
+			while (newTable[slot] != 0) {
+				slot = (slot + 1) & newMask;
+			}
+			newTable[slot] = id + 1;
+		}
+		table = newTable;
+		mask = newMask;
+	}
+	
+	private static boolean matches(String word, char[] chars, int offset, int length) {
+		if (word.length() != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (word.charAt(i) != chars[offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/* 与String.hashCode一致，按字符数组计算时得到相同的槽位 */
+	private static int hash(String word) {
+		return mix(word.hashCode());
+	}
+	
+	private static int mix(int hashCode) {
+		int h = hashCode * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+}
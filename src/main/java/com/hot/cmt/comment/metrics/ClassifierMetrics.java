@@ -0,0 +1,159 @@
+package com.hot.cmt.comment.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hot.cmt.comment.common.Constants.SentimentType;
+
+/**
+ * 分类流程的指标：各阶段耗时、各情感类别的次数和分词数分布
+ * 记录时只做原子加，没有锁，可以被多个线程中的Classifier共享并在生产环境常开。
+ * 可以注册为MBean，也可以通过MetricsReporter定期输出
+ * @author yongleixiao
+ *
+ */
+public class ClassifierMetrics implements ClassifierMetricsMXBean {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ClassifierMetrics.class);
+	
+	private static final String DOMAIN = "com.hot.cmt.comment";
+	
+	private final LatencyHistogram[] stageLatencies;
+	private final LongAdder[] sentimentCounts;
+	private final LatencyHistogram tokenCounts = new LatencyHistogram();
+	
+	private ObjectName objectName = null;
+	private ScheduledExecutorService reportExecutor = null;
+	
+	public ClassifierMetrics() {
+		Stage[] stages = Stage.values();
+		stageLatencies = new LatencyHistogram[stages.length];
+		for (int i = 0; i < stages.length; i++) {
+			stageLatencies[i] = new LatencyHistogram();
+		}
+		SentimentType[] types = SentimentType.values();
+		sentimentCounts = new LongAdder[types.length];
+		for (int i = 0; i < types.length; i++) {
+			sentimentCounts[i] = new LongAdder();
+		}
+	}
+	
+	public void recordLatency(Stage stage, long nanos) {
+		stageLatencies[stage.ordinal()].record(nanos);
+	}
+	
+	public void recordSentiment(SentimentType type) {
+		sentimentCounts[type.ordinal()].increment();
+	}
+	
+	public void recordTokenCount(int tokens) {
+		tokenCounts.record(tokens);
+	}
+	
+	public HistogramSnapshot getLatency(Stage stage) {
+		return stageLatencies[stage.ordinal()].snapshot();
+	}
+	
+	public long getSentimentCount(SentimentType type) {
+		return sentimentCounts[type.ordinal()].sum();
+	}
+	
+	public Map<String, HistogramSnapshot> getStageLatencyNanos() {
+		Map<String, HistogramSnapshot> results = new LinkedHashMap<String, HistogramSnapshot>();
+		for (Stage stage : Stage.values()) {
+			results.put(stage.name(), getLatency(stage));
+		}
+		return results;
+	}
+	
+	public Map<String, Long> getSentimentTypeCounts() {
+		Map<String, Long> results = new LinkedHashMap<String, Long>();
+		for (SentimentType type : SentimentType.values()) {
+			results.put(type.name(), getSentimentCount(type));
+		}
+		return results;
+	}
+	
+	public HistogramSnapshot getTokenCounts() {
+		return tokenCounts.snapshot();
+	}
+	
+	public void reset() {
+		for (LatencyHistogram histogram : stageLatencies) {
+			histogram.reset();
+		}
+		for (LongAdder counter : sentimentCounts) {
+			counter.reset();
+		}
+		tokenCounts.reset();
+	}
+	
+	/**
+	 * 注册到平台MBeanServer，ObjectName为com.hot.cmt.comment:type=ClassifierMetrics,name=name
+	 * @param name
+	 * @throws JMException
+	 */
+	public synchronized void registerMBean(String name) throws JMException {
+		unregisterMBean();
+		ObjectName objectName = new ObjectName(DOMAIN + ":type=ClassifierMetrics,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		this.objectName = objectName;
+	}
+	
+	public synchronized void unregisterMBean() throws JMException {
+		if (objectName == null) {
+			return;
+		}
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		if (server.isRegistered(objectName)) {
+			server.unregisterMBean(objectName);
+		}
+		objectName = null;
+	}
+	
+	/**
+	 * 在后台线程中定期调用reporter，重复调用会替换之前的reporter
+	 * @param reporter
+	 * @param period
+	 * @param unit
+	 */
+	public synchronized void startReporting(final MetricsReporter reporter, long period, TimeUnit unit) {
+		stopReporting();
+		reportExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "classifier-metrics-reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		reportExecutor.scheduleAtFixedRate(new Runnable() {
+			public void run() {
+				try {
+					reporter.report(ClassifierMetrics.this);
+				} catch (RuntimeException e) {
+					LOGGER.error("report metrics failed", e);
+				}
+			}
+		}, period, period, unit);
+	}
+	
+	public synchronized void stopReporting() {
+		if (reportExecutor != null) {
+			reportExecutor.shutdownNow();
+			reportExecutor = null;
+		}
+	}
+}
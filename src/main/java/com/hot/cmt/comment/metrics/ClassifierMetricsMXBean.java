@@ -0,0 +1,34 @@
+package com.hot.cmt.comment.metrics;
+
+import java.util.Map;
+
+/**
+ * 分类指标的JMX接口
+ * @author yongleixiao
+ *
+ */
+public interface ClassifierMetricsMXBean {
+
+	/**
+	 * 各阶段的耗时分布，单位纳秒
+	 * @return 阶段名到分布的映射
+	 */
+	Map<String, HistogramSnapshot> getStageLatencyNanos();
+	
+	/**
+	 * 各情感类别的分类次数
+	 * @return
+	 */
+	Map<String, Long> getSentimentTypeCounts();
+	
+	/**
+	 * 每条评论分词数的分布
+	 * @return
+	 */
+	HistogramSnapshot getTokenCounts();
+	
+	/**
+	 * 清空所有指标
+	 */
+	void reset();
+}
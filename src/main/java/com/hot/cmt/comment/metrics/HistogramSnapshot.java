@@ -0,0 +1,77 @@
+package com.hot.cmt.comment.metrics;
+
+/**
+ * 直方图在某一时刻的只读快照
+ * 通过JMX暴露时按getter转换为CompositeData
+ * @author yongleixiao
+ *
+ */
+public class HistogramSnapshot {
+
+	private final long[] counts;
+	private final long count;
+	private final long sum;
+	private final long max;
+	
+	HistogramSnapshot(long[] counts, long count, long sum, long max) {
+		this.counts = counts;
+		this.count = count;
+		this.sum = sum;
+		this.max = max;
+	}
+	
+	public long getCount() {
+		return count;
+	}
+	
+	public long getMax() {
+		return max;
+	}
+	
+	public double getMean() {
+		return count == 0L ? 0.0D : (double) sum / count;
+	}
+	
+	/**
+	 * 分位数，返回所在桶的下界，误差不超过1/16
+	 * @param percentile 0-100
+	 * @return
+	 */
+	public long getPercentile(double percentile) {
+		if (count == 0L) {
+			return 0L;
+		}
+		long rank = (long) Math.ceil(count * Math.min(Math.max(percentile, 0.0D), 100.0D) / 100.0D);
+		rank = Math.max(rank, 1L);
+		long seen = 0L;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(LatencyHistogram.bucketValue(i), max);
+			}
+		}
+		return max;
+	}
+	
+	public long getP50() {
+		return getPercentile(50.0D);
+	}
+	
+	public long getP90() {
+		return getPercentile(90.0D);
+	}
+	
+	public long getP99() {
+		return getPercentile(99.0D);
+	}
+	
+	public long getP999() {
+		return getPercentile(99.9D);
+	}
+	
+	@Override
+	public String toString() {
+		return "count=" + count + ", mean=" + (long) getMean() + ", p50=" + getPercentile(50.0D) 
+				+ ", p99=" + getPercentile(99.0D) + ", max=" + max;
+	}
+}
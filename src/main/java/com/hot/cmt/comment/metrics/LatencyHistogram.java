@@ -0,0 +1,125 @@
+package com.hot.cmt.comment.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁的对数分桶直方图，用于记录耗时和分布
+ * 与HdrHistogram的分桶方式类似：每个2的幂区间再线性分成16个子桶，相对误差不超过1/16。
+ * 计数按线程分散到多组桶中，每组另外记录本组的最大值，快照时合并。记录时对本组的桶做一次原子加，
+ * 次数和总和用LongAdder累加，只有出现本组新的最大值时才需要CAS，没有锁，适合在生产环境常开
+ * @author yongleixiao
+ *
+ */
+public class LatencyHistogram {
+
+	/* 每个2的幂区间的子桶数，2^SUB_BUCKET_BITS */
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/* 能区分的最大值为2^MAX_EXPONENT，约68秒，更大的值记入最后一个桶 */
+	private static final int MAX_EXPONENT = 36;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+	/* 最多的分组数 */
+	private static final int MAX_STRIPES = 8;
+	/* 每组最后一个元素存放本组记录过的最大值 */
+	private static final int MAX_SLOT = BUCKETS;
+	
+	private final AtomicLongArray[] stripes;
+	private final int stripeMask;
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	
+	public LatencyHistogram() {
+		int stripeCount = 1;
+		int cpus = Runtime.getRuntime().availableProcessors();
+		while (stripeCount < cpus && stripeCount < MAX_STRIPES) {
+			stripeCount <<= 1;
+		}
+		stripes = new AtomicLongArray[stripeCount];
+		for (int i = 0; i < stripeCount; i++) {
+			stripes[i] = new AtomicLongArray(BUCKETS + 1);
+		}
+		stripeMask = stripeCount - 1;
+	}
+	
+	/**
+	 * 记录一个值，小于0的值按0记录
+	 * @param value
+	 */
+	public void record(long value) {
+		if (value < 0L) {
+			value = 0L;
+		}
+		AtomicLongArray stripe = stripes[(int) Thread.currentThread().getId() & stripeMask];
+		stripe.incrementAndGet(bucketIndex(value));
+		count.increment();
+		sum.add(value);
+		long current = stripe.get(MAX_SLOT);
+		while (value > current && !stripe.compareAndSet(MAX_SLOT, current, value)) {
+			current = stripe.get(MAX_SLOT);
+		}
+	}
+	
+	/**
+	 * 合并所有分组，得到当前的快照
+	 * 快照期间的并发记录可能只有部分计入，对监控没有影响
+	 * @return
+	 */
+	public HistogramSnapshot snapshot() {
+		long[] counts = new long[BUCKETS];
+		long total = 0L;
+		long max = 0L;
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i < BUCKETS; i++) {
+				long c = stripe.get(i);
+				counts[i] += c;
+				total += c;
+			}
+			max = Math.max(max, stripe.get(MAX_SLOT));
+		}
+		return new HistogramSnapshot(counts, total, sum.sum(), max);
+	}
+	
+	/**
+	 * 清空，清空期间的并发记录可能丢失
+	 */
+	public void reset() {
+		for (AtomicLongArray stripe : stripes) {
+			for (int i = 0; i <= MAX_SLOT; i++) {
+				stripe.set(i, 0L);
+			}
+		}
+		count.reset();
+		sum.reset();
+	}
+	
+	public long getCount() {
+		return count.sum();
+	}
+	
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		if (exponent > MAX_EXPONENT) {
+			return BUCKETS - 1;
+		}
+		int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+	
+	/**
+	 * 桶的下界
+	 * @param index
+	 * @return
+	 */
+	static long bucketValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		long sub = index % SUB_BUCKETS;
+		return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+	}
+}
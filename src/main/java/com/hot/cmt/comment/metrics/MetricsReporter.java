@@ -0,0 +1,15 @@
+package com.hot.cmt.comment.metrics;
+
+/**
+ * 定期输出分类指标，可以接入日志或者外部的监控系统
+ * @author yongleixiao
+ *
+ */
+public interface MetricsReporter {
+
+	/**
+	 * 在ClassifierMetrics的报告线程中回调
+	 * @param metrics
+	 */
+	void report(ClassifierMetrics metrics);
+}
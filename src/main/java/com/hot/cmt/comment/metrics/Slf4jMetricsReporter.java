@@ -0,0 +1,23 @@
+package com.hot.cmt.comment.metrics;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 把分类指标输出到日志
+ * @author yongleixiao
+ *
+ */
+public class Slf4jMetricsReporter implements MetricsReporter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(Slf4jMetricsReporter.class);
+	
+	public void report(ClassifierMetrics metrics) {
+		for (Map.Entry<String, HistogramSnapshot> entry : metrics.getStageLatencyNanos().entrySet()) {
+			LOGGER.info("stage = {}, latency(ns): {}", entry.getKey(), entry.getValue());
+		}
+		LOGGER.info("sentiment = {}, tokens: {}", metrics.getSentimentTypeCounts(), metrics.getTokenCounts());
+	}
+}
@@ -0,0 +1,33 @@
+package com.hot.cmt.comment.metrics;
+
+/**
+ * 分类流程中被计时的阶段
+ * @author yongleixiao
+ *
+ */
+public enum Stage {
+	TOKENIZE, //分词
+	LOOKUP, //n-gram词典匹配
+	UNIGRAM, //unigram打分
+	BIGRAM, //bigram打分
+	TRIGRAM, //trigram打分
+	JUDGE, //阈值判定
+	CACHE_HIT, //命中评分缓存的打分的总耗时，同时计入TOTAL
+	TOTAL; //一次打分的总耗时
+	
+	/**
+	 * n-gram阶数对应的打分阶段
+	 * @param order 1-3
+	 * @return
+	 */
+	public static Stage ofOrder(int order) {
+		switch (order) {
+			case 1:
+				return UNIGRAM;
+			case 2:
+				return BIGRAM;
+			default:
+				return TRIGRAM;
+		}
+	}
+}
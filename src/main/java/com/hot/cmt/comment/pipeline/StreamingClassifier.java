@@ -0,0 +1,384 @@
+package com.hot.cmt.comment.pipeline;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hot.cmt.comment.bayes.Classifier;
+import com.hot.cmt.comment.bayes.SentimentScore;
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconRegistry;
+import com.hot.cmt.comment.common.ReloadableLexicon;
+import com.hot.cmt.comment.tokenize.SegMode;
+import com.hot.cmt.comment.tokenize.Tokenizer;
+
+/**
+ * 文件到文件的流式情感分类
+ * 输入每行一条评论，输出每行为 id\tpositive\tnegative\ttype，id为评论所在的行号。
+ * 读文件、分词、打分、写文件分别在各自的线程中进行，阶段之间用有界队列连接，
+ * 评论按批在队列中传递，同时在途的批数有上限，因此内存占用与文件大小无关。
+ * 分词和打分可以各开多个线程，写文件阶段按批的序号重新排序，输出顺序与输入一致；
+ * 读文件阶段每读一批先取得一个许可，写文件阶段写出后归还，等待重新排序的批数不超过maxInFlight
+ * @author yongleixiao
+ *
+ */
+public class StreamingClassifier {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StreamingClassifier.class);
+	
+	private static final String ENCODING = "UTF-8";
+	
+	/* 队列结束标记 */
+	private static final Batch END = new Batch(-1L, -1L, new String[0]);
+	
+	private final ReloadableLexicon lexicons;
+	private int batchSize = 256;
+	private int queueCapacity = 64;
+	private int tokenizerThreads = 1;
+	private int scorerThreads = 1;
+	private int maxInFlight = 256;
+	private long reportIntervalSeconds = 10L;
+	
+	private BlockingQueue<Batch> tokenizeQueue;
+	private BlockingQueue<Batch> scoreQueue;
+	private BlockingQueue<Batch> writeQueue;
+	private Semaphore inFlight;
+	private final AtomicLong readCount = new AtomicLong();
+	private final AtomicLong writtenCount = new AtomicLong();
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	/* abort可能在其他阶段还在启动时被调用 */
+	private final List<Thread> stageThreads = new CopyOnWriteArrayList<Thread>();
+	
+	public StreamingClassifier(Lexicon lexicon) {
+		this(new ReloadableLexicon(lexicon));
+	}
+	
+	/**
+	 * 词典热加载后，之后打分的评论使用新的词典
+	 * @param lexicons
+	 */
+	public StreamingClassifier(ReloadableLexicon lexicons) {
+		this.lexicons = lexicons;
+	}
+	
+	/**
+	 * 对整个文件分类，处理完成或出错后返回
+	 * @param inputPath
+	 * @param outputPath
+	 * @throws IOException 任一阶段出错
+	 */
+	public void run(final String inputPath, final String outputPath) throws IOException {
+		tokenizeQueue = new ArrayBlockingQueue<Batch>(queueCapacity);
+		scoreQueue = new ArrayBlockingQueue<Batch>(queueCapacity);
+		writeQueue = new ArrayBlockingQueue<Batch>(queueCapacity);
+		inFlight = new Semaphore(maxInFlight);
+		readCount.set(0L);
+		writtenCount.set(0L);
+		failure.set(null);
+		stageThreads.clear();
+		
+		final AtomicInteger runningTokenizers = new AtomicInteger(tokenizerThreads);
+		final AtomicInteger runningScorers = new AtomicInteger(scorerThreads);
+		
+		startStage("reader", new Stage() {
+			public void run() throws Exception {
+				read(inputPath);
+			}
+		});
+		for (int i = 0; i < tokenizerThreads; i++) {
+			startStage("tokenizer-" + i, new Stage() {
+				public void run() throws Exception {
+					tokenize();
+					if (runningTokenizers.decrementAndGet() == 0) {
+						for (int j = 0; j < scorerThreads; j++) {
+							scoreQueue.put(END);
+						}
+					}
+				}
+			});
+		}
+		for (int i = 0; i < scorerThreads; i++) {
+			startStage("scorer-" + i, new Stage() {
+				public void run() throws Exception {
+					score();
+					if (runningScorers.decrementAndGet() == 0) {
+						writeQueue.put(END);
+					}
+				}
+			});
+		}
+		startStage("writer", new Stage() {
+			public void run() throws Exception {
+				write(outputPath);
+			}
+		});
+		
+		ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+		final long start = System.currentTimeMillis();
+		reporter.scheduleAtFixedRate(new Runnable() {
+			private long lastCount = 0L;
+			private long lastTime = start;
+			public void run() {
+				long now = System.currentTimeMillis();
+				long count = writtenCount.get();
+				double rate = (count - lastCount) * 1000.0D / Math.max(now - lastTime, 1L);
+				LOGGER.info("read = {}, written = {}, comments/sec = {}, queues(tokenize/score/write) = {}/{}/{}", 
+						readCount.get(), count, (long) rate, tokenizeQueue.size(), scoreQueue.size(), writeQueue.size());
+				lastCount = count;
+				lastTime = now;
+			}
+		}, reportIntervalSeconds, reportIntervalSeconds, TimeUnit.SECONDS);
+		
+		try {
+			for (Thread thread : stageThreads) {
+				thread.join();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			abort(e);
+		} finally {
+			reporter.shutdownNow();
+		}
+		
+		Throwable cause = failure.get();
+		if (cause != null) {
+			throw new IOException("classify " + inputPath + " failed", cause);
+		}
+		long cost = Math.max(System.currentTimeMillis() - start, 1L);
+		LOGGER.info("classify done! comments = {}, cost = {}ms, comments/sec = {}", 
+				writtenCount.get(), cost, writtenCount.get() * 1000L / cost);
+	}
+	
+	private void read(String inputPath) throws IOException, InterruptedException {
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputPath), ENCODING));
+		try {
+			long sequence = 0L;
+			long id = 1L;
+			String[] lines = new String[batchSize];
+			int size = 0;
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				lines[size++] = line;
+				if (size == batchSize) {
+					inFlight.acquire();
+					tokenizeQueue.put(new Batch(sequence++, id, lines));
+					readCount.addAndGet(size);
+					id += size;
+					lines = new String[batchSize];
+					size = 0;
+				}
+			}
+			if (size > 0) {
+				String[] rest = new String[size];
+				System.arraycopy(lines, 0, rest, 0, size);
+				inFlight.acquire();
+				tokenizeQueue.put(new Batch(sequence, id, rest));
+				readCount.addAndGet(size);
+			}
+		} finally {
+			br.close();
+		}
+		for (int i = 0; i < tokenizerThreads; i++) {
+			tokenizeQueue.put(END);
+		}
+	}
+	
+	private void tokenize() throws InterruptedException {
+		Tokenizer tokenizer = SegMode.configured().create(lexicons);
+		Batch batch = null;
+		while ((batch = tokenizeQueue.take()) != END) {
+			for (int i = 0; i < batch.lines.length; i++) {
+				String line = batch.lines[i];
+				if (StringUtils.isNotBlank(line)) {
+					batch.words.add(tokenizer.getSplitedWords(line));
+				} else {
+					batch.words.add(null);
+				}
+			}
+			scoreQueue.put(batch);
+		}
+	}
+	
+	private void score() throws InterruptedException {
+		Classifier classifier = new Classifier(lexicons);
+		SentimentScore score = new SentimentScore();
+		Batch batch = null;
+		while ((batch = scoreQueue.take()) != END) {
+			int size = batch.lines.length;
+			for (int i = 0; i < size; i++) {
+				classifier.scoreWords(batch.words.get(i), score);
+				batch.positive[i] = score.getPositive();
+				batch.negative[i] = score.getNegative();
+				batch.types[i] = classifier.judgeSenType(score).value();
+			}
+			batch.words.clear();
+			writeQueue.put(batch);
+		}
+	}
+	
+	private void write(String outputPath) throws IOException, InterruptedException {
+		BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputPath), ENCODING));
+		try {
+			/* 多线程时批会乱序到达，先到的暂存，等待前面的批 */
+			Map<Long, Batch> pending = new HashMap<Long, Batch>();
+			long nextSequence = 0L;
+			Batch batch = null;
+			while ((batch = writeQueue.take()) != END) {
+				pending.put(batch.sequence, batch);
+				while ((batch = pending.remove(nextSequence)) != null) {
+					for (int i = 0; i < batch.lines.length; i++) {
+						bw.write(Long.toString(batch.firstId + i));
+						bw.write('\t');
+						bw.write(Double.toString(batch.positive[i]));
+						bw.write('\t');
+						bw.write(Double.toString(batch.negative[i]));
+						bw.write('\t');
+						bw.write(Integer.toString(batch.types[i]));
+						bw.write('\n');
+					}
+					writtenCount.addAndGet(batch.lines.length);
+					nextSequence++;
+					inFlight.release();
+				}
+			}
+		} finally {
+			bw.close();
+		}
+	}
+	
+	private Thread startStage(String name, final Stage stage) {
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					stage.run();
+				} catch (InterruptedException e) {
+					abort(e);
+				} catch (Exception e) {
+					LOGGER.error("stage " + Thread.currentThread().getName() + " failed", e);
+					abort(e);
+				}
+			}
+		}, "streaming-classifier-" + name);
+		stageThreads.add(thread);
+		thread.start();
+		/* 登记之前已经有阶段失败时，abort没有中断这个线程 */
+		if (failure.get() != null) {
+			thread.interrupt();
+		}
+		return thread;
+	}
+	
+	/**
+	 * 任一阶段出错时中断所有阶段，避免阻塞在队列上
+	 * @param cause
+	 */
+	private void abort(Throwable cause) {
+		if (failure.compareAndSet(null, cause)) {
+			for (Thread thread : stageThreads) {
+				thread.interrupt();
+			}
+		}
+	}
+	
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(batchSize, 1);
+	}
+	
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = Math.max(queueCapacity, 1);
+	}
+	
+	public void setTokenizerThreads(int tokenizerThreads) {
+		this.tokenizerThreads = Math.max(tokenizerThreads, 1);
+	}
+	
+	public void setScorerThreads(int scorerThreads) {
+		this.scorerThreads = Math.max(scorerThreads, 1);
+	}
+	
+	/**
+	 * 已经读出但还没有写出的批数上限，限制写文件阶段等待重新排序的批
+	 * @param maxInFlight
+	 */
+	public void setMaxInFlight(int maxInFlight) {
+		this.maxInFlight = Math.max(maxInFlight, 1);
+	}
+	
+	public void setReportIntervalSeconds(long reportIntervalSeconds) {
+		this.reportIntervalSeconds = Math.max(reportIntervalSeconds, 1L);
+	}
+	
+	private interface Stage {
+		void run() throws Exception;
+	}
+	
+	/**
+	 * 在阶段之间传递的一批评论
+	 */
+	private static class Batch {
+		final long sequence;
+		final long firstId;
+		final String[] lines;
+		final List<List<String>> words;
+		final double[] positive;
+		final double[] negative;
+		final int[] types;
+		
+		Batch(long sequence, long firstId, String[] lines) {
+			this.sequence = sequence;
+			this.firstId = firstId;
+			this.lines = lines;
+			this.words = new ArrayList<List<String>>(lines.length);
+			this.positive = new double[lines.length];
+			this.negative = new double[lines.length];
+			this.types = new int[lines.length];
+		}
+	}
+	
+	/**
+	 * 用法: StreamingClassifier input output [tokenizerThreads] [scorerThreads]
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("usage: StreamingClassifier input output [tokenizerThreads] [scorerThreads]");
+			System.exit(1);
+		}
+		ReloadableLexicon lexicon = LexiconRegistry.acquire();
+		StreamingClassifier pipeline = new StreamingClassifier(lexicon);
+		if (args.length > 2) {
+			pipeline.setTokenizerThreads(Integer.parseInt(args[2]));
+		}
+		if (args.length > 3) {
+			pipeline.setScorerThreads(Integer.parseInt(args[3]));
+		}
+		try {
+			pipeline.run(args[0], args[1]);
+		} finally {
+			LexiconRegistry.release(lexicon);
+		}
+	}
+}
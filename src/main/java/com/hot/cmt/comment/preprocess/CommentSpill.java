@@ -0,0 +1,184 @@
+package com.hot.cmt.comment.preprocess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.hot.cmt.comment.util.IntArrayList;
+
+/**
+ * 磁盘上的分词结果，代替内存中的comments2Words
+ * 每条评论写一个varint表示词数，之后每个词ID一个varint。按写入顺序读回，评论ID为读取的序号加1。
+ * 写完后调用finish，之后可以多次打开读取，每个Reader只能在一个线程中使用；delete之后不能再读取
+ * @author yongleixiao
+ *
+ */
+public class CommentSpill {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final File file;
+	private OutputStream out;
+	private int size = 0;
+	private long bytes = 0L;
+	private boolean deleted = false;
+
+	/**
+	 * 创建文件并准备写入
+	 * @param file
+	 * @throws IOException
+	 */
+	public CommentSpill(File file) throws IOException {
+		this.file = file;
+		out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+	}
+
+	/**
+	 * 追加一条评论
+	 * @param words 词ID
+	 * @throws IOException
+	 */
+	public void write(int[] words) throws IOException {
+		writeVInt(words.length);
+		for (int word : words) {
+			writeVInt(word);
+		}
+		size++;
+	}
+
+	/**
+	 * 结束写入
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		if (out != null) {
+			out.close();
+			out = null;
+		}
+	}
+
+	/**
+	 * 是否已经finish并且没有删除，可以读取
+	 * @return
+	 */
+	public boolean isFinished() {
+		return out == null && !deleted;
+	}
+	
+	/**
+	 * 从头读取，调用前要先finish
+	 * @return
+	 * @throws IOException
+	 */
+	public Reader open() throws IOException {
+		if (deleted) {
+			throw new IllegalStateException("comment spill " + file + " has been deleted");
+		}
+		if (out != null) {
+			throw new IllegalStateException("comment spill " + file + " is still being written");
+		}
+		return new Reader(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+	}
+
+	/**
+	 * 评论数
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 文件字节数
+	 * @return
+	 */
+	public long bytes() {
+		return bytes;
+	}
+
+	/**
+	 * 关闭并删除文件
+	 * @return
+	 */
+	public boolean delete() {
+		try {
+			finish();
+		} catch (IOException e) {
+			/* 文件马上删除，写入失败不影响 */
+		}
+		deleted = true;
+		return file.delete();
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	private void writeVInt(int value) throws IOException {
+		while ((value & ~0x7f) != 0) {
+			out.write((value & 0x7f) | 0x80);
+			value >>>= 7;
+			bytes++;
+		}
+		out.write(value);
+		bytes++;
+	}
+
+	/**
+	 * 顺序读取评论
+	 */
+	public static class Reader {
+
+		private final InputStream in;
+
+		private Reader(InputStream in) {
+			this.in = in;
+		}
+
+		/**
+		 * 读取下一条评论
+		 * @param words 清空后写入词ID
+		 * @return 已经读完时为false
+		 * @throws IOException
+		 */
+		public boolean next(IntArrayList words) throws IOException {
+			words.clear();
+			int b = in.read();
+			if (b < 0) {
+				return false;
+			}
+			int length = readVInt(b);
+			for (int i = 0; i < length; i++) {
+				words.add(readVInt(in.read()));
+			}
+			return true;
+		}
+
+		public void close() throws IOException {
+			in.close();
+		}
+
+		/**
+		 * @param b 已经读出的第一个字节
+		 */
+		private int readVInt(int b) throws IOException {
+			if (b < 0) {
+				throw new IOException("truncated comment spill");
+			}
+			int value = b & 0x7f;
+			for (int shift = 7; (b & 0x80) != 0; shift += 7) {
+				b = in.read();
+				if (b < 0) {
+					throw new IOException("truncated comment spill");
+				}
+				value |= (b & 0x7f) << shift;
+			}
+			return value;
+		}
+	}
+}
@@ -1,26 +1,57 @@
 package com.hot.cmt.comment.preprocess;
 
 import java.io.BufferedReader;   
-import java.io.FileReader; 
-import java.io.FileWriter;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import org.apache.commons.lang.StringUtils;
 import org.slf4j.LoggerFactory;
 import org.slf4j.Logger;
 
+import com.hot.cmt.comment.common.Constants;
+import com.hot.cmt.comment.common.LexiconRegistry;
 import com.hot.cmt.comment.common.TrendencyWordsLoader;
+import com.hot.cmt.comment.common.Vocabulary;
 import com.hot.cmt.comment.tokenize.MMTokenizer;
+import com.hot.cmt.comment.util.AtomicFiles;
+import com.hot.cmt.comment.util.IntArrayList;
+import com.hot.cmt.comment.util.LongIntHashMap;
 
 /**
  * 计算词语和情感词之间的PMI信息
+ * 语料中的词通过Vocabulary转换为int ID，评论的分词结果和词到评论的索引都只保存ID，停用词不进入词表；
+ * 词到评论的倒排索引为压缩的PostingList，求两个词的共现次数时直接在压缩数据上求交集。
+ * 与情感词的pmi分数由一次遍历语料得到：每条评论中的情感词与其中每个词的共现次数累加到以词对为键的LongIntHashMap，
+ * 之后按公式直接计算，不再逐个词对求交集。
+ * 计算在ForkJoinPool中进行：正负例两个情感词典同时计算，语料按评论区间切分后各自计数再合并，词对的分数也分段并行计算；
+ * 计数为整数，分数按固定顺序累加，结果与线程数无关。
+ * Pmi_Memory_Mb大于0时为外存模式：分词结果按顺序写入CommentSpill，不建立倒排索引，内存中只保留词表和词频；
+ * 共现次数在有上限的SpillingPairCounter中累加，满了就排序写入临时文件，最后k路归并，按与内存模式相同的顺序计算分数，
+ * 输出与内存模式相同
  * @author yongleixiao
  *
  */
@@ -28,133 +59,513 @@ public class PMIGenerator {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(PMIGenerator.class);
 	
+	/* 每个叶子任务至少处理的评论数或词对数 */
+	private static final int MIN_CHUNK_SIZE = 1024;
+	/* 每个工作线程平均分到的任务数 */
+	private static final int CHUNKS_PER_THREAD = 4;
+	/* 按行读取语料时每块的行数 */
+	private static final int CHUNK_LINES = 4096;
+	/* 映射读取语料时每块的字节数 */
+	private static final int CHUNK_BYTES = 4 << 20;
+	/* 每个工作线程同时在途的语料块数，限制内存 */
+	private static final int PENDING_PER_THREAD = 2;
+	/* 读取语料时输出进度的间隔 */
+	private static final long PROGRESS_INTERVAL_MILLIS = 10000L;
+	/* 外存模式下每个情感词典按词分配的数组：情感词序号、分数、共现次数、有分数的词，每个词的字节数 */
+	private static final int SPILL_BYTES_PER_WORD = 20;
+	
 	/* 计算PMI */
-	/* 评论及其分词结果 */
-	private Map<Long, List<String>> comments2Words = null;
-	/* 词语及其出现的文章ID列表 */
-	private Map<String, List<Long>> words2Comments = null;
+	/* 语料中的词表 */
+	private Vocabulary vocabulary = null;
+	/* 评论的分词结果，第i个元素为ID为i+1的评论 */
+	private List<int[]> comments2Words = null;
+	/* 下标为词ID，元素为词出现的评论及次数，按评论ID递增 */
+	private List<PostingList> words2Comments = null;
 	/* 总的词数 */
-	private int totalWords = 0;
+	private long totalWords = 0L;
+	
+	/* 外存模式下共现计数占用的内存上限，0表示使用内存模式 */
+	private int spillMemoryMb = Constants.PMI_MEMORY_MB;
+	private File spillDir = new File(Constants.PMI_SPILL_DIR);
+	/* 外存模式下的分词结果 */
+	private CommentSpill comments = null;
+	/* 外存模式下按词ID存放的出现次数 */
+	private int[] wordFreqs = new int[1024];
 	
 	/* 停用词 */
 	Set<String> stopWords = null;
 	
 	/* 加载词典 */
 	private TrendencyWordsLoader wordsLoader = null;
-	/* 分词  */
-	private MMTokenizer tokenizer = null;
+	/* 词库是否从LexiconRegistry引用 */
+	private boolean registered = false;
+	/* 分词和计算pmi分数的线程池，为null时按Pmi_Parallelism创建，用完关闭 */
+	private ForkJoinPool pool = null;
 	
+	/**
+	 * 引用LexiconRegistry中共享的词库，不再使用时调用close释放
+	 */
 	public PMIGenerator() {	
-		comments2Words = new HashMap<Long, List<String>>();
-		words2Comments = new HashMap<String, List<Long>>();
+		this(LexiconRegistry.acquireWords());
+		registered = true;
+	}
+	
+	/**
+	 * 使用调用方提供的线程池分词和计算pmi分数，线程池由调用方关闭
+	 * @param wordsLoader
+	 * @param pool
+	 */
+	public PMIGenerator(TrendencyWordsLoader wordsLoader, ForkJoinPool pool) {
+		this(wordsLoader);
+		this.pool = pool;
+	}
+	
+	public PMIGenerator(TrendencyWordsLoader wordsLoader) {	
+		vocabulary = new Vocabulary();
+		comments2Words = new ArrayList<int[]>();
+		words2Comments = new ArrayList<PostingList>();
 		stopWords = new HashSet<String>();
-		wordsLoader = new TrendencyWordsLoader();
-		tokenizer = new MMTokenizer();
+		this.wordsLoader = wordsLoader;
 	}
 	
 	/**
 	 * 从语料中初始化矩阵
 	 * 矩阵的行为评论，矩阵的列为词到文档的索引
-	 * 这里并没有对词进行Id化，简单起见，只是过滤了停用词等
+	 * 语料按块读取（Pmi_Corpus_Mapped为true时映射文件），每块在线程池中分词、过滤停用词，词先映射为块内的局部ID；
+	 * 当前线程按块的顺序合并，把局部ID换成全局ID并加入索引。同时在途的块数有上限，
+	 * 评论ID和词ID与按行顺序处理时相同，与线程数无关。
+	 * 外存模式下读取失败时删除磁盘上的分词结果，之后computePMI会报错
 	 * @param path
+	 * @throws IllegalStateException 读取或者分词失败，被中断时保留中断状态
 	 */
 	public void initFromCorpus(String path) {
+		if (spillMemoryMb > 0 && comments != null) {
+			throw new IllegalStateException("out-of-core mode reads only one corpus");
+		}
 		stopWords = wordsLoader.getStopWords();
 		long start = System.currentTimeMillis();
-		String line = null;  
-        String comment = null;
-        try {
-        	FileReader fr = new FileReader(path);             
-            BufferedReader br = new BufferedReader(fr);
-            while((line = br.readLine()) != null){  
-                  comment = line.trim();     
-                  if (StringUtils.isBlank(comment)) {
-                	  continue;
-                  }
-                  if (comment.length() < 10) continue;
-                  if (comment.length() > 200) {
-                	  LOGGER.info("too long! comment = {}", comment);
-                	  continue;
-                  }
-                  List<String> words = tokenizer.getSplitedWords(comment);
-                  words = cleanWords(words);
-                  if (words.size() <= 1) {
-                	  continue;
-                  }
-                  totalWords += words.size();
-                  LOGGER.info("totalWords = {}", totalWords);
-                  compute(words);
-            }
-            br.close();
-            fr.close();
-        } catch(Exception e) {
-        	
-        }
-        long end = System.currentTimeMillis();
-        LOGGER.info("init corpus done! cost = {}", (end-start)/1000);
+		ForkJoinPool workers = openPool();
+		Ingestion ingestion = new Ingestion(workers, start);
+		boolean completed = false;
+		try {
+			if (spillMemoryMb > 0) {
+				comments = new CommentSpill(File.createTempFile("pmi-comments-", ".bin", spillDir));
+			}
+			if (Constants.PMI_CORPUS_MAPPED) {
+				readMapped(path, ingestion);
+			} else {
+				readLines(path, ingestion);
+			}
+			ingestion.finish();
+			if (comments != null) {
+				comments.finish();
+			}
+			completed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("init corpus " + path + " interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("init corpus " + path + " failed", e.getCause());
+		} catch (IOException e) {
+			throw new IllegalStateException("init corpus " + path + " failed", e);
+		} finally {
+			closePool(workers);
+			if (!completed && comments != null) {
+				comments.delete();
+			}
+		}
+		if (comments != null) {
+			LOGGER.info("comment spill {} = {} bytes", comments.getFile(), comments.bytes());
+		} else {
+			long bytes = 0;
+			for (PostingList commentIds : words2Comments) {
+				if (commentIds != null) {
+					commentIds.trimToSize();
+					bytes += commentIds.bytes();
+				}
+			}
+			LOGGER.info("posting lists = {} bytes", bytes);
+		}
+		long end = System.currentTimeMillis();
+		LOGGER.info("init corpus done! comments = {}, totalWords = {}, words = {}, cost = {}", 
+				commentCount(), totalWords, vocabulary.size(), (end-start)/1000);
 	}
 	
-	private List<String> cleanWords(List<String> words) {
-		List<String> cleaned = new ArrayList<String>();
-		for (String word : words) {
-			if (stopWords.contains(word)) {
-				continue;
+	/**
+	 * 外存模式下共现计数占用的内存上限，0表示内存模式，在initFromCorpus之前设置
+	 * @param spillMemoryMb
+	 */
+	public void setSpillMemoryMb(int spillMemoryMb) {
+		this.spillMemoryMb = spillMemoryMb;
+	}
+	
+	/**
+	 * 外存模式下临时文件的目录，在initFromCorpus之前设置
+	 * @param spillDir
+	 */
+	public void setSpillDir(String spillDir) {
+		this.spillDir = new File(spillDir);
+	}
+	
+	private int commentCount() {
+		return comments != null ? comments.size() : comments2Words.size();
+	}
+	
+	/**
+	 * 词在语料中出现的次数
+	 * @param word
+	 * @return
+	 */
+	private int wordFreq(int word) {
+		return comments != null ? wordFreqs[word] : commentsOf(word).totalFreq();
+	}
+	
+	/**
+	 * 按平台默认编码逐行读取，每CHUNK_LINES行为一块
+	 */
+	private void readLines(String path, Ingestion ingestion) throws IOException, InterruptedException, ExecutionException {
+		BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(path), Charset.defaultCharset()));
+		try {
+			List<String> lines = new ArrayList<String>(CHUNK_LINES);
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				lines.add(line);
+				if (lines.size() == CHUNK_LINES) {
+					ingestion.submit(new ChunkTask(lines, null));
+					lines = new ArrayList<String>(CHUNK_LINES);
+				}
 			}
-			if (StringUtils.isBlank(word)) {
-				continue;
+			if (!lines.isEmpty()) {
+				ingestion.submit(new ChunkTask(lines, null));
+			}
+		} finally {
+			br.close();
+		}
+	}
+	
+	/**
+	 * 映射文件，每块约CHUNK_BYTES字节，在换行处切分，解码和分行也在工作线程中进行
+	 */
+	private void readMapped(String path, Ingestion ingestion) throws IOException, InterruptedException, ExecutionException {
+		RandomAccessFile raf = new RandomAccessFile(path, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = channel.size();
+			long position = 0L;
+			while (position < size) {
+				long length = Math.min(CHUNK_BYTES, size - position);
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				int end = position + length == size ? (int) length : lastLineEnd(buffer);
+				/* 一行超过一块时扩大映射的范围 */
+				while (end == 0) {
+					length = Math.min(Math.min(length * 2, size - position), Integer.MAX_VALUE);
+					buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+					end = position + length == size ? (int) length : lastLineEnd(buffer);
+				}
+				buffer.limit(end);
+				ingestion.submit(new ChunkTask(null, buffer));
+				position += end;
+			}
+		} finally {
+			/* 关闭文件不影响已经建立的映射 */
+			raf.close();
+		}
+	}
+	
+	/**
+	 * 最后一个换行符之后的位置
+	 * @param buffer
+	 * @return 没有换行符时为0
+	 */
+	private static int lastLineEnd(ByteBuffer buffer) {
+		for (int i = buffer.limit() - 1; i >= 0; i--) {
+			if (buffer.get(i) == '\n') {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * 把解码后的文本按\n、\r或者\r\n分行，与BufferedReader.readLine一致
+	 * @param text
+	 * @return
+	 */
+	private static List<String> splitLines(CharBuffer text) {
+		List<String> lines = new ArrayList<String>();
+		int start = 0;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.get(i);
+			if (c == '\n' || c == '\r') {
+				lines.add(text.subSequence(start, i).toString());
+				if (c == '\r' && i + 1 < length && text.get(i + 1) == '\n') {
+					i++;
+				}
+				start = i + 1;
+			}
+		}
+		if (start < length) {
+			lines.add(text.subSequence(start, length).toString());
+		}
+		return lines;
+	}
+	
+	private ForkJoinPool openPool() {
+		if (pool != null) {
+			return pool;
+		}
+		return Constants.PMI_PARALLELISM > 0 ? new ForkJoinPool(Constants.PMI_PARALLELISM) : new ForkJoinPool();
+	}
+	
+	private void closePool(ForkJoinPool workers) {
+		if (workers != pool) {
+			workers.shutdown();
+		}
+	}
+	
+	/**
+	 * 一块语料的分词结果
+	 */
+	private static class ChunkResult {
+		/* 块内的词表，只包含保留下来的评论中过滤后的词 */
+		final Vocabulary words = new Vocabulary();
+		/* 过滤后的评论，元素为块内的局部ID */
+		final List<int[]> comments = new ArrayList<int[]>();
+		int lines = 0;
+	}
+	
+	/**
+	 * 在工作线程中对一块语料分词，lines和bytes有一个不为null
+	 */
+	private class ChunkTask implements Callable<ChunkResult> {
+		
+		private final List<String> lines;
+		private final ByteBuffer bytes;
+		
+		ChunkTask(List<String> lines, ByteBuffer bytes) {
+			this.lines = lines;
+			this.bytes = bytes;
+		}
+		
+		@Override
+		public ChunkResult call() {
+			List<String> comments = lines != null ? lines : splitLines(Charset.defaultCharset().decode(bytes));
+			MMTokenizer tokenizer = MMTokenizer.current();
+			ChunkResult result = new ChunkResult();
+			result.lines = comments.size();
+			/* 块内词表中需要过滤的词：停用词和空白，checked为已经检查过的词数 */
+			BitSet skipped = new BitSet();
+			int checked = 0;
+			Vocabulary words = new Vocabulary();
+			IntArrayList wordIds = new IntArrayList();
+			IntArrayList cleaned = new IntArrayList();
+			for (String line : comments) {
+				String comment = line.trim();
+				if (StringUtils.isBlank(comment)) {
+					continue;
+				}
+				if (comment.length() < 10) continue;
+				if (comment.length() > 200) {
+					LOGGER.info("too long! comment = {}", comment);
+					continue;
+				}
+				tokenizer.getWordIds(comment, words, wordIds);
+				for (; checked < words.size(); checked++) {
+					String word = words.word(checked);
+					if (stopWords.contains(word) || StringUtils.isBlank(word)) {
+						skipped.set(checked);
+					}
+				}
+				cleaned.clear();
+				for (int i = 0; i < wordIds.size(); i++) {
+					int word = wordIds.get(i);
+					if (!skipped.get(word)) {
+						cleaned.add(word);
+					}
+				}
+				if (cleaned.size() <= 1) {
+					continue;
+				}
+				int[] kept = new int[cleaned.size()];
+				for (int i = 0; i < kept.length; i++) {
+					kept[i] = result.words.intern(words.word(cleaned.get(i)));
+				}
+				result.comments.add(kept);
+			}
+			return result;
+		}
+	}
+	
+	/**
+	 * 提交分词任务，并按提交顺序合并结果；在调用initFromCorpus的线程中使用
+	 */
+	private class Ingestion {
+		
+		private final ForkJoinPool workers;
+		private final ArrayDeque<Future<ChunkResult>> pending = new ArrayDeque<Future<ChunkResult>>();
+		private final int maxPending;
+		private final long start;
+		private long lastReport;
+		private long lines = 0L;
+		
+		Ingestion(ForkJoinPool workers, long start) {
+			this.workers = workers;
+			this.maxPending = workers.getParallelism() * PENDING_PER_THREAD;
+			this.start = start;
+			this.lastReport = start;
+		}
+		
+		/**
+		 * 提交一块，在途的块数达到上限时先合并最早的一块
+		 */
+		void submit(ChunkTask task) throws InterruptedException, ExecutionException, IOException {
+			while (pending.size() >= maxPending) {
+				merge(pending.poll().get());
+			}
+			pending.add(workers.submit(task));
+		}
+		
+		void finish() throws InterruptedException, ExecutionException, IOException {
+			while (!pending.isEmpty()) {
+				merge(pending.poll().get());
+			}
+		}
+		
+		/**
+		 * 块内的词按首次出现的顺序加入全局词表，与顺序处理时分配的ID相同
+		 */
+		private void merge(ChunkResult result) throws IOException {
+			int[] globalIds = new int[result.words.size()];
+			for (int i = 0; i < globalIds.length; i++) {
+				globalIds[i] = vocabulary.intern(result.words.word(i));
+			}
+			for (int[] words : result.comments) {
+				for (int i = 0; i < words.length; i++) {
+					words[i] = globalIds[words[i]];
+				}
+				totalWords += words.length;
+				if (comments != null) {
+					spill(words);
+				} else {
+					compute(words);
+				}
+			}
+			lines += result.lines;
+			long now = System.currentTimeMillis();
+			if (now - lastReport >= PROGRESS_INTERVAL_MILLIS) {
+				LOGGER.info("lines = {}, comments = {}, totalWords = {}, words = {}, lines/sec = {}", 
+						lines, commentCount(), totalWords, vocabulary.size(), lines * 1000L / Math.max(now - start, 1L));
+				lastReport = now;
 			}
-			cleaned.add(word);
 		}
-		return cleaned;
 	}
 	
 	/**
 	 * 将分词结果存入矩阵
 	 * @param words
 	 */
-	private void compute(List<String> words) {
-		long cId = comments2Words.size() + 1;
-		comments2Words.put(cId, words);
-		for (String word: words) {
-			if (words2Comments.containsKey(word)) {
-				List<Long> commentIds = words2Comments.get(word);
-				commentIds.add(cId);
-			} else {
-				List<Long> commentIds = new ArrayList<Long>();
-				commentIds.add(cId);
-				words2Comments.put(word, commentIds);
+	private void compute(int[] words) {
+		comments2Words.add(words);
+		int cId = comments2Words.size();
+		for (int word : words) {
+			while (words2Comments.size() <= word) {
+				words2Comments.add(null);
 			}
+			PostingList commentIds = words2Comments.get(word);
+			if (commentIds == null) {
+				commentIds = new PostingList();
+				words2Comments.set(word, commentIds);
+			}
+			commentIds.add(cId);
 		}
 	}
 	
+	/**
+	 * 外存模式下把分词结果写入磁盘，只在内存中记录词频
+	 * @param words
+	 * @throws IOException
+	 */
+	private void spill(int[] words) throws IOException {
+		comments.write(words);
+		for (int word : words) {
+			if (word >= wordFreqs.length) {
+				wordFreqs = Arrays.copyOf(wordFreqs, Math.max(word + 1, wordFreqs.length * 2));
+			}
+			wordFreqs[word]++;
+		}
+	}
+	
+	private PostingList commentsOf(int word) {
+		return word >= 0 && word < words2Comments.size() ? words2Comments.get(word) : null;
+	}
+	
+	/**
+	 * 语料的词表，词ID按首次出现的顺序分配
+	 * @return
+	 */
+	Vocabulary getVocabulary() {
+		return vocabulary;
+	}
+	
+	/**
+	 * 两个词的共现次数，由倒排索引求交集得到，外存模式下不能使用
+	 * @param word1 词ID
+	 * @param word2 词ID
+	 * @return
+	 */
+	int getCoFreq(int word1, int word2) {
+		if (comments != null) {
+			throw new IllegalStateException("co-occurrences of word pairs are not available in out-of-core mode");
+		}
+		PostingList word1CommentIds = commentsOf(word1);
+		PostingList word2CommentIds = commentsOf(word2);
+		if (word1CommentIds == null || word2CommentIds == null) {
+			return 0;
+		}
+		return PostingList.intersect(word1CommentIds, word2CommentIds);
+	}
 	
 	public double getPMIScore(String word1, String word2) {
+		return getPMIScore(vocabulary.find(word1), vocabulary.find(word2));
+	}
+	
+	/**
+	 * 两个词的pmi分数，外存模式下没有倒排索引，不能使用
+	 * @param word1 词ID
+	 * @param word2 词ID
+	 * @return 没有共现时为0
+	 */
+	public double getPMIScore(int word1, int word2) {
+		if (comments != null) {
+			throw new IllegalStateException("pmi of word pairs is not available in out-of-core mode");
+		}
 		double score = 0.0D;
-		List<Long> word1CommentIds = words2Comments.get(word1);
-		List<Long> word2CommentIds = words2Comments.get(word2);
+		PostingList word1CommentIds = commentsOf(word1);
+		PostingList word2CommentIds = commentsOf(word2);
 		if (word1CommentIds == null || word2CommentIds == null) {
 			return score;
 		}
-		if (word1CommentIds.size() == 0 || word2CommentIds.size() == 0) {
+		if (word1CommentIds.totalFreq() == 0 || word2CommentIds.totalFreq() == 0) {
 			return score;
 		}
-		int word1Freq = word1CommentIds.size();
-		int word2Freq = word2CommentIds.size();
-		double word1Prob = div(word1Freq, totalWords, 8);
-		double word2Prob = div(word2Freq, totalWords, 8);
-		Map<Long, Integer> word1Map = list2Map(word1CommentIds);
-		Map<Long, Integer> word2Map = list2Map(word2CommentIds);
-		int uniFreq = 0;
-		for (Map.Entry<Long, Integer> entry : word1Map.entrySet()) {
-			long id = entry.getKey();
-			if (word2Map.containsKey(id)) {
-				uniFreq += Math.min(entry.getValue(), word2Map.get(id));
-			}
-		}
-		
+		int uniFreq = PostingList.intersect(word1CommentIds, word2CommentIds);
+		return pmi(uniFreq, word1CommentIds.totalFreq(), word2CommentIds.totalFreq());
+	}
+	
+	/**
+	 * 由共现次数和两个词的出现次数计算pmi分数
+	 * @param uniFreq
+	 * @param word1Freq
+	 * @param word2Freq
+	 * @return 没有共现时为0
+	 */
+	private double pmi(int uniFreq, int word1Freq, int word2Freq) {
 		if (uniFreq == 0) {
-			return score;
+			return 0.0D;
 		}
+		double word1Prob = div(word1Freq, totalWords, 8);
+		double word2Prob = div(word2Freq, totalWords, 8);
 		double uniProb = div(uniFreq, totalWords, 8);
 		return Math.log(div(uniProb, word1Prob*word2Prob, 8));
 	}
@@ -171,77 +582,362 @@ public class PMIGenerator {
     }
 	
 	
-	private static Map<Long, Integer> list2Map(List<Long> ids) {
-		Map<Long, Integer> map = new HashMap<Long, Integer>();
-		for (Long id : ids) {
-			if (map.containsKey(id)) {
-				map.put(id, map.get(id) + 1);
-			} else {
-				map.put(id, 1);
+	/**
+	 * 统计[from, to)区间的评论中情感词与每个共现词的共现次数
+	 * 每条评论先统计词频，对其中的每个情感词和每个不同的词，共现次数加上两者词频的较小值，与PostingList.intersect一致
+	 * @param senIndexes 下标为词ID，情感词为它在情感词列表中的序号，其他为-1
+	 * @param from 评论下标
+	 * @param to
+	 * @param scratch 同一次计数中叶子任务之间复用的词频数组，全为0；取不到时新建，用完放回
+	 * @return 键为(情感词序号, 共现词ID)
+	 */
+	private LongIntHashMap countCoOccurrences(int[] senIndexes, int from, int to, ConcurrentLinkedQueue<int[]> scratch) {
+		LongIntHashMap counts = new LongIntHashMap(1024);
+		int[] freqs = scratch.poll();
+		if (freqs == null) {
+			freqs = new int[vocabulary.size()];
+		}
+		IntArrayList distinct = new IntArrayList();
+		for (int c = from; c < to; c++) {
+			int[] words = comments2Words.get(c);
+			addCoOccurrences(words, words.length, senIndexes, freqs, distinct, counts);
+		}
+		/* 用完后全为0才放回，出错时不会执行到这里 */
+		scratch.offer(freqs);
+		return counts;
+	}
+	
+	/**
+	 * 外存模式下顺序读取磁盘上的分词结果，统计共现次数
+	 * @param senIndexes
+	 * @param counts 超过内存上限时溢写
+	 * @throws IOException
+	 */
+	private void countSpilledCoOccurrences(int[] senIndexes, SpillingPairCounter counts) throws IOException {
+		int[] freqs = new int[vocabulary.size()];
+		IntArrayList distinct = new IntArrayList();
+		IntArrayList words = new IntArrayList();
+		CommentSpill.Reader reader = comments.open();
+		try {
+			while (reader.next(words)) {
+				addCoOccurrences(words.elements(), words.size(), senIndexes, freqs, distinct, counts);
 			}
+		} finally {
+			reader.close();
 		}
-		return map;
 	}
 	
 	/**
-	 * 获取一个词的共现词
-	 * @param word
-	 * @return
+	 * 一条评论中的共现次数
+	 * @param words 评论的词ID
+	 * @param length 有效长度
+	 * @param senIndexes
+	 * @param freqs 按词ID的词频，调用前后都为0
+	 * @param distinct 评论中不同的词，调用前后都为空
+	 * @param counts
 	 */
-	private List<String> getCoWords(String word) {
-		Set<String> words = new HashSet<String>();
-		List<Long> commentIds = words2Comments.get(word);
-		if (commentIds == null || commentIds.size() == 0) {
-			return new ArrayList<String>();
+	private static void addCoOccurrences(int[] words, int length, int[] senIndexes, int[] freqs, 
+			IntArrayList distinct, LongIntHashMap counts) {
+		for (int k = 0; k < length; k++) {
+			if (freqs[words[k]]++ == 0) {
+				distinct.add(words[k]);
+			}
+		}
+		int[] ids = distinct.elements();
+		int n = distinct.size();
+		for (int i = 0; i < n; i++) {
+			int sen = senIndexes[ids[i]];
+			if (sen < 0) {
+				continue;
+			}
+			int senFreq = freqs[ids[i]];
+			for (int j = 0; j < n; j++) {
+				counts.add(LongIntHashMap.key(sen, ids[j]), Math.min(senFreq, freqs[ids[j]]));
+			}
 		}
-		for (Long id: commentIds) {
-			words.addAll(comments2Words.get(id));
+		for (int i = 0; i < n; i++) {
+			freqs[ids[i]] = 0;
 		}
-		return new ArrayList<String>(words);
+		distinct.clear();
 	}
 	
 	/**
-	 * 计算与情感词的pmi分数并输出到文件
+	 * 计算与情感词的pmi分数并输出到文件，只能在pool的工作线程中调用
+	 * 共现词的分数按情感词在senWordsMap中的顺序累加，同一个情感词的共现词按ID顺序输出
 	 * @param path
+	 * @param senWordsMap
+	 * @param spillBytes 外存模式下这个情感词典占用的内存上限，扣除按词分配的数组后用于共现计数
 	 * @throws IOException 
 	 */
-	private void computePMIScore(String path, Map<String, Double> senWordsMap) throws IOException {
-		FileWriter fw = new FileWriter(path);
-		Map<String, Double> scores = new HashMap<String, Double>();
-		double weight = 0.0D;
-		for (Map.Entry<String, Double> entry : senWordsMap.entrySet()) {
-			String word = entry.getKey();
-			List<String> coWords = getCoWords(word);
-			if (coWords.isEmpty()) {
-				continue;
+	private void computePMIScore(String path, Map<String, Double> senWordsMap, long spillBytes) throws IOException {
+		/* 按序号存放的情感词ID，以及词ID到序号的映射 */
+		int[] senWords = new int[senWordsMap.size()];
+		int[] senIndexes = new int[vocabulary.size()];
+		Arrays.fill(senIndexes, -1);
+		int senCount = 0;
+		for (String senWord : senWordsMap.keySet()) {
+			int word = vocabulary.find(senWord);
+			if (word != Vocabulary.UNKNOWN) {
+				senWords[senCount] = word;
+				senIndexes[word] = senCount++;
 			}
-			for (String coWord : coWords) {
-				weight = getPMIScore(word, coWord);
-				if (scores.containsKey(coWord)) {
-					weight += scores.get(coWord);
+		}
+		/* 按词ID累加的分数，scoredWords记录出现过的词 */
+		double[] scores = new double[vocabulary.size()];
+		IntArrayList scoredWords = new IntArrayList();
+		BitSet scored = new BitSet(vocabulary.size());
+		if (comments == null) {
+			int chunkSize = chunkSize(comments2Words.size());
+			/* 同时运行的叶子任务不超过工作线程数，数组个数也不超过它，计数结束后随队列释放 */
+			ConcurrentLinkedQueue<int[]> scratch = new ConcurrentLinkedQueue<int[]>();
+			LongIntHashMap counts = new CountTask(senIndexes, 0, comments2Words.size(), chunkSize, scratch).invoke();
+			long[] pairs = counts.keys();
+			Arrays.sort(pairs);
+			double[] pairScores = new double[pairs.length];
+			new ScoreTask(pairs, counts, senWords, pairScores, 0, pairs.length, chunkSize(pairs.length)).invoke();
+			for (int i = 0; i < pairs.length; i++) {
+				accumulate(LongIntHashMap.low(pairs[i]), pairScores[i], scores, scored, scoredWords);
+			}
+		} else {
+			SpillingPairCounter counts = new SpillingPairCounter(spillDir, 
+					spillBytes - (long) vocabulary.size() * SPILL_BYTES_PER_WORD);
+			try {
+				countSpilledCoOccurrences(senIndexes, counts);
+				SpillingPairCounter.SortedPairs pairs = counts.sorted();
+				LOGGER.info("{}: {} runs, {} spilled pairs", path, counts.runCount(), counts.spilledPairs());
+				try {
+					while (pairs.next()) {
+						int word = senWords[LongIntHashMap.high(pairs.key())];
+						int coWord = LongIntHashMap.low(pairs.key());
+						accumulate(coWord, pmi(pairs.count(), wordFreq(word), wordFreq(coWord)), scores, scored, scoredWords);
+					}
+				} finally {
+					pairs.close();
 				}
-				scores.put(coWord, weight);
+			} finally {
+				counts.close();
 			}
 		}
-		for (Map.Entry<String, Double> entry : scores.entrySet()) {
-			weight = entry.getValue()/senWordsMap.size();
-			LOGGER.info("word = {} score = {}", entry.getKey(), weight);
-			fw.write(entry.getKey() + "=" + weight + "\n");
+		
+		/* 先写临时文件再重命名，读取分数文件的进程不会看到写了一半的文件 */
+		StringBuilder text = new StringBuilder();
+		double weight = 0.0D;
+		for (int i = 0; i < scoredWords.size(); i++) {
+			int word = scoredWords.get(i);
+			weight = scores[word]/senWordsMap.size();
+			LOGGER.info("word = {} score = {}", vocabulary.word(word), weight);
+			text.append(vocabulary.word(word)).append('=').append(weight).append('\n');
 		}
-		fw.close();
+		AtomicFiles.write(new File(path), Charset.defaultCharset().encode(CharBuffer.wrap(text)));
 	}
 	
 	
+	/**
+	 * 把一个词对的分数累加到共现词上
+	 */
+	private static void accumulate(int coWord, double pmi, double[] scores, BitSet scored, IntArrayList scoredWords) {
+		double weight = pmi;
+		if (scored.get(coWord)) {
+			weight += scores[coWord];
+		} else {
+			scored.set(coWord);
+			scoredWords.add(coWord);
+		}
+		scores[coWord] = weight;
+	}
+	
+	/**
+	 * 释放从LexiconRegistry引用的词库，自行传入的词库不受影响；外存模式下删除磁盘上的分词结果
+	 */
+	public void close() {
+		if (comments != null) {
+			comments.delete();
+		}
+		if (registered) {
+			registered = false;
+			LexiconRegistry.release(wordsLoader);
+		}
+	}
+	
+	/**
+	 * 正负例的pmi分数在线程池中同时计算
+	 * @throws IllegalStateException 外存模式下语料没有完整读入
+	 */
 	public void computePMI() {
-		String posPath = "D:/changyancomments/pmiscores/posScore.txt";
-		String negPath = "D:/changyancomments/pmiscores/negScore.txt";
-		Map<String, Double> posWordsMap = wordsLoader.getPosSenWordsMap();
-		Map<String, Double> negWordsMap = wordsLoader.getNegSenWordsMap();
+		computePMI("D:/changyancomments/pmiscores/posScore.txt", "D:/changyancomments/pmiscores/negScore.txt");
+	}
+	
+	/**
+	 * 正负例的pmi分数在线程池中同时计算，分别写入posPath和negPath
+	 * 一个情感词典失败不影响另一个，两个都结束后再报告失败
+	 * @param posPath
+	 * @param negPath
+	 * @throws IllegalStateException 外存模式下语料没有完整读入，或者有情感词典计算、写入失败，
+	 * 每个失败作为suppressed异常附加在其中
+	 */
+	public void computePMI(final String posPath, final String negPath) {
+		if (comments != null && !comments.isFinished()) {
+			throw new IllegalStateException("comment spill " + comments.getFile() 
+					+ " is not available, initFromCorpus did not complete");
+		}
+		final Map<String, Double> posWordsMap = wordsLoader.getPosSenWordsMap();
+		final Map<String, Double> negWordsMap = wordsLoader.getNegSenWordsMap();
+		ForkJoinPool workers = openPool();
+		/* 正负例同时计数，各用一半内存 */
+		final long spillBytes = spillMemoryMb * (1L << 20) / 2;
+		long start = System.currentTimeMillis();
+		final ScoreFileTask[] tasks = {
+			new ScoreFileTask(posPath, posWordsMap, spillBytes), 
+			new ScoreFileTask(negPath, negWordsMap, spillBytes)
+		};
 		try {
-			computePMIScore(posPath, posWordsMap);
-			computePMIScore(negPath, negWordsMap);
-		} catch (IOException e) {
-			
+			workers.invoke(new RecursiveAction() {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		} finally {
+			closePool(workers);
+		}
+		IllegalStateException failure = null;
+		for (ScoreFileTask task : tasks) {
+			if (task.failure != null) {
+				if (failure == null) {
+					failure = new IllegalStateException("compute pmi failed");
+				}
+				failure.addSuppressed(task.failure);
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+		LOGGER.info("compute pmi done! parallelism = {}, cost = {}ms", 
+				workers.getParallelism(), System.currentTimeMillis() - start);
+	}
+	
+	private int chunkSize(int total) {
+		ForkJoinPool current = ForkJoinTask.getPool();
+		int parallelism = current == null ? 1 : current.getParallelism();
+		return Math.max(MIN_CHUNK_SIZE, total / (parallelism * CHUNKS_PER_THREAD));
+	}
+	
+	/**
+	 * 计算一个情感词典的pmi分数并写入文件，失败时记录异常，由computePMI在两个任务都结束后抛出
+	 */
+	private class ScoreFileTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final String path;
+		private final Map<String, Double> senWordsMap;
+		private final long spillBytes;
+		/* 计算或者写入失败的原因，join之后读取 */
+		Exception failure = null;
+		
+		ScoreFileTask(String path, Map<String, Double> senWordsMap, long spillBytes) {
+			this.path = path;
+			this.senWordsMap = senWordsMap;
+			this.spillBytes = spillBytes;
+		}
+		
+		@Override
+		protected void compute() {
+			try {
+				computePMIScore(path, senWordsMap, spillBytes);
+			} catch (IOException e) {
+				LOGGER.error("write pmi scores to " + path + " failed", e);
+				failure = e;
+			} catch (RuntimeException e) {
+				/* 例如溢写失败，不影响另一个情感词典 */
+				LOGGER.error("compute pmi scores for " + path + " failed", e);
+				failure = e;
+			}
+		}
+	}
+	
+	/**
+	 * 统计[from, to)区间评论中的共现次数，超过chunkSize时对半拆分，两半的结果合并到较大的一个中
+	 * 叶子任务从scratch中取词频数组，不在工作线程上保留，调用方提供的线程池中也不会残留
+	 */
+	private class CountTask extends RecursiveTask<LongIntHashMap> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final int[] senIndexes;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+		private final ConcurrentLinkedQueue<int[]> scratch;
+		
+		CountTask(int[] senIndexes, int from, int to, int chunkSize, ConcurrentLinkedQueue<int[]> scratch) {
+			this.senIndexes = senIndexes;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.scratch = scratch;
+		}
+		
+		@Override
+		protected LongIntHashMap compute() {
+			if (to - from <= chunkSize) {
+				return countCoOccurrences(senIndexes, from, to, scratch);
+			}
+			int mid = (from + to) >>> 1;
+			CountTask left = new CountTask(senIndexes, from, mid, chunkSize, scratch);
+			left.fork();
+			LongIntHashMap right = new CountTask(senIndexes, mid, to, chunkSize, scratch).compute();
+			LongIntHashMap counts = left.join();
+			if (counts.size() < right.size()) {
+				right.addAll(counts);
+				return right;
+			}
+			counts.addAll(right);
+			return counts;
+		}
+	}
+	
+	/**
+	 * 计算[from, to)区间词对的pmi分数，超过chunkSize时对半拆分
+	 */
+	private class ScoreTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final long[] pairs;
+		private final LongIntHashMap counts;
+		private final int[] senWords;
+		private final double[] scores;
+		private final int from;
+		private final int to;
+		private final int chunkSize;
+		
+		ScoreTask(long[] pairs, LongIntHashMap counts, int[] senWords, double[] scores, 
+				int from, int to, int chunkSize) {
+			this.pairs = pairs;
+			this.counts = counts;
+			this.senWords = senWords;
+			this.scores = scores;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+		}
+		
+		@Override
+		protected void compute() {
+			if (to - from <= chunkSize) {
+				for (int i = from; i < to; i++) {
+					int word = senWords[LongIntHashMap.high(pairs[i])];
+					int coWord = LongIntHashMap.low(pairs[i]);
+					scores[i] = pmi(counts.get(pairs[i]), wordFreq(word), wordFreq(coWord));
+				}
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new ScoreTask(pairs, counts, senWords, scores, from, mid, chunkSize),
+					new ScoreTask(pairs, counts, senWords, scores, mid, to, chunkSize));
 		}
 	}
 	
@@ -250,6 +946,7 @@ public class PMIGenerator {
 		String corpus = "D:/changyancomments/rawcomment/rawComments.txt";
 		pmi.initFromCorpus(corpus);
 		pmi.computePMI();
+		pmi.close();
 	}
 	
 }
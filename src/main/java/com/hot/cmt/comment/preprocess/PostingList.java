@@ -0,0 +1,284 @@
+package com.hot.cmt.comment.preprocess;
+
+import java.util.Arrays;
+
+import com.hot.cmt.comment.util.IntArrayList;
+
+/**
+ * 倒排索引中一个词的评论列表，评论ID递增，同一条评论只保存一次并记录词在其中出现的次数
+ * 压缩格式：每条评论写一个varint，值为(与上一条评论ID的差 &lt;&lt; 1) | (次数为1 ? 1 : 0)，次数大于1时再写一个varint。
+ * 每SKIP_INTERVAL条评论记录一个跳表项，求交集时按跳表倍增查找，不需要逐条解码。
+ * 同一条评论的多次add要连续，最后一条评论在flush或者下一条评论加入时写入；读取前要先flush。
+ * 评论ID从1开始，小于2^30
+ * @author yongleixiao
+ *
+ */
+public class PostingList {
+
+	/* 每个跳表项之间的评论数 */
+	static final int SKIP_INTERVAL = 64;
+	/* 评论ID的上限，差值左移一位后不能溢出 */
+	static final int MAX_ID = (1 << 30) - 1;
+
+	private byte[] data;
+	private int length = 0;
+	/* 已经写入的评论数 */
+	private int docCount = 0;
+	/* 出现的总次数，包括尚未写入的 */
+	private int totalFreq = 0;
+	/* 最后一条已经写入的评论ID */
+	private int lastDoc = 0;
+	/* 尚未写入的评论 */
+	private int pendingDoc = 0;
+	private int pendingFreq = 0;
+	/* 第k个跳表项对应第(k + 1) * SKIP_INTERVAL条评论：它之前一条评论的ID和它在data中的位置 */
+	private int[] skipDocs = null;
+	private int[] skipOffsets = null;
+	private int skipCount = 0;
+
+	public PostingList() {
+		this(8);
+	}
+
+	/**
+	 * @param capacity 预计的字节数
+	 */
+	public PostingList(int capacity) {
+		data = new byte[Math.max(capacity, 4)];
+	}
+
+	/**
+	 * 记录词在评论中出现一次
+	 * @param doc 评论ID，不小于上一次add的ID
+	 */
+	public void add(int doc) {
+		if (pendingFreq > 0 && doc == pendingDoc) {
+			pendingFreq++;
+			totalFreq++;
+			return;
+		}
+		if (doc <= Math.max(lastDoc, pendingDoc) || doc > MAX_ID) {
+			throw new IllegalArgumentException("comment id " + doc + " out of order, last = " + Math.max(lastDoc, pendingDoc));
+		}
+		flush();
+		pendingDoc = doc;
+		pendingFreq = 1;
+		totalFreq++;
+	}
+
+	/**
+	 * 写入最后一条评论，之后可以读取，也可以继续add更大的评论ID
+	 */
+	public void flush() {
+		if (pendingFreq == 0) {
+			return;
+		}
+		if (docCount > 0 && docCount % SKIP_INTERVAL == 0) {
+			if (skipDocs == null) {
+				skipDocs = new int[4];
+				skipOffsets = new int[4];
+			} else if (skipCount == skipDocs.length) {
+				skipDocs = Arrays.copyOf(skipDocs, skipCount * 2);
+				skipOffsets = Arrays.copyOf(skipOffsets, skipCount * 2);
+			}
+			skipDocs[skipCount] = lastDoc;
+			skipOffsets[skipCount] = length;
+			skipCount++;
+		}
+		int delta = pendingDoc - lastDoc;
+		if (pendingFreq == 1) {
+			writeVInt(delta << 1 | 1);
+		} else {
+			writeVInt(delta << 1);
+			writeVInt(pendingFreq);
+		}
+		lastDoc = pendingDoc;
+		docCount++;
+		pendingFreq = 0;
+	}
+
+	/**
+	 * flush并把数组缩小到实际长度
+	 */
+	public void trimToSize() {
+		flush();
+		if (data.length > length) {
+			data = Arrays.copyOf(data, Math.max(length, 4));
+		}
+		if (skipDocs != null && skipDocs.length > skipCount) {
+			skipDocs = Arrays.copyOf(skipDocs, skipCount);
+			skipOffsets = Arrays.copyOf(skipOffsets, skipCount);
+		}
+	}
+
+	/**
+	 * 出现过的评论数
+	 * @return
+	 */
+	public int docCount() {
+		return pendingFreq > 0 ? docCount + 1 : docCount;
+	}
+
+	/**
+	 * 在所有评论中出现的总次数
+	 * @return
+	 */
+	public int totalFreq() {
+		return totalFreq;
+	}
+
+	/**
+	 * 压缩后的字节数
+	 * @return
+	 */
+	public int bytes() {
+		return length;
+	}
+
+	/**
+	 * 按顺序解码评论ID
+	 * @param docs 清空后写入
+	 */
+	public void docs(IntArrayList docs) {
+		docs.clear();
+		int offset = 0;
+		int doc = 0;
+		for (int i = 0; i < docCount; i++) {
+			long v = readVInt(data, offset);
+			offset = (int) v;
+			int code = (int) (v >>> 32);
+			doc += code >>> 1;
+			if ((code & 1) == 0) {
+				offset = (int) readVInt(data, offset);
+			}
+			docs.add(doc);
+		}
+	}
+
+	/**
+	 * 两个词的共现次数：同时出现的每条评论取两个词出现次数的较小值，求和。
+	 * 顺序解码较短的列表，较长的列表按跳表倍增查找后在块内解码，不分配内存。两个列表都要已经flush
+	 * @param a
+	 * @param b
+	 * @return
+	 */
+	public static int intersect(PostingList a, PostingList b) {
+		if (a.docCount > b.docCount) {
+			PostingList t = a;
+			a = b;
+			b = t;
+		}
+		byte[] aData = a.data;
+		byte[] bData = b.data;
+		int aOffset = 0;
+		int aDoc = 0;
+		int aFreq = 0;
+		int bOffset = 0;
+		/* b中最后解码的评论，bIndex为下一条要解码的序号 */
+		int bDoc = 0;
+		int bFreq = 0;
+		int bIndex = 0;
+		int uniFreq = 0;
+		for (int i = 0; i < a.docCount; i++) {
+			long v = readVInt(aData, aOffset);
+			aOffset = (int) v;
+			int code = (int) (v >>> 32);
+			aDoc += code >>> 1;
+			if ((code & 1) != 0) {
+				aFreq = 1;
+			} else {
+				v = readVInt(aData, aOffset);
+				aOffset = (int) v;
+				aFreq = (int) (v >>> 32);
+			}
+			if (bDoc < aDoc) {
+				int skip = b.skipTo(bIndex, aDoc);
+				if (skip >= 0) {
+					bIndex = (skip + 1) * SKIP_INTERVAL;
+					bOffset = b.skipOffsets[skip];
+					bDoc = b.skipDocs[skip];
+				}
+				while (bDoc < aDoc && bIndex < b.docCount) {
+					v = readVInt(bData, bOffset);
+					bOffset = (int) v;
+					code = (int) (v >>> 32);
+					bDoc += code >>> 1;
+					if ((code & 1) != 0) {
+						bFreq = 1;
+					} else {
+						v = readVInt(bData, bOffset);
+						bOffset = (int) v;
+						bFreq = (int) (v >>> 32);
+					}
+					bIndex++;
+				}
+				if (bDoc < aDoc) {
+					break;
+				}
+			}
+			if (bDoc == aDoc) {
+				uniFreq += Math.min(aFreq, bFreq);
+			}
+		}
+		return uniFreq;
+	}
+
+	/**
+	 * 第index条评论之后、ID小于target的最后一个跳表项
+	 * 从index所在的块开始按1、2、4...倍增，再在最后一段中二分
+	 * @param index 下一条要解码的序号
+	 * @param target
+	 * @return 跳表项下标，不需要跳时为-1
+	 */
+	private int skipTo(int index, int target) {
+		int low = index / SKIP_INTERVAL;
+		if (low >= skipCount || skipDocs[low] >= target) {
+			return -1;
+		}
+		int step = 1;
+		int high = low + 1;
+		while (high < skipCount && skipDocs[high] < target) {
+			low = high;
+			step <<= 1;
+			high = low + step;
+		}
+		high = Math.min(high, skipCount);
+		/* skipDocs[low] < target，high为上界（不含）或者skipDocs[high] >= target */
+		while (high - low > 1) {
+			int mid = (low + high) >>> 1;
+			if (skipDocs[mid] < target) {
+				low = mid;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private void writeVInt(int value) {
+		if (length + 5 > data.length) {
+			data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+		}
+		while ((value & ~0x7f) != 0) {
+			data[length++] = (byte) ((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		data[length++] = (byte) value;
+	}
+
+	/**
+	 * 解码一个varint
+	 * @param data
+	 * @param offset
+	 * @return 高32位为值，低32位为之后的位置
+	 */
+	private static long readVInt(byte[] data, int offset) {
+		int b = data[offset++];
+		int value = b & 0x7f;
+		for (int shift = 7; b < 0; shift += 7) {
+			b = data[offset++];
+			value |= (b & 0x7f) << shift;
+		}
+		return (long) value << 32 | offset;
+	}
+}
@@ -0,0 +1,341 @@
+package com.hot.cmt.comment.preprocess;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.hot.cmt.comment.util.LongIntHashMap;
+
+/**
+ * 内存有上限的词对计数
+ * 键数达到maxPairs时，把当前的计数按键排序后写入一个临时文件（run），清空后继续累加；
+ * 计数结束后调用sorted()对所有run做k路归并，同一个键在各个run中的计数相加，按键递增依次给出；
+ * run数超过fanIn时先把最早的fanIn个归并成一个新的run，限制同时打开的文件数。
+ * 内存上限包括哈希表和归并时fanIn个读取缓冲区加一个写入缓冲区，fanIn随上限在MIN_FAN_IN和MAX_FAN_IN之间取值；
+ * 上限很小时至少保留1024个键和MIN_FAN_IN路归并，实际占用可能超过上限。
+ * 溢写之后get()只反映内存中的部分，不能再用于查询。不能在多个线程中同时使用
+ * @author yongleixiao
+ *
+ */
+public class SpillingPairCounter extends LongIntHashMap {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SpillingPairCounter.class);
+
+	/* 每个键在内存中占用的字节数上限：哈希表最多为键数的4倍槽位，每个槽位12字节，溢写时排序的数组每个键8字节 */
+	public static final int BYTES_PER_PAIR = 56;
+
+	/* 一次归并最多同时读取的run数 */
+	static final int MAX_FAN_IN = 128;
+
+	/* 内存上限很小时一次归并的run数 */
+	static final int MIN_FAN_IN = 4;
+
+	/* 每个run的读写缓冲区大小 */
+	static final int BUFFER_SIZE = 1 << 16;
+
+	private final File dir;
+	private final int maxPairs;
+	private final int fanIn;
+	private final List<Run> runs = new ArrayList<Run>();
+	private long spilledPairs = 0L;
+
+	/**
+	 * 归并缓冲区最多占用一半内存，其余用于计数
+	 * @param dir 临时文件目录
+	 * @param maxBytes 计数和归并缓冲区占用的内存上限
+	 */
+	public SpillingPairCounter(File dir, long maxBytes) {
+		this(dir, maxPairs(maxBytes, fanIn(maxBytes)), fanIn(maxBytes));
+	}
+
+	/**
+	 * @param dir 临时文件目录
+	 * @param maxPairs 内存中的键数上限
+	 * @param fanIn 一次归并最多同时读取的run数
+	 */
+	SpillingPairCounter(File dir, int maxPairs, int fanIn) {
+		super(maxPairs);
+		this.dir = dir;
+		this.maxPairs = maxPairs;
+		this.fanIn = fanIn;
+	}
+
+	private static int fanIn(long maxBytes) {
+		return (int) Math.min(Math.max(maxBytes / 2 / BUFFER_SIZE - 1, MIN_FAN_IN), MAX_FAN_IN);
+	}
+
+	private static int maxPairs(long maxBytes, int fanIn) {
+		long pairBytes = maxBytes - (fanIn + 1L) * BUFFER_SIZE;
+		return (int) Math.min(Math.max(pairBytes / BYTES_PER_PAIR, 1024L), 1 << 29);
+	}
+
+	/**
+	 * 累加计数，键数达到上限时溢写
+	 */
+	@Override
+	public void add(long key, int delta) {
+		super.add(key, delta);
+		if (size() >= maxPairs) {
+			try {
+				spill();
+			} catch (IOException e) {
+				throw new IllegalStateException("spill pair counts to " + dir + " failed", e);
+			}
+		}
+	}
+
+	/**
+	 * 把内存中的计数写入新的run并清空
+	 * @throws IOException
+	 */
+	public void spill() throws IOException {
+		if (isEmpty()) {
+			return;
+		}
+		long[] keys = keys();
+		Arrays.sort(keys);
+		File file = File.createTempFile("pmi-pairs-", ".run", dir);
+		/* 先登记，写入失败时close也能删除 */
+		runs.add(new Run(file, keys.length));
+		DataOutputStream out = openRun(file);
+		try {
+			for (long key : keys) {
+				out.writeLong(key);
+				out.writeInt(get(key));
+			}
+		} finally {
+			out.close();
+		}
+		spilledPairs += keys.length;
+		clear();
+		LOGGER.debug("spilled {} pairs to {}", keys.length, file);
+	}
+
+	/**
+	 * 把最早的fanIn个run归并成一个，放在末尾
+	 * @throws IOException
+	 */
+	private void mergeOldest() throws IOException {
+		List<Run> inputs = new ArrayList<Run>(runs.subList(0, fanIn));
+		File file = File.createTempFile("pmi-pairs-", ".run", dir);
+		Run merged = new Run(file, 0L);
+		runs.add(merged);
+		long size = 0L;
+		SortedPairs pairs = new SortedPairs(inputs);
+		try {
+			DataOutputStream out = openRun(file);
+			try {
+				while (pairs.next()) {
+					out.writeLong(pairs.key());
+					out.writeInt(pairs.count());
+					size++;
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			pairs.close();
+		}
+		runs.remove(merged);
+		runs.add(new Run(file, size));
+		for (Run run : inputs) {
+			runs.remove(run);
+			delete(run);
+		}
+	}
+
+	/**
+	 * 溢写剩余的计数，对所有run做k路归并
+	 * @return 按键递增的计数，用完后关闭
+	 * @throws IOException
+	 */
+	public SortedPairs sorted() throws IOException {
+		spill();
+		while (runs.size() > fanIn) {
+			mergeOldest();
+		}
+		return new SortedPairs(runs);
+	}
+
+	/**
+	 * 一次归并最多同时读取的run数
+	 * @return
+	 */
+	int fanIn() {
+		return fanIn;
+	}
+
+	/**
+	 * 内存中的键数上限，达到时溢写
+	 * @return
+	 */
+	int maxPairs() {
+		return maxPairs;
+	}
+
+	/**
+	 * 已经写入的run数
+	 * @return
+	 */
+	public int runCount() {
+		return runs.size();
+	}
+
+	/**
+	 * 写入过run的键数，同一个键在不同run中重复计算
+	 * @return
+	 */
+	public long spilledPairs() {
+		return spilledPairs;
+	}
+
+	/**
+	 * 删除所有run文件
+	 */
+	public void close() {
+		for (Run run : runs) {
+			delete(run);
+		}
+		runs.clear();
+		clear();
+	}
+
+	private static DataOutputStream openRun(File file) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE));
+	}
+
+	private static void delete(Run run) {
+		if (!run.file.delete() && run.file.exists()) {
+			LOGGER.warn("can not delete spill file {}", run.file);
+		}
+	}
+
+	private static class Run {
+		final File file;
+		final long size;
+
+		Run(File file, long size) {
+			this.file = file;
+			this.size = size;
+		}
+	}
+
+	/**
+	 * 归并时一个run的读取位置，按当前键排序
+	 */
+	private static class RunReader implements Comparable<RunReader> {
+
+		private final DataInputStream in;
+		private long remaining;
+		long key;
+		int count;
+
+		RunReader(Run run) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(run.file), BUFFER_SIZE));
+			remaining = run.size;
+		}
+
+		boolean next() throws IOException {
+			if (remaining == 0) {
+				return false;
+			}
+			key = in.readLong();
+			count = in.readInt();
+			remaining--;
+			return true;
+		}
+
+		void close() throws IOException {
+			in.close();
+		}
+
+		public int compareTo(RunReader other) {
+			return key < other.key ? -1 : (key == other.key ? 0 : 1);
+		}
+	}
+
+	/**
+	 * k路归并的结果，用next()逐个读取
+	 */
+	public static class SortedPairs {
+
+		private final PriorityQueue<RunReader> heap;
+		private final List<RunReader> readers;
+		private long key;
+		private int count;
+
+		private SortedPairs(List<Run> runs) throws IOException {
+			heap = new PriorityQueue<RunReader>(Math.max(runs.size(), 1));
+			readers = new ArrayList<RunReader>(runs.size());
+			try {
+				for (Run run : runs) {
+					RunReader reader = new RunReader(run);
+					readers.add(reader);
+					if (reader.next()) {
+						heap.add(reader);
+					}
+				}
+			} catch (IOException e) {
+				close();
+				throw e;
+			}
+		}
+
+		/**
+		 * 移到下一个键
+		 * @return 没有更多的键时为false
+		 * @throws IOException
+		 */
+		public boolean next() throws IOException {
+			RunReader reader = heap.poll();
+			if (reader == null) {
+				return false;
+			}
+			key = reader.key;
+			count = reader.count;
+			while (true) {
+				if (reader.next()) {
+					heap.add(reader);
+				}
+				reader = heap.peek();
+				if (reader == null || reader.key != key) {
+					break;
+				}
+				heap.poll();
+				count += reader.count;
+			}
+			return true;
+		}
+
+		public long key() {
+			return key;
+		}
+
+		/**
+		 * 当前键在所有run中的计数之和
+		 * @return
+		 */
+		public int count() {
+			return count;
+		}
+
+		public void close() throws IOException {
+			for (RunReader reader : readers) {
+				reader.close();
+			}
+			heap.clear();
+		}
+	}
+}
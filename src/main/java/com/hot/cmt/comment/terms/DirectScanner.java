@@ -0,0 +1,120 @@
+package com.hot.cmt.comment.terms;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconAutomaton;
+import com.hot.cmt.comment.common.LexiconTrie;
+import com.hot.cmt.comment.tokenize.MaxMatchTokenizer;
+
+/**
+ * 不分词，直接在原文上用词典的Aho-Corasick自动机扫描出词条
+ * 一次扫描记下每个位置开始的最长词条，再从左到右取不重叠的最长词条，结果与按词典做正向最大匹配相同。
+ * 英文字母和数字只在整段都是词条时匹配；两个词条之间有未匹配的文字时插入一个Lexicon.NOT_FOUND，
+ * 与分词后的结果一样，语气词只作用于紧挨着的下一个词。
+ * 结果保存在内部复用的数组中，一个实例只能在一个线程中使用
+ * @author yongleixiao
+ *
+ */
+public class DirectScanner {
+
+	/* 归一化之后的句子 */
+	private char[] text = new char[64];
+	/* 每个位置开始的最长词条长度和编号 */
+	private int[] bestLength = new int[64];
+	private int[] bestEntry = new int[64];
+	/* 扫描结果，按出现顺序的词条编号 */
+	private int[] entries = new int[16];
+	private int size = 0;
+
+	/**
+	 * 扫描句子，覆盖上一次的结果
+	 * @param lexicon 词典快照
+	 * @param sentence
+	 * @return 结果个数
+	 */
+	public int scan(Lexicon lexicon, CharSequence sentence) {
+		size = 0;
+		int length = sentence.length();
+		ensureCapacity(length);
+		for (int i = 0; i < length; i++) {
+			text[i] = MaxMatchTokenizer.normalize(sentence.charAt(i));
+			bestLength[i] = 0;
+		}
+
+		LexiconAutomaton automaton = lexicon.getAutomaton();
+		int state = LexiconTrie.ROOT;
+		for (int i = 0; i < length; i++) {
+			state = automaton.next(state, text[i]);
+			for (int node = automaton.output(state); node != LexiconTrie.NO_NODE; node = automaton.nextOutput(node)) {
+				int wordLength = automaton.depth(node);
+				int start = i - wordLength + 1;
+				if (wordLength > bestLength[start]) {
+					bestLength[start] = wordLength;
+					bestEntry[start] = automaton.entry(node);
+				}
+			}
+		}
+
+		boolean gap = false;
+		int i = 0;
+		while (i < length) {
+			int wordLength = bestLength[i];
+			if (wordLength > 0 && !splitsAsciiRun(i, i + wordLength, length)) {
+				if (gap && size > 0) {
+					add(Lexicon.NOT_FOUND);
+				}
+				add(bestEntry[i]);
+				gap = false;
+				i += wordLength;
+			} else {
+				if (Character.isLetterOrDigit(text[i])) {
+					gap = true;
+				}
+				i++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * 扫描得到的词条编号，有效长度为size()
+	 * @return
+	 */
+	public int[] entries() {
+		return entries;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * [start, end)的首尾是否切开了一段连续的英文字母或数字
+	 */
+	private boolean splitsAsciiRun(int start, int end, int length) {
+		return (start > 0 && isAsciiLetterOrDigit(text[start]) && isAsciiLetterOrDigit(text[start - 1]))
+				|| (end < length && isAsciiLetterOrDigit(text[end - 1]) && isAsciiLetterOrDigit(text[end]));
+	}
+
+	private static boolean isAsciiLetterOrDigit(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+	}
+
+	private void add(int entry) {
+		if (size == entries.length) {
+			int[] larger = new int[size * 2];
+			System.arraycopy(entries, 0, larger, 0, size);
+			entries = larger;
+		}
+		entries[size++] = entry;
+	}
+
+	private void ensureCapacity(int length) {
+		if (text.length >= length) {
+			return;
+		}
+		int capacity = Math.max(length, text.length * 2);
+		text = new char[capacity];
+		bestLength = new int[capacity];
+		bestEntry = new int[capacity];
+	}
+}
@@ -0,0 +1,95 @@
+package com.hot.cmt.comment.terms;
+
+import java.util.List;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconTrie;
+import com.hot.cmt.comment.tokenize.TokenOffsets;
+
+/**
+ * 在分词结果上匹配unigram、bigram、trigram词条
+ * 从每个词开始沿词典trie向后走，依次跨过后续的词，一次遍历同时得到三阶的匹配结果，
+ * 不再拼接n-gram字符串。匹配结果为词条编号，保存在内部复用的数组中，因此一个实例只能在一个线程中使用
+ * @author yongleixiao
+ *
+ */
+public class NGramMatcher {
+
+	/* 最大阶数，对应trigram */
+	public static final int MAX_ORDER = 3;
+	
+	/* matches[k][i]为从第i个词开始的k+1阶n-gram的词条编号，未匹配为Lexicon.NOT_FOUND */
+	private int[][] matches = new int[MAX_ORDER][16];
+	private int tokenCount = 0;
+	
+	/**
+	 * 匹配分词结果，覆盖上一次的匹配结果
+	 * @param trie 词典快照的trie
+	 * @param tokens
+	 */
+	public void match(LexiconTrie trie, List<String> tokens) {
+		int size = tokens.size();
+		ensureCapacity(size);
+		tokenCount = size;
+		for (int i = 0; i < size; i++) {
+			int node = LexiconTrie.ROOT;
+			for (int k = 0; k < MAX_ORDER && i + k < size; k++) {
+				if (node != LexiconTrie.NO_NODE) {
+					String token = tokens.get(i + k);
+					node = trie.walk(node, token, 0, token.length());
+				}
+				matches[k][i] = node == LexiconTrie.NO_NODE ? Lexicon.NOT_FOUND : trie.entry(node);
+			}
+		}
+	}
+	
+	/**
+	 * 匹配以偏移量表示的分词结果，沿字符区间走trie，覆盖上一次的匹配结果
+	 * @param trie 词典快照的trie
+	 * @param tokens
+	 */
+	public void match(LexiconTrie trie, TokenOffsets tokens) {
+		int size = tokens.size();
+		ensureCapacity(size);
+		tokenCount = size;
+		int[] starts = tokens.starts();
+		int[] ends = tokens.ends();
+		for (int i = 0; i < size; i++) {
+			int node = LexiconTrie.ROOT;
+			for (int k = 0; k < MAX_ORDER && i + k < size; k++) {
+				if (node != LexiconTrie.NO_NODE) {
+					node = trie.walk(node, tokens, starts[i + k], ends[i + k]);
+				}
+				matches[k][i] = node == LexiconTrie.NO_NODE ? Lexicon.NOT_FOUND : trie.entry(node);
+			}
+		}
+	}
+	
+	/**
+	 * 阶数为order的n-gram个数
+	 * @param order 1-3
+	 * @return
+	 */
+	public int size(int order) {
+		return Math.max(tokenCount - order + 1, 0);
+	}
+	
+	/**
+	 * 阶数为order的n-gram匹配到的词条编号，有效长度为size(order)
+	 * @param order 1-3
+	 * @return
+	 */
+	public int[] entries(int order) {
+		return matches[order - 1];
+	}
+	
+	private void ensureCapacity(int size) {
+		if (matches[0].length >= size) {
+			return;
+		}
+		int capacity = Math.max(size, matches[0].length * 2);
+		for (int k = 0; k < MAX_ORDER; k++) {
+			matches[k] = new int[capacity];
+		}
+	}
+}
@@ -1,33 +1,136 @@
 package com.hot.cmt.comment.tokenize;
 
+import java.io.File;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 import com.chenlb.mmseg4j.ComplexSeg;
 import com.chenlb.mmseg4j.Dictionary;
 import com.chenlb.mmseg4j.MMSeg;
 import com.chenlb.mmseg4j.Seg;
+import com.chenlb.mmseg4j.SimpleSeg;
 import com.chenlb.mmseg4j.Word;
+import com.hot.cmt.comment.common.Constants;
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.Vocabulary;
+import com.hot.cmt.comment.util.IntArrayList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 /**
- * 
+ * 基于mmseg4j的分词
+ * 并发约定：Dictionary由mmseg4j按路径缓存，加载后只读，所有实例共享；ComplexSeg在切分时会修改内部的规则状态，
+ * MMSeg和输入缓冲区在实例内复用，因此一个实例只能在一个线程中使用。多线程时每个线程创建自己的实例，
+ * 或者通过current()取得当前线程的实例。
+ * 每次分词时重置并复用MMSeg和输入，不再为每句话创建StringReader和MMSeg；
+ * 结果可以写入调用方提供的列表，转换为词ID时不为词典中已有的词创建字符串；
+ * tokenize以偏移量给出分词结果，不为每个词创建字符串。
+ * 切分算法可以选择ComplexSeg或SimpleSeg，默认ComplexSeg。
+ * 词典目录由Tokenizer_Dict_Path配置，可以是文件系统目录或者classpath:开头的classpath目录；
+ * SimpleSeg在目录下有SegDictionaryCompiler编译好的词典时直接映射，不加载mmseg4j的Dictionary
  * @author yongleixiao
  *
  */
-public class MMTokenizer {
+public class MMTokenizer implements Tokenizer {
 	
-	private String DICT_PATH = "D:/changyancomments/worddict/data";
+	private static final Logger LOGGER = LoggerFactory.getLogger(MMTokenizer.class);
+	
+	/* 按词典目录缓存编译好的词典，没有编译文件的目录保存null */
+	private static final Map<String, SegDictionary> COMPILED = new HashMap<String, SegDictionary>();
+	
+	/* 每个线程一个实例 */
+	private static final ThreadLocal<MMTokenizer> CURRENT = new ThreadLocal<MMTokenizer>() {
+		@Override
+		protected MMTokenizer initialValue() {
+			return new MMTokenizer();
+		}
+	};
+	
+	private String DICT_PATH = Constants.TOKENIZER_DICT_PATH;
 	private Dictionary dic = null;
 	private Seg seg = null;
+	private final SegMode mode;
+	/* 复用的输入和切分状态 */
+	private SentenceReader reader = new SentenceReader();
+	private MMSeg mmSeg = null;
+	/* 当前句子之前MMSeg已经读过的字符数，Word的偏移量从第一次读入开始累计 */
+	private int base = 0;
+	private int consumed = 0;
 	
 	public MMTokenizer() {
+		this(SegMode.COMPLEX);
+	}
+	
+	/**
+	 * @param mode COMPLEX或SIMPLE
+	 */
+	public MMTokenizer(SegMode mode) {
+		if (mode != SegMode.COMPLEX && mode != SegMode.SIMPLE) {
+			throw new IllegalArgumentException("mmseg4j does not support mode " + mode);
+		}
+		this.mode = mode;
 		init();
 	}
 	
+	/**
+	 * 词典目录下编译好的词典，每个目录只读取一次
+	 * @param dictPath
+	 * @return 没有可用的编译文件时返回null
+	 */
+	private static SegDictionary compiled(String dictPath) {
+		synchronized (COMPILED) {
+			if (COMPILED.containsKey(dictPath)) {
+				return COMPILED.get(dictPath);
+			}
+			SegDictionary compiled = SegDictionaryCompiler.loadCompiled(dictPath);
+			if (compiled != null) {
+				LOGGER.info("mapped compiled tokenizer dictionary in {}, {} words", dictPath, compiled.size());
+			}
+			COMPILED.put(dictPath, compiled);
+			return compiled;
+		}
+	}
+	
+	/**
+	 * mmseg4j的词典，classpath目录在jar包中时使用mmseg4j自带的词典
+	 * @param dictPath
+	 * @return
+	 */
+	private static Dictionary dictionary(String dictPath) {
+		if (!dictPath.startsWith(SegDictionaryCompiler.CLASSPATH_PREFIX)) {
+			return Dictionary.getInstance(dictPath);
+		}
+		File dir = SegDictionaryCompiler.resourceDirectory(dictPath);
+		if (dir == null) {
+			LOGGER.warn("{} is not a directory on the file system, use the dictionary bundled with mmseg4j", dictPath);
+			return Dictionary.getInstance();
+		}
+		return Dictionary.getInstance(dir);
+	}
+	
+	/**
+	 * 当前线程的实例，第一次调用时创建，只能在当前线程中使用
+	 * @return
+	 */
+	public static MMTokenizer current() {
+		return CURRENT.get();
+	}
+	
 	public void init() {
-		dic = Dictionary.getInstance(DICT_PATH);
-		seg = new ComplexSeg(dic);
+		SegDictionary compiled = mode == SegMode.SIMPLE ? compiled(DICT_PATH) : null;
+		if (compiled != null) {
+			dic = null;
+			seg = new MappedSimpleSeg(compiled);
+		} else {
+			dic = dictionary(DICT_PATH);
+			seg = mode == SegMode.SIMPLE ? new SimpleSeg(dic) : new ComplexSeg(dic);
+		}
+		mmSeg = new MMSeg(reader, seg);
+		base = 0;
+		consumed = 0;
 	}
 	
 	public void setDictPath(String path) {
@@ -36,26 +139,162 @@ public class MMTokenizer {
 		}
 	}
 
+	@Override
+	public SegMode getMode() {
+		return mode;
+	}
+
+	@Override
 	public List<String> getSplitedWords(String sentence) {
 		if (StringUtils.isBlank(sentence)) {
 			return null;
 		}
 		List<String> words = new ArrayList<String>();
-		StringReader reader = getStringReader(sentence);
-		MMSeg mmSeg = new MMSeg(reader, seg);  
-        Word word = null; 
-        try {
-        	while ((word = mmSeg.next()) != null) {
-        		words.add(word.getString()); 
-        	}
-        } catch (IOException e) {
-        	
-        }
-        	return words;
-	}
-	
-	private StringReader getStringReader(String sentence) {
-		return new StringReader(sentence);
+		getSplitedWords(sentence, words);
+		return words;
+	}
+	
+	/**
+	 * 分词，结果追加到调用方提供的列表中
+	 * @param sentence
+	 * @param words
+	 * @return 追加的词数
+	 */
+	public int getSplitedWords(String sentence, List<String> words) {
+		if (StringUtils.isBlank(sentence)) {
+			return 0;
+		}
+		int count = 0;
+		Word word = null;
+		start(sentence);
+		try {
+			while ((word = mmSeg.next()) != null) {
+				words.add(word.getString());
+				count++;
+			}
+		} catch (IOException e) {
+			restart();
+		}
+		return count;
+	}
+	
+	/**
+	 * 分词，结果以偏移量写入tokens，覆盖上一次的结果。词典中的词不创建字符串
+	 * @param sentence
+	 * @param tokens
+	 * @return 词数
+	 */
+	@Override
+	public int tokenize(CharSequence sentence, TokenOffsets tokens) {
+		tokens.reset(sentence == null ? 0 : sentence.length());
+		if (sentence == null || sentence.length() == 0) {
+			return 0;
+		}
+		Word word = null;
+		start(sentence);
+		try {
+			while ((word = mmSeg.next()) != null) {
+				tokens.add(word.getSen(), word.getWordOffset(), word.getStartOffset() - base, word.getLength());
+			}
+		} catch (IOException e) {
+			restart();
+		}
+		return tokens.size();
+	}
+	
+	/**
+	 * mmseg4j使用自己的词典，忽略lexicon
+	 */
+	@Override
+	public int tokenize(CharSequence sentence, Lexicon lexicon, TokenOffsets tokens) {
+		return tokenize(sentence, tokens);
+	}
+	
+	/**
+	 * 分词并把每个词转换为词表中的ID，词表中没有的词分配新ID
+	 * @param sentence
+	 * @param vocabulary
+	 * @param ids 先被清空，再依次写入每个词的ID
+	 * @return 词数
+	 */
+	public int getWordIds(String sentence, Vocabulary vocabulary, IntArrayList ids) {
+		ids.clear();
+		if (StringUtils.isBlank(sentence)) {
+			return 0;
+		}
+		Word word = null;
+		start(sentence);
+		try {
+			while ((word = mmSeg.next()) != null) {
+				ids.add(vocabulary.intern(word.getSen(), word.getWordOffset(), word.getLength()));
+			}
+		} catch (IOException e) {
+			restart();
+		}
+		return ids.size();
+	}
+	
+	/**
+	 * 把句子放入复用的输入。上一次分词总是读到输入结束，MMSeg中没有残留的字符，可以直接继续读
+	 * @param sentence
+	 */
+	private void start(CharSequence sentence) {
+		reader.reset(sentence);
+		base = consumed;
+		consumed += sentence.length();
+	}
+	
+	/**
+	 * 读取出错时丢弃MMSeg中残留的状态，偏移量重新从0开始
+	 */
+	private void restart() {
+		reader.reset("");
+		mmSeg.reset(reader);
+		base = 0;
+		consumed = 0;
+	}
+	
+	/**
+	 * 可以重复使用的字符串输入，读完后返回-1，reset后从新的字符串开始
+	 */
+	private static final class SentenceReader extends Reader {
+		private CharSequence text = "";
+		private int position = 0;
+		
+		void reset(CharSequence text) {
+			this.text = text;
+			this.position = 0;
+		}
+		
+		@Override
+		public int read() {
+			return position < text.length() ? text.charAt(position++) : -1;
+		}
+		
+		@Override
+		public int read(char[] buffer, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			int remaining = text.length() - position;
+			if (remaining <= 0) {
+				return -1;
+			}
+			int count = Math.min(remaining, length);
+			if (text instanceof String) {
+				((String) text).getChars(position, position + count, buffer, offset);
+			} else {
+				for (int i = 0; i < count; i++) {
+					buffer[offset + i] = text.charAt(position + i);
+				}
+			}
+			position += count;
+			return count;
+		}
+		
+		@Override
+		public void close() {
+		}
 	}
 	
 	
@@ -0,0 +1,42 @@
+package com.hot.cmt.comment.tokenize;
+
+import com.chenlb.mmseg4j.Chunk;
+import com.chenlb.mmseg4j.Seg;
+import com.chenlb.mmseg4j.Sentence;
+import com.chenlb.mmseg4j.Word;
+
+/**
+ * 使用编译好的SegDictionary的简单最大匹配，切分结果与mmseg4j的SimpleSeg相同，
+ * 不需要加载mmseg4j的Dictionary
+ * @author yongleixiao
+ *
+ */
+class MappedSimpleSeg extends Seg {
+
+	private final SegDictionary dictionary;
+
+	MappedSimpleSeg(SegDictionary dictionary) {
+		super(null);
+		this.dictionary = dictionary;
+	}
+
+	@Override
+	public Chunk seg(Sentence sen) {
+		Chunk chunk = new Chunk();
+		/* 直接填充Chunk自带的数组，setWords会把空位也算进词数 */
+		Word[] words = chunk.getWords();
+		char[] text = sen.getText();
+		for (int i = 0; i < 3 && !sen.isFinish(); i++) {
+			int offset = sen.getOffset();
+			int length = dictionary.maxMatch(text, offset);
+			words[i] = new Word(text, sen.getStartOffset(), offset, length);
+			sen.setOffset(offset + length);
+		}
+		return chunk;
+	}
+
+	@Override
+	protected boolean isUnit(int codePoint) {
+		return dictionary.isUnit((char) codePoint);
+	}
+}
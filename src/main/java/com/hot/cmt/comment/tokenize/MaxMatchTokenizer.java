@@ -0,0 +1,121 @@
+package com.hot.cmt.comment.tokenize;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconTrie;
+import com.hot.cmt.comment.common.ReloadableLexicon;
+
+/**
+ * 按情感词典做正向最大匹配的分词
+ * 分类只关心词典中的词，因此直接在词典的trie上从左到右取最长的词，其余的汉字单字成词，
+ * 连续的英文字母和数字合为一个词，标点和空白跳过。字符按mmseg4j的方式归一化：全角转半角，大写转小写。
+ * 不指定词典时每次分词读取一次词典快照，热加载后自动使用新词典；打分时由调用方传入打分使用的快照。
+ * 一个实例只能在一个线程中使用
+ * @author yongleixiao
+ *
+ */
+public class MaxMatchTokenizer implements Tokenizer {
+
+	private final ReloadableLexicon lexicons;
+	/* getSplitedWords复用的分词结果 */
+	private final TokenOffsets scratch = new TokenOffsets();
+	
+	public MaxMatchTokenizer(ReloadableLexicon lexicons) {
+		this.lexicons = lexicons;
+	}
+	
+	@Override
+	public List<String> getSplitedWords(String sentence) {
+		if (sentence == null || sentence.trim().isEmpty()) {
+			return null;
+		}
+		tokenize(sentence, scratch);
+		List<String> words = new ArrayList<String>(scratch.size());
+		for (int i = 0; i < scratch.size(); i++) {
+			words.add(scratch.token(i));
+		}
+		return words;
+	}
+	
+	@Override
+	public int tokenize(CharSequence sentence, TokenOffsets tokens) {
+		return tokenize(sentence, lexicons.get(), tokens);
+	}
+	
+	@Override
+	public int tokenize(CharSequence sentence, Lexicon lexicon, TokenOffsets tokens) {
+		int length = sentence == null ? 0 : sentence.length();
+		tokens.reset(length);
+		if (length == 0) {
+			return 0;
+		}
+		char[] text = tokens.buffer();
+		for (int i = 0; i < length; i++) {
+			text[i] = normalize(sentence.charAt(i));
+		}
+		LexiconTrie trie = lexicon.getTrie();
+		int i = 0;
+		while (i < length) {
+			char c = text[i];
+			if (isAsciiLetterOrDigit(c)) {
+				int end = i + 1;
+				while (end < length && isAsciiLetterOrDigit(text[end])) {
+					end++;
+				}
+				tokens.add(i, end);
+				i = end;
+			} else if (Character.isLetterOrDigit(c)) {
+				int end = longestMatch(trie, text, i, length);
+				tokens.add(i, end);
+				i = end;
+			} else {
+				i++;
+			}
+		}
+		return tokens.size();
+	}
+	
+	@Override
+	public SegMode getMode() {
+		return SegMode.MAX_MATCH;
+	}
+	
+	/**
+	 * 从start开始在trie中能匹配到的最长词条的结束位置，没有匹配时为单字
+	 */
+	private static int longestMatch(LexiconTrie trie, char[] text, int start, int length) {
+		int end = start + 1;
+		int node = LexiconTrie.ROOT;
+		for (int i = start; i < length; i++) {
+			node = trie.child(node, text[i]);
+			if (node == LexiconTrie.NO_NODE) {
+				break;
+			}
+			if (trie.entry(node) != Lexicon.NOT_FOUND) {
+				end = i + 1;
+			}
+		}
+		return end;
+	}
+	
+	private static boolean isAsciiLetterOrDigit(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+	}
+	
+	/**
+	 * 全角转半角，大写转小写，和mmseg4j读入字符时的处理一致
+	 */
+	public static char normalize(char c) {
+		if (c >= '\uff01' && c <= '\uff5e') {
+			c = (char) (c - 0xfee0);
+		} else if (c == '\u3000') {
+			c = ' ';
+		}
+		if (c >= 'A' && c <= 'Z') {
+			c = (char) (c + ('a' - 'A'));
+		}
+		return c;
+	}
+}
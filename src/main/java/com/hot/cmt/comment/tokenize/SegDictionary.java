@@ -0,0 +1,165 @@
+package com.hot.cmt.comment.tokenize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconTrie;
+
+/**
+ * SegDictionaryCompiler编译出的分词词典
+ * 词按字符trie存放，格式与情感词典的trie相同，另外保存mmseg4j的量词表。
+ * 从文件映射时数据在页缓存中，同一台机器上的多个进程共享，不占用堆内存，也不需要解析文本。只读，可以在多个线程间共享
+ * @author yongleixiao
+ *
+ */
+public class SegDictionary {
+
+	private final LexiconTrie trie;
+	/* 排好序的量词 */
+	private final CharBuffer units;
+	private final int wordCount;
+
+	/**
+	 * 读取SegDictionaryCompiler格式的缓冲区，只建立视图，不复制数据
+	 * @param buffer
+	 */
+	SegDictionary(ByteBuffer buffer) {
+		ByteBuffer header = section(buffer, 0, SegDictionaryCompiler.HEADER_SIZE);
+		if (header.getInt() != SegDictionaryCompiler.MAGIC) {
+			throw new IllegalArgumentException("not a compiled tokenizer dictionary");
+		}
+		int formatVersion = header.getInt();
+		if (formatVersion != SegDictionaryCompiler.FORMAT_VERSION) {
+			throw new IllegalArgumentException("unsupported tokenizer dictionary format version " + formatVersion
+					+ ", expected " + SegDictionaryCompiler.FORMAT_VERSION);
+		}
+		int nodeCount = header.getInt();
+		int unitCount = header.getInt();
+		wordCount = header.getInt();
+		if (buffer.remaining() < SegDictionaryCompiler.size(nodeCount, unitCount)) {
+			throw new IllegalArgumentException("truncated tokenizer dictionary, " + buffer.remaining() + " bytes");
+		}
+
+		int offset = SegDictionaryCompiler.HEADER_SIZE;
+		ByteBuffer edgeStart = section(buffer, offset, 4 * (nodeCount + 1));
+		offset += 4 * (nodeCount + 1);
+		ByteBuffer nodeEntries = section(buffer, offset, 4 * nodeCount);
+		offset += 4 * nodeCount;
+		ByteBuffer edgeLabels = section(buffer, offset, 2 * (nodeCount - 1));
+		offset += 2 * (nodeCount - 1);
+		units = section(buffer, offset, 2 * unitCount).asCharBuffer();
+		trie = new LexiconTrie(edgeStart.asIntBuffer(), edgeLabels.asCharBuffer(), nodeEntries.asIntBuffer());
+	}
+
+	/**
+	 * 以只读方式映射编译好的词典文件
+	 * @param file
+	 * @return
+	 * @throws IOException 文件不存在、格式不对或者版本不匹配
+	 */
+	public static SegDictionary load(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return new SegDictionary(buffer);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(file + ": " + e.getMessage());
+		} finally {
+			/* 关闭文件不影响已经建立的映射 */
+			raf.close();
+		}
+	}
+
+	/**
+	 * 从流中读取编译好的词典，用于打包在jar中无法映射的情况，数据复制到堆外
+	 * @param in 读完后由调用方关闭
+	 * @return
+	 * @throws IOException
+	 */
+	public static SegDictionary load(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+		byte[] chunk = new byte[8192];
+		int n;
+		while ((n = in.read(chunk)) != -1) {
+			out.write(chunk, 0, n);
+		}
+		byte[] bytes = out.toByteArray();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes).flip();
+		try {
+			return new SegDictionary(buffer);
+		} catch (IllegalArgumentException e) {
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	/**
+	 * 从offset开始的最长词的长度，与mmseg4j的Dictionary.maxMatch一致，没有多字词时为1
+	 * @param text
+	 * @param offset
+	 * @return
+	 */
+	public int maxMatch(char[] text, int offset) {
+		int length = 1;
+		int node = LexiconTrie.ROOT;
+		for (int i = offset; i < text.length; i++) {
+			node = trie.child(node, text[i]);
+			if (node == LexiconTrie.NO_NODE) {
+				break;
+			}
+			if (trie.entry(node) != Lexicon.NOT_FOUND) {
+				length = i - offset + 1;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * 是否量词
+	 * @param c
+	 * @return
+	 */
+	public boolean isUnit(char c) {
+		int low = 0;
+		int high = units.limit() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char unit = units.get(mid);
+			if (unit < c) {
+				low = mid + 1;
+			} else if (unit > c) {
+				high = mid - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public LexiconTrie getTrie() {
+		return trie;
+	}
+
+	/**
+	 * 词数
+	 * @return
+	 */
+	public int size() {
+		return wordCount;
+	}
+
+	private static ByteBuffer section(ByteBuffer buffer, int offset, int length) {
+		ByteBuffer section = buffer.duplicate();
+		section.position(buffer.position() + offset);
+		section.limit(buffer.position() + offset + length);
+		return section.slice().order(SegDictionaryCompiler.ORDER);
+	}
+}
@@ -0,0 +1,322 @@
+package com.hot.cmt.comment.tokenize;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.chenlb.mmseg4j.Dictionary;
+import com.hot.cmt.comment.common.Constants;
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.util.AtomicFiles;
+
+/**
+ * 把mmseg4j的分词词典编译成SegDictionary的二进制格式
+ * 词的来源与mmseg4j相同：jar包中的/data/words.dic和词典目录下所有words*.dic；量词取目录下的units.dic，
+ * 不存在时取jar包中的。编译结果默认放在词典目录下，文件名由Tokenizer_Dict_File配置。
+ * 格式（小端）：
+ * header: magic, version, nodeCount, unitCount, wordCount
+ * int edgeStart[nodeCount + 1], int nodeEntries[nodeCount], char edgeLabels[nodeCount - 1], char units[unitCount]
+ * @author yongleixiao
+ *
+ */
+public class SegDictionaryCompiler {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SegDictionaryCompiler.class);
+
+	/* 文件头标记，"SDIC" */
+	static final int MAGIC = 0x53444943;
+	/* 格式版本，格式变化时递增，旧文件会被忽略 */
+	static final int FORMAT_VERSION = 1;
+	/* 文件头字节数 */
+	static final int HEADER_SIZE = 20;
+	static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	/* Tokenizer_Dict_Path以此开头时从classpath读取 */
+	public static final String CLASSPATH_PREFIX = "classpath:";
+
+	private static final String WORDS_RESOURCE = "/data/words.dic";
+	private static final String UNITS_RESOURCE = "/data/units.dic";
+	private static final String UNITS_FILE = "units.dic";
+
+	private SegDictionaryCompiler() {
+	}
+
+	/**
+	 * 在堆上编译
+	 * @param dictPath mmseg4j的词典目录，不存在时只使用jar包中的词典
+	 * @return 编译结果，position为0
+	 * @throws IOException
+	 */
+	public static ByteBuffer compile(String dictPath) throws IOException {
+		File dir = new File(dictPath);
+		TreeSet<String> words = new TreeSet<String>();
+		InputStream bundled = Dictionary.class.getResourceAsStream(WORDS_RESOURCE);
+		if (bundled != null) {
+			readLines(bundled, words, 2, Integer.MAX_VALUE);
+		}
+		for (File file : wordsFiles(dir)) {
+			readLines(new FileInputStream(file), words, 2, Integer.MAX_VALUE);
+		}
+		TreeSet<String> units = new TreeSet<String>();
+		File unitsFile = new File(dir, UNITS_FILE);
+		InputStream unitsIn = unitsFile.isFile() ? new FileInputStream(unitsFile)
+				: Dictionary.class.getResourceAsStream(UNITS_RESOURCE);
+		if (unitsIn != null) {
+			readLines(unitsIn, units, 1, 1);
+		}
+
+		BuildNode root = new BuildNode();
+		int nodeCount = 1;
+		for (String word : words) {
+			BuildNode node = root;
+			for (int i = 0; i < word.length(); i++) {
+				Character c = word.charAt(i);
+				BuildNode child = node.children.get(c);
+				if (child == null) {
+					child = new BuildNode();
+					node.children.put(c, child);
+					nodeCount++;
+				}
+				node = child;
+			}
+			node.word = true;
+		}
+
+		int[] edgeStart = new int[nodeCount + 1];
+		int[] nodeEntries = new int[nodeCount];
+		char[] edgeLabels = new char[nodeCount - 1];
+		int wordCount = 0;
+		Queue<BuildNode> queue = new ArrayDeque<BuildNode>();
+		queue.add(root);
+		int nodeId = 0;
+		int nextId = 1;
+		while (!queue.isEmpty()) {
+			BuildNode node = queue.poll();
+			nodeEntries[nodeId] = node.word ? wordCount++ : Lexicon.NOT_FOUND;
+			edgeStart[nodeId] = nextId - 1;
+			for (Map.Entry<Character, BuildNode> child : node.children.entrySet()) {
+				edgeLabels[nextId - 1] = child.getKey();
+				queue.add(child.getValue());
+				nextId++;
+			}
+			nodeId++;
+		}
+		edgeStart[nodeCount] = nodeCount - 1;
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size(nodeCount, units.size())).order(ORDER);
+		buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(nodeCount).putInt(units.size()).putInt(wordCount);
+		for (int start : edgeStart) {
+			buffer.putInt(start);
+		}
+		for (int entry : nodeEntries) {
+			buffer.putInt(entry);
+		}
+		for (char label : edgeLabels) {
+			buffer.putChar(label);
+		}
+		for (String unit : units) {
+			buffer.putChar(unit.charAt(0));
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * 编译并写入文件
+	 * 先写临时文件再原子替换，已经映射旧文件的分词器不受影响
+	 * @param dictPath
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void compile(String dictPath, File file) throws IOException {
+		AtomicFiles.write(file, compile(dictPath));
+	}
+
+	/**
+	 * 词典目录下编译好的二进制词典
+	 * @param dictPath
+	 * @return
+	 */
+	public static File compiledFile(String dictPath) {
+		return new File(dictPath, Constants.TOKENIZER_DICT_FILE);
+	}
+
+	/**
+	 * 编译好的文件是否存在并且不早于词典目录下的任何一个词典文件
+	 * @param compiled
+	 * @param dictPath
+	 * @return
+	 */
+	public static boolean isUpToDate(File compiled, String dictPath) {
+		if (!compiled.isFile()) {
+			return false;
+		}
+		long compiledTime = compiled.lastModified();
+		File dir = new File(dictPath);
+		for (File file : wordsFiles(dir)) {
+			if (file.lastModified() > compiledTime) {
+				return false;
+			}
+		}
+		return new File(dir, UNITS_FILE).lastModified() <= compiledTime;
+	}
+
+	/**
+	 * 读取编译好的分词词典
+	 * 以classpath:开头并且目录在jar包中时读入堆外内存；否则（包括classpath中的普通目录）
+	 * 检查是否过期后映射目录下的编译文件
+	 * @param dictPath
+	 * @return 不存在、已过期或者无法读取时返回null
+	 */
+	static SegDictionary loadCompiled(String dictPath) {
+		if (dictPath == null) {
+			return null;
+		}
+		if (dictPath.startsWith(CLASSPATH_PREFIX)) {
+			File dir = resourceDirectory(dictPath);
+			if (dir == null) {
+				/* jar包中的词典和编译文件一起打包，不会过期 */
+				return loadResource(resourceName(dictPath));
+			}
+			dictPath = dir.getPath();
+		}
+		File file = compiledFile(dictPath);
+		if (!file.exists()) {
+			return null;
+		}
+		if (!isUpToDate(file, dictPath)) {
+			LOGGER.warn("compiled tokenizer dictionary {} is older than the word files, ignored", file);
+			return null;
+		}
+		try {
+			return SegDictionary.load(file);
+		} catch (IOException e) {
+			LOGGER.warn("compiled tokenizer dictionary " + file + " can not be loaded, ignored", e);
+			return null;
+		}
+	}
+
+	/**
+	 * classpath中的词典目录对应的文件系统目录
+	 * @param dictPath 以classpath:开头
+	 * @return 目录不在classpath中或者在jar包中时返回null
+	 */
+	static File resourceDirectory(String dictPath) {
+		String dir = dictPath.substring(CLASSPATH_PREFIX.length());
+		URL url = SegDictionaryCompiler.class.getResource(dir.startsWith("/") ? dir : "/" + dir);
+		if (url == null || !"file".equals(url.getProtocol())) {
+			return null;
+		}
+		try {
+			return new File(url.toURI());
+		} catch (URISyntaxException e) {
+			return null;
+		}
+	}
+
+	private static String resourceName(String dictPath) {
+		String dir = dictPath.substring(CLASSPATH_PREFIX.length());
+		if (!dir.startsWith("/")) {
+			dir = "/" + dir;
+		}
+		return dir.endsWith("/") ? dir + Constants.TOKENIZER_DICT_FILE : dir + "/" + Constants.TOKENIZER_DICT_FILE;
+	}
+
+	private static SegDictionary loadResource(String name) {
+		URL url = SegDictionaryCompiler.class.getResource(name);
+		if (url == null) {
+			return null;
+		}
+		try {
+			InputStream in = url.openStream();
+			try {
+				return SegDictionary.load(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			LOGGER.warn("compiled tokenizer dictionary " + url + " can not be loaded, ignored", e);
+			return null;
+		}
+	}
+
+	/**
+	 * 二进制词典的总字节数
+	 * @param nodeCount
+	 * @param unitCount
+	 * @return
+	 */
+	static long size(int nodeCount, int unitCount) {
+		return HEADER_SIZE + 4L * (nodeCount + 1) + 4L * nodeCount + 2L * (nodeCount - 1) + 2L * unitCount;
+	}
+
+	/**
+	 * 与mmseg4j相同的词典文件格式：UTF-8，每行一个，#开头的行为注释，长度不符合要求的行忽略
+	 */
+	private static void readLines(InputStream in, TreeSet<String> results, int minLength, int maxLength) throws IOException {
+		BufferedReader br = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		try {
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				if (line.startsWith("#") || line.length() < minLength || line.length() > maxLength) {
+					continue;
+				}
+				results.add(line);
+			}
+		} finally {
+			br.close();
+		}
+	}
+
+	private static File[] wordsFiles(File dir) {
+		File[] files = dir.listFiles(new FilenameFilter() {
+			public boolean accept(File dir, String name) {
+				return name.startsWith("words") && name.endsWith(".dic");
+			}
+		});
+		return files == null ? new File[0] : files;
+	}
+
+	private static class BuildNode {
+		TreeMap<Character, BuildNode> children = new TreeMap<Character, BuildNode>();
+		boolean word;
+	}
+
+	/**
+	 * 用法：SegDictionaryCompiler [词典目录] [输出文件]
+	 * 词典目录默认为配置中的Tokenizer_Dict_Path，输出文件默认为词典目录下的Tokenizer_Dict_File
+	 * @param args
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		String dictPath = args.length > 0 ? args[0] : Constants.TOKENIZER_DICT_PATH;
+		if (dictPath.startsWith(CLASSPATH_PREFIX)) {
+			File dir = resourceDirectory(dictPath);
+			if (dir == null) {
+				throw new IOException(dictPath + " is not a directory on the file system");
+			}
+			dictPath = dir.getPath();
+		}
+		File file = args.length > 1 ? new File(args[1]) : compiledFile(dictPath);
+		long start = System.currentTimeMillis();
+		compile(dictPath, file);
+		LOGGER.info("compiled tokenizer dictionary from {} to {}, {} bytes, cost {}ms",
+				dictPath, file, file.length(), System.currentTimeMillis() - start);
+	}
+}
@@ -0,0 +1,56 @@
+package com.hot.cmt.comment.tokenize;
+
+import com.hot.cmt.comment.common.Constants;
+import com.hot.cmt.comment.common.ReloadableLexicon;
+
+/**
+ * 切分算法
+ * COMPLEX和SIMPLE为mmseg4j的复杂和简单最大匹配，使用mmseg4j的词典；
+ * MAX_MATCH按情感词典做正向最大匹配，只需要识别词典中的情感词、评价词、语气词和停用词，速度最快
+ * @author yongleixiao
+ *
+ */
+public enum SegMode {
+	COMPLEX,
+	SIMPLE,
+	MAX_MATCH;
+	
+	/**
+	 * 创建这种算法的分词器
+	 * @param lexicons MAX_MATCH使用的词典，其他算法忽略
+	 * @return
+	 */
+	public Tokenizer create(ReloadableLexicon lexicons) {
+		if (this == MAX_MATCH) {
+			return new MaxMatchTokenizer(lexicons);
+		}
+		return new MMTokenizer(this);
+	}
+	
+	/**
+	 * 按名字取切分算法，不区分大小写
+	 * @param name
+	 * @param defaultMode name为空或者无法识别时返回
+	 * @return
+	 */
+	public static SegMode parse(String name, SegMode defaultMode) {
+		if (name == null) {
+			return defaultMode;
+		}
+		String trimmed = name.trim();
+		for (SegMode mode : values()) {
+			if (mode.name().equalsIgnoreCase(trimmed)) {
+				return mode;
+			}
+		}
+		return defaultMode;
+	}
+	
+	/**
+	 * 配置项Tokenizer_Mode指定的切分算法，默认COMPLEX
+	 * @return
+	 */
+	public static SegMode configured() {
+		return parse(Constants.TOKENIZER_MODE, COMPLEX);
+	}
+}
@@ -0,0 +1,148 @@
+package com.hot.cmt.comment.tokenize;
+
+import java.util.Arrays;
+
+/**
+ * 以偏移量表示的分词结果，第i个词为原句中[start(i), end(i))的字符
+ * mmseg4j会把全角字符转为半角、字母转为小写，逐字符一一对应，偏移量不变。
+ * 本对象作为CharSequence给出归一化之后的句子，词典按字符区间在它上面查找，不需要为每个词创建字符串。
+ * 数组在多次分词之间复用，一个实例只能在一个线程中使用
+ * @author yongleixiao
+ *
+ */
+public class TokenOffsets implements CharSequence {
+
+	/* 归一化之后的句子，只有词所在的区间有效 */
+	private char[] text = new char[64];
+	private int length = 0;
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private int size = 0;
+
+	/**
+	 * 清空上一次的结果，为长度为length的句子准备空间
+	 * @param length
+	 */
+	void reset(int length) {
+		if (text.length < length) {
+			text = new char[Math.max(length, text.length * 2)];
+		}
+		this.length = length;
+		size = 0;
+	}
+
+	/**
+	 * 追加一个词
+	 * @param chars 词所在的字符数组
+	 * @param offset 词在chars中的起始位置
+	 * @param start 词在原句中的起始位置
+	 * @param count 词的长度
+	 */
+	void add(char[] chars, int offset, int start, int count) {
+		System.arraycopy(chars, offset, text, start, count);
+		add(start, start + count);
+	}
+
+	/**
+	 * 追加一个词，词的字符已经写入buffer()
+	 * @param start
+	 * @param end
+	 */
+	void add(int start, int end) {
+		if (size == starts.length) {
+			starts = Arrays.copyOf(starts, size * 2);
+			ends = Arrays.copyOf(ends, size * 2);
+		}
+		starts[size] = start;
+		ends[size] = end;
+		size++;
+	}
+	
+	/**
+	 * 存放归一化句子的数组，reset之后长度不小于句子长度
+	 * @return
+	 */
+	char[] buffer() {
+		return text;
+	}
+
+	public void clear() {
+		length = 0;
+		size = 0;
+	}
+
+	/**
+	 * 词数
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * 第i个词在原句中的起始位置
+	 * @param i
+	 * @return
+	 */
+	public int start(int i) {
+		return starts[i];
+	}
+
+	/**
+	 * 第i个词在原句中的结束位置，不含
+	 * @param i
+	 * @return
+	 */
+	public int end(int i) {
+		return ends[i];
+	}
+
+	/**
+	 * 按起始位置存放的数组，有效长度为size()
+	 * @return
+	 */
+	public int[] starts() {
+		return starts;
+	}
+
+	/**
+	 * 按结束位置存放的数组，有效长度为size()
+	 * @return
+	 */
+	public int[] ends() {
+		return ends;
+	}
+
+	/**
+	 * 第i个词，会创建新的字符串，打分时应按区间使用
+	 * @param i
+	 * @return
+	 */
+	public String token(int i) {
+		return new String(text, starts[i], ends[i] - starts[i]);
+	}
+
+	@Override
+	public int length() {
+		return length;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return text[index];
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return new String(text, start, end - start);
+	}
+
+	@Override
+	public String toString() {
+		return new String(text, 0, length);
+	}
+}
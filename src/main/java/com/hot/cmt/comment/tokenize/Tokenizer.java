@@ -0,0 +1,44 @@
+package com.hot.cmt.comment.tokenize;
+
+import java.util.List;
+
+import com.hot.cmt.comment.common.Lexicon;
+
+/**
+ * 分词器，不同的切分算法见SegMode
+ * 实现都复用内部的切分状态，一个实例只能在一个线程中使用
+ * @author yongleixiao
+ *
+ */
+public interface Tokenizer {
+
+	/**
+	 * 分词，每次返回新的列表
+	 * @param sentence
+	 * @return 空句子返回null
+	 */
+	List<String> getSplitedWords(String sentence);
+	
+	/**
+	 * 分词，结果以偏移量写入tokens，覆盖上一次的结果
+	 * @param sentence
+	 * @param tokens
+	 * @return 词数
+	 */
+	int tokenize(CharSequence sentence, TokenOffsets tokens);
+	
+	/**
+	 * 用调用方已经取得的词典快照分词，保证分词和打分使用同一个快照
+	 * @param sentence
+	 * @param lexicon 按词典切分的算法使用，其他算法忽略
+	 * @param tokens
+	 * @return 词数
+	 */
+	int tokenize(CharSequence sentence, Lexicon lexicon, TokenOffsets tokens);
+	
+	/**
+	 * 使用的切分算法
+	 * @return
+	 */
+	SegMode getMode();
+}
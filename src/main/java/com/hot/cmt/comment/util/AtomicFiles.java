@@ -0,0 +1,57 @@
+package com.hot.cmt.comment.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * 替换可能正在被映射的文件
+ * 先写入同一目录下的临时文件，再原子地重命名为目标文件。已经映射旧文件的进程仍然指向旧的inode，
+ * 不会因为文件被截断而读到SIGBUS；新打开的进程读到完整的新文件
+ * @author yongleixiao
+ *
+ */
+public class AtomicFiles {
+
+	private AtomicFiles() {
+	}
+
+	/**
+	 * 把buffer中剩余的内容写入file
+	 * @param file
+	 * @param buffer 写完后position等于limit
+	 * @throws IOException
+	 */
+	public static void write(File file, ByteBuffer buffer) throws IOException {
+		File dir = file.getAbsoluteFile().getParentFile();
+		File tmp = File.createTempFile(file.getName() + ".", ".tmp", dir);
+		boolean moved = false;
+		try {
+			FileOutputStream out = new FileOutputStream(tmp);
+			try {
+				FileChannel channel = out.getChannel();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			} finally {
+				out.close();
+			}
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			moved = true;
+		} finally {
+			if (!moved) {
+				tmp.delete();
+			}
+		}
+	}
+}
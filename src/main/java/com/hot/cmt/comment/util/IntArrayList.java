@@ -0,0 +1,69 @@
+package com.hot.cmt.comment.util;
+
+import java.util.Arrays;
+
+/**
+ * 只存放int的可增长数组，代替List&lt;Integer&gt;，不装箱
+ * @author yongleixiao
+ *
+ */
+public class IntArrayList {
+
+	private int[] elements;
+	private int size = 0;
+	
+	public IntArrayList() {
+		this(16);
+	}
+	
+	public IntArrayList(int capacity) {
+		elements = new int[Math.max(capacity, 1)];
+	}
+	
+	public void add(int value) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, size * 2);
+		}
+		elements[size++] = value;
+	}
+	
+	public int get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("index = " + index + ", size = " + size);
+		}
+		return elements[index];
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public void clear() {
+		size = 0;
+	}
+	
+	/**
+	 * 底层数组，有效长度为size()，之后的add可能会替换底层数组
+	 * @return
+	 */
+	public int[] elements() {
+		return elements;
+	}
+	
+	public int[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+	
+	/**
+	 * 把容量缩小到实际长度
+	 */
+	public void trimToSize() {
+		if (elements.length > size) {
+			elements = Arrays.copyOf(elements, Math.max(size, 1));
+		}
+	}
+}
@@ -0,0 +1,169 @@
+package com.hot.cmt.comment.util;
+
+import java.util.Arrays;
+
+/**
+ * long到int的哈希表，开放寻址，键和值分别存放在基本类型的数组中，不装箱
+ * 用于按词对累加计数，键一般由两个int拼成，必须非负。不能在多个线程中同时修改
+ * @author yongleixiao
+ *
+ */
+public class LongIntHashMap {
+
+	/* 空位置 */
+	private static final long EMPTY = -1L;
+
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size = 0;
+
+	public LongIntHashMap() {
+		this(1024);
+	}
+
+	/**
+	 * @param expectedSize 预计的键数
+	 */
+	public LongIntHashMap(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * 两个非负int拼成的键
+	 * @param high
+	 * @param low
+	 * @return
+	 */
+	public static long key(int high, int low) {
+		return (long) high << 32 | low;
+	}
+
+	public static int high(long key) {
+		return (int) (key >>> 32);
+	}
+
+	public static int low(long key) {
+		return (int) key;
+	}
+
+	/**
+	 * 把键的值加上delta，不存在时从0开始
+	 * @param key 非负
+	 * @param delta
+	 */
+	public void add(long key, int delta) {
+		if (key < 0) {
+			throw new IllegalArgumentException("negative key " + key);
+		}
+		int slot = slot(key);
+		if (keys[slot] == key) {
+			values[slot] += delta;
+			return;
+		}
+		keys[slot] = key;
+		values[slot] = delta;
+		if (++size * 2 > keys.length) {
+			rehash();
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return 不存在时为0
+	 */
+	public int get(long key) {
+		if (key < 0) {
+			return 0;
+		}
+		int slot = slot(key);
+		return keys[slot] == key ? values[slot] : 0;
+	}
+
+	/**
+	 * 把other的值累加进来
+	 * @param other
+	 */
+	public void addAll(LongIntHashMap other) {
+		for (int i = 0; i < other.keys.length; i++) {
+			if (other.keys[i] != EMPTY) {
+				add(other.keys[i], other.values[i]);
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * 清空，保留容量
+	 */
+	public void clear() {
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * 所有的键，顺序不定
+	 * @return 新数组
+	 */
+	public long[] keys() {
+		long[] results = new long[size];
+		int n = 0;
+		for (long key : keys) {
+			if (key != EMPTY) {
+				results[n++] = key;
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * 估算占用的堆内存
+	 * @return
+	 */
+	public long footprintBytes() {
+		return 12L * keys.length;
+	}
+
+	/**
+	 * 键所在的位置，或者它应该插入的空位置
+	 */
+	private int slot(long key) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	private void rehash() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		values = new int[oldValues.length * 2];
+		mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldKeys[i] != EMPTY) {
+				int slot = slot(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package com.hot.cmt.comment.bayes;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.hot.cmt.comment.common.Constants;
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconFixture;
+import com.hot.cmt.comment.common.ReloadableLexicon;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+import com.hot.cmt.comment.common.Constants.WordType;
+import com.hot.cmt.comment.terms.NGramGenerator;
+import com.hot.cmt.comment.tokenize.SegMode;
+
+/**
+ * Classifier用词典快照和NGramMatcher打分的结果，与原来拼接n-gram字符串、逐个查询词库的打分结果一致
+ * @author yongleixiao
+ *
+ */
+public class ClassifierTest {
+
+	private static final String[] TOKENS = {"非常", "好看", "太", "差劲", "画面", "很", "美", "值得", "一", "看",
+		"好", "的", "电影", "差", "喜欢", "无聊", "不", "推荐", "客服", "配乐", "了", "手机"};
+
+	private static final String[] SENTENCES = {
+		"这部电影非常好看，画面很美，值得一看",
+		"客服太差劲了，很失望，要退货",
+		"演员很好，剧情很无聊",
+		"配乐不错但是不推荐",
+		"好好好",
+		"a"
+	};
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private static TrendencyWordsLoader loader;
+	private static Lexicon lexicon;
+
+	@BeforeClass
+	public static void load() throws IOException {
+		loader = new TrendencyWordsLoader(LexiconFixture.write(folder.getRoot()));
+		lexicon = new Lexicon(loader);
+	}
+
+	@Test
+	public void scoreWordsMatchesBaseline() {
+		Random random = new Random(20150601L);
+		List<List<String>> sentences = new ArrayList<List<String>>();
+		for (int i = 0; i < 500; i++) {
+			int length = random.nextInt(13);
+			List<String> tokens = new ArrayList<String>();
+			for (int j = 0; j < length; j++) {
+				tokens.add(TOKENS[random.nextInt(TOKENS.length)]);
+			}
+			sentences.add(tokens);
+		}
+		/* 语气词后面是情感词、停用词、词典中不存在的词，以及句末的语气词 */
+		sentences.add(Arrays.asList("很", "好", "太", "差", "非常", "的", "太", "手机", "很"));
+		sentences.add(Arrays.asList("画面", "很", "美", "值得", "一", "看"));
+		Classifier classifier = new Classifier(lexicon);
+		SentimentScore score = new SentimentScore();
+		for (List<String> tokens : sentences) {
+			double[] expected = baseline(tokens);
+			classifier.scoreWords(tokens, score);
+			assertEquals(tokens.toString(), expected[0], score.getPositive(), 0.0D);
+			assertEquals(tokens.toString(), expected[1], score.getNegative(), 0.0D);
+		}
+	}
+
+	/**
+	 * 在原句上分词再打分，覆盖以偏移量表示分词结果的路径
+	 */
+	@Test
+	public void scoreMatchesBaselineForEveryMode() {
+		ReloadableLexicon lexicons = new ReloadableLexicon(lexicon);
+		Classifier classifier = new Classifier(lexicons);
+		SentimentScore score = new SentimentScore();
+		for (SegMode mode : SegMode.values()) {
+			for (String sentence : SENTENCES) {
+				double[] expected = baseline(mode.create(lexicons).getSplitedWords(sentence));
+				classifier.score(sentence, mode, score);
+				assertEquals(mode + " " + sentence, expected[0], score.getPositive(), 0.0D);
+				assertEquals(mode + " " + sentence, expected[1], score.getNegative(), 0.0D);
+			}
+		}
+	}
+
+	/**
+	 * 原来的getJudgments：依次对unigram、bigram、trigram打分后相加
+	 * @return {positive, negative}
+	 */
+	private static double[] baseline(List<String> rawWords) {
+		double[] result = new double[2];
+		if (rawWords.isEmpty()) {
+			return result;
+		}
+		String[] terms = rawWords.toArray(new String[0]);
+		add(result, judgeNGramList(rawWords));
+		if (terms.length > 1) {
+			add(result, judgeNGramList(NGramGenerator.getBiGram(terms)));
+		}
+		if (terms.length > 2) {
+			add(result, judgeNGramList(NGramGenerator.getTriGram(terms)));
+		}
+		return result;
+	}
+
+	private static void add(double[] result, double[] score) {
+		result[0] += score[0];
+		result[1] += score[1];
+	}
+
+	private static double[] judgeNGramList(List<String> wordList) {
+		double pos = 0.0D;
+		double neg = 0.0D;
+		int size = wordList.size();
+		for (int i = 0; i < size; i++) {
+			String current = wordList.get(i);
+			switch (LexiconFixture.baselineType(loader, current)) {
+				case NEUTRAL_WORD:
+					double weight = LexiconFixture.baselineWeight(loader, current);
+					if (weight < 0) {
+						neg -= weight;
+					} else {
+						pos += weight;
+					}
+					break;
+				case POS:
+				case POS_SEM:
+				case POS_COMMENT:
+					pos += LexiconFixture.baselineWeight(loader, current);
+					break;
+				case NEG:
+				case NEG_SEM:
+				case NEG_COMMENT:
+					neg += LexiconFixture.baselineWeight(loader, current);
+					break;
+				case TONE:
+					if (i + 1 < size) {
+						String word = wordList.get(i + 1);
+						WordType type = LexiconFixture.baselineType(loader, word);
+						if (type == WordType.STOP_WORD || type == WordType.NEUTRAL_WORD) {
+							break;
+						}
+						if (type == WordType.POS || type == WordType.POS_COMMENT || type == WordType.POS_SEM) {
+							pos += LexiconFixture.baselineWeight(loader, word) * Constants.TONE_WEIGHT;
+						}
+						if (type == WordType.NEG || type == WordType.NEG_COMMENT || type == WordType.NEG_SEM) {
+							neg += LexiconFixture.baselineWeight(loader, word) * Constants.TONE_WEIGHT;
+						}
+						i++;
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		return new double[] {pos, neg};
+	}
+}
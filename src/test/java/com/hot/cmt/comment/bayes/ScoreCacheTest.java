@@ -0,0 +1,144 @@
+package com.hot.cmt.comment.bayes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconFixture;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+
+/**
+ * ScoreCache的版本失效、key归一化，以及maxEntries不大于0时不缓存
+ * @author yongleixiao
+ *
+ */
+public class ScoreCacheTest {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private static TrendencyWordsLoader loader;
+
+	@BeforeClass
+	public static void load() throws IOException {
+		loader = new TrendencyWordsLoader(LexiconFixture.write(folder.getRoot()));
+	}
+
+	@Test
+	public void hitReturnsCachedScore() {
+		Lexicon lexicon = new Lexicon(loader);
+		ScoreCache cache = new ScoreCache(100);
+		long key = ScoreCache.key("画面很美");
+		SentimentScore score = new SentimentScore();
+		assertFalse(cache.get(key, lexicon, score));
+		cache.put(key, lexicon, new SentimentScore(1.5D, 0.25D));
+		assertTrue(cache.get(key, lexicon, score));
+		assertEquals(1.5D, score.getPositive(), 0.0D);
+		assertEquals(0.25D, score.getNegative(), 0.0D);
+		assertEquals(1L, cache.getHitCount());
+		assertEquals(1L, cache.getMissCount());
+	}
+
+	/**
+	 * 换成更新的词典后旧记录不再命中，仍在使用旧词典的调用既不命中也不写入
+	 */
+	@Test
+	public void newerLexiconInvalidatesEntries() {
+		Lexicon older = new Lexicon(loader);
+		Lexicon newer = new Lexicon(loader);
+		assertTrue(newer.getVersion() > older.getVersion());
+		ScoreCache cache = new ScoreCache(100);
+		long key = ScoreCache.key("画面很美");
+		SentimentScore score = new SentimentScore();
+		cache.put(key, older, new SentimentScore(1.0D, 0.0D));
+		assertTrue(cache.get(key, older, score));
+
+		assertFalse(cache.get(key, newer, score));
+		assertEquals(0, cache.size());
+		long invalidations = cache.getInvalidationCount();
+		assertTrue(invalidations > 0L);
+
+		cache.put(key, older, new SentimentScore(1.0D, 0.0D));
+		assertEquals(0, cache.size());
+		assertFalse(cache.get(key, older, score));
+
+		cache.put(key, newer, new SentimentScore(2.0D, 0.0D));
+		assertTrue(cache.get(key, newer, score));
+		assertEquals(2.0D, score.getPositive(), 0.0D);
+		assertEquals(invalidations, cache.getInvalidationCount());
+	}
+
+	/**
+	 * 空白、标点、全角和大小写不同的评论得到同一个key
+	 */
+	@Test
+	public void keyIgnoresWhitespacePunctuationAndWidth() {
+		long key = ScoreCache.key("这部电影真好看abc1");
+		assertEquals(key, ScoreCache.key("这部电影，真好看！ABC1"));
+		assertEquals(key, ScoreCache.key("  这部 电影　真好看…… Abc1\n"));
+		assertEquals(key, ScoreCache.key("“这部电影”真好看!!ａｂｃ１"));
+		assertEquals(key, ScoreCache.key("(这部-电影)_真好看?ＡＢＣ1"));
+		assertNotEquals(key, ScoreCache.key("这部电影真难看abc1"));
+		assertNotEquals(key, ScoreCache.key("这部电影真好看abc2"));
+		assertEquals(ScoreCache.key(""), ScoreCache.key("，。！ \t"));
+		assertEquals('a', ScoreCache.normalize('Ａ'));
+		assertEquals('1', ScoreCache.normalize('１'));
+		assertEquals(0, ScoreCache.normalize('，'));
+		assertEquals('好', ScoreCache.normalize('好'));
+	}
+
+	@Test
+	public void evictsLeastRecentlyUsed() {
+		Lexicon lexicon = new Lexicon(loader);
+		ScoreCache cache = new ScoreCache(1);
+		SentimentScore score = new SentimentScore();
+		cache.put(1L, lexicon, score);
+		cache.put(2L, lexicon, score);
+		assertEquals(1, cache.size());
+		assertEquals(1L, cache.getEvictionCount());
+		assertFalse(cache.get(1L, lexicon, score));
+		assertTrue(cache.get(2L, lexicon, score));
+	}
+
+	@Test
+	public void nonPositiveSizeDisablesCache() {
+		Lexicon lexicon = new Lexicon(loader);
+		for (int maxEntries : new int[] {0, -1}) {
+			ScoreCache cache = new ScoreCache(maxEntries);
+			SentimentScore score = new SentimentScore();
+			for (long key = 0L; key < 100L; key++) {
+				cache.put(key, lexicon, new SentimentScore(1.0D, 0.0D));
+				assertFalse(cache.get(key, lexicon, score));
+			}
+			assertEquals(0, cache.size());
+			assertEquals(0L, cache.getEvictionCount());
+		}
+	}
+
+	/**
+	 * 同一条评论第二次打分命中缓存，结果与不使用缓存时相同
+	 */
+	@Test
+	public void classifierUsesCache() {
+		Classifier classifier = new Classifier(new Lexicon(loader));
+		SentimentScore expected = new SentimentScore();
+		classifier.score("这部电影非常好看，画面很美", expected);
+		ScoreCache cache = new ScoreCache(100);
+		classifier.setScoreCache(cache);
+		SentimentScore score = new SentimentScore();
+		classifier.score("这部电影非常好看，画面很美", score);
+		classifier.score("这部电影非常好看 画面很美！", score);
+		assertEquals(1L, cache.getHitCount());
+		assertEquals(expected.getPositive(), score.getPositive(), 0.0D);
+		assertEquals(expected.getNegative(), score.getNegative(), 0.0D);
+	}
+}
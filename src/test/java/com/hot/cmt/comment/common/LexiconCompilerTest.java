@@ -0,0 +1,97 @@
+package com.hot.cmt.comment.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * 编译成二进制的词典映射回来后与从文本词库构建的词典一致，文本词库更新后编译结果失效
+ * @author yongleixiao
+ *
+ */
+public class LexiconCompilerTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String wordPath;
+	private TrendencyWordsLoader loader;
+	private File compiled;
+
+	@Before
+	public void compile() throws IOException {
+		wordPath = LexiconFixture.write(folder.getRoot());
+		loader = new TrendencyWordsLoader(wordPath);
+		compiled = LexiconCompiler.compiledFile(wordPath);
+		LexiconCompiler.compile(loader, compiled);
+	}
+
+	@Test
+	public void mappedLexiconMatchesTextLoader() {
+		assertTrue(LexiconCompiler.isUpToDate(compiled, wordPath));
+		Lexicon mapped = LexiconCompiler.loadCompiled(wordPath);
+		assertNotNull(mapped);
+		Lexicon built = new Lexicon(loader);
+		assertEquals(built.size(), mapped.size());
+		for (String word : LexiconFixture.allWords()) {
+			LexiconEntry entry = mapped.lookup(word);
+			assertEquals(word, LexiconFixture.baselineType(loader, word), entry.getType());
+			assertEquals(word, LexiconFixture.baselineWeight(loader, word), entry.getWeight(), 0.0D);
+			LexiconEntry expected = built.lookup(word);
+			assertEquals(word, expected.getType(), entry.getType());
+			assertEquals(word, expected.getWeight(), entry.getWeight(), 0.0D);
+			assertEquals(word, expected.getPosPMIScore(), entry.getPosPMIScore(), 0.0D);
+			assertEquals(word, expected.getNegPMIScore(), entry.getNegPMIScore(), 0.0D);
+		}
+	}
+
+	/**
+	 * 任何一个文本词库比编译结果新时都不再使用编译结果
+	 */
+	@Test
+	public void touchedSourceMakesCompiledStale() {
+		long compiledTime = compiled.lastModified();
+		for (String name : new String[] {Constants.POS_SEN_DICT_FILE, Constants.STOP_WORDS_FILE,
+				Constants.NEG_PMI_SCORE_FILE}) {
+			File source = new File(wordPath + name);
+			long original = source.lastModified();
+			assertTrue(source.setLastModified(compiledTime + 2000L));
+			assertFalse(name, LexiconCompiler.isUpToDate(compiled, wordPath));
+			assertNull(name, LexiconCompiler.loadCompiled(wordPath));
+			assertTrue(source.setLastModified(Math.min(original, compiledTime)));
+			assertTrue(name, LexiconCompiler.isUpToDate(compiled, wordPath));
+		}
+	}
+
+	@Test
+	public void invalidHeaderIsStale() throws IOException {
+		long compiledTime = compiled.lastModified();
+		RandomAccessFile raf = new RandomAccessFile(compiled, "rw");
+		try {
+			raf.writeInt(0);
+		} finally {
+			raf.close();
+		}
+		assertTrue(compiled.setLastModified(compiledTime));
+		assertFalse(LexiconCompiler.isUpToDate(compiled, wordPath));
+		assertNull(LexiconCompiler.loadCompiled(wordPath));
+	}
+
+	@Test
+	public void missingCompiledFileIsIgnored() {
+		assertTrue(compiled.delete());
+		assertFalse(LexiconCompiler.isUpToDate(compiled, wordPath));
+		assertNull(LexiconCompiler.loadCompiled(wordPath));
+	}
+}
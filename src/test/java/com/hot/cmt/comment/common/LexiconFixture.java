@@ -0,0 +1,164 @@
+package com.hot.cmt.comment.common;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import com.hot.cmt.comment.common.Constants.WordType;
+
+/**
+ * 测试用的小词库，文件名与默认配置一致
+ * 包含一个词出现在多个词库中的情况，拼起来是2-gram和3-gram的词，语气词、停用词和pmi分数
+ * @author yongleixiao
+ *
+ */
+public class LexiconFixture {
+
+	public static final String[] TONE_WORDS = {"很", "非常", "太", "好"};
+	public static final String[] POS_SEN_WORDS = {"好", "喜欢", "精彩", "非常好看"};
+	public static final String[] POS_SEM_WORDS = {"不错", "漂亮", "好", "感人"};
+	public static final String[] POS_CON_WORDS = {"推荐", "值得一看", "漂亮"};
+	public static final String[] NEG_SEN_WORDS = {"差", "难看", "喜欢", "太差劲"};
+	public static final String[] NEG_SEM_WORDS = {"糟糕", "差", "无聊"};
+	public static final String[] NEG_CON_WORDS = {"失望", "退货", "无聊", "不推荐"};
+	public static final String[] STOP_WORDS = {"的", "了", "是", "很"};
+	public static final String[] POS_PMI_SCORES = {"电影=0.5", "演员=0.3", "剧情=0.2", "好=0.9",
+		"的=0.4", "画面很美=0.6", "配乐=0.45"};
+	public static final String[] NEG_PMI_SCORES = {"电影=0.1", "剧情=0.25", "演员=0.25", "客服=0.7",
+		"差=0.8", "画面很美=0.5", "配乐=0.45"};
+
+	private LexiconFixture() {
+	}
+
+	/**
+	 * 在dir下写入全部词库文件
+	 * @param dir
+	 * @return 词库目录，以路径分隔符结尾
+	 * @throws IOException
+	 */
+	public static String write(File dir) throws IOException {
+		String wordPath = dir.getAbsolutePath() + File.separator;
+		write(new File(dir, Constants.TONE_WORDS_FILE), TONE_WORDS);
+		write(new File(dir, Constants.POS_SEN_DICT_FILE), POS_SEN_WORDS);
+		write(new File(dir, Constants.POS_SEM_DICT_FILE), POS_SEM_WORDS);
+		write(new File(dir, Constants.POS_CON_DICT_FILE), POS_CON_WORDS);
+		write(new File(dir, Constants.NEG_SEN_DICT_FILE), NEG_SEN_WORDS);
+		write(new File(dir, Constants.NEG_SEM_DICT_FILE), NEG_SEM_WORDS);
+		write(new File(dir, Constants.NEG_CON_DICT_FILE), NEG_CON_WORDS);
+		write(new File(dir, Constants.STOP_WORDS_FILE), STOP_WORDS);
+		write(new File(dir, Constants.POS_PMI_SCORE_FILE), POS_PMI_SCORES);
+		write(new File(dir, Constants.NEG_PMI_SCORE_FILE), NEG_PMI_SCORES);
+		return wordPath;
+	}
+
+	public static void write(File file, String[] lines) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write("\n");
+			}
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * 词库中出现的所有词，加上几个不存在的词
+	 * @return
+	 */
+	public static Set<String> allWords() {
+		Set<String> words = new LinkedHashSet<String>();
+		String[][] lists = {TONE_WORDS, POS_SEN_WORDS, POS_SEM_WORDS, POS_CON_WORDS, NEG_SEN_WORDS,
+			NEG_SEM_WORDS, NEG_CON_WORDS, STOP_WORDS};
+		for (String[] list : lists) {
+			for (String word : list) {
+				words.add(word);
+			}
+		}
+		String[][] scores = {POS_PMI_SCORES, NEG_PMI_SCORES};
+		for (String[] list : scores) {
+			for (String line : list) {
+				words.add(line.substring(0, line.indexOf('=')));
+			}
+		}
+		words.add("手机");
+		words.add("非常好");
+		words.add("");
+		return words;
+	}
+
+	/**
+	 * 原来Classifier中逐个查询词库的判断顺序
+	 * @param loader
+	 * @param word
+	 * @return
+	 */
+	public static WordType baselineType(TrendencyWordsLoader loader, String word) {
+		if (loader.isPosSenWord(word)) {
+			return WordType.POS;
+		}
+		if (loader.isPosSemWord(word)) {
+			return WordType.POS_SEM;
+		}
+		if (loader.isPosCommentWord(word)) {
+			return WordType.POS_COMMENT;
+		}
+		if (loader.isNegSenWord(word)) {
+			return WordType.NEG;
+		}
+		if (loader.isNegSemWord(word)) {
+			return WordType.NEG_SEM;
+		}
+		if (loader.isNegCommentWord(word)) {
+			return WordType.NEG_COMMENT;
+		}
+		if (loader.isToneWords(word)) {
+			return WordType.TONE;
+		}
+		if (loader.isStopWord(word)) {
+			return WordType.STOP_WORD;
+		}
+		return WordType.NEUTRAL_WORD;
+	}
+
+	/**
+	 * 原来Classifier中每次打分时计算的权重
+	 * @param loader
+	 * @param word
+	 * @return
+	 */
+	public static double baselineWeight(TrendencyWordsLoader loader, String word) {
+		WordType type = baselineType(loader, word);
+		if (type == WordType.POS || type == WordType.NEG) {
+			return Constants.NORMAL_WEIGHT;
+		}
+		if (type == WordType.POS_SEM || type == WordType.NEG_SEM) {
+			return Constants.NORMAL_SEMANTIC_WEIGHT;
+		}
+		if (type == WordType.POS_COMMENT || type == WordType.NEG_COMMENT) {
+			return Constants.COMMENT_WEIGHT;
+		}
+		if (type == WordType.NEUTRAL_WORD) {
+			double posPMIScore = loader.getPosPMIScoreOfWord(word);
+			double negPMIScore = loader.getNegPMIScoreOfWord(word);
+			if (posPMIScore == 0.0D) {
+				return -Constants.NORMAL_WEIGHT * negPMIScore;
+			}
+			if (negPMIScore == 0.0D) {
+				return Constants.NORMAL_WEIGHT * posPMIScore;
+			}
+			if (posPMIScore/negPMIScore < 0.68D) {
+				return -Constants.NORMAL_WEIGHT * (negPMIScore - posPMIScore);
+			}
+			if (negPMIScore/posPMIScore < 0.68D) {
+				return Constants.NORMAL_WEIGHT * (posPMIScore - negPMIScore);
+			}
+		}
+		return 0.0D;
+	}
+}
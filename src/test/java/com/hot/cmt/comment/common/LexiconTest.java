@@ -0,0 +1,80 @@
+package com.hot.cmt.comment.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.hot.cmt.comment.common.Constants.WordType;
+
+/**
+ * Lexicon一次查找得到的词性和权重，与原来逐个查询词库再计算权重的结果一致
+ * @author yongleixiao
+ *
+ */
+public class LexiconTest {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private static TrendencyWordsLoader loader;
+	private static Lexicon lexicon;
+
+	@BeforeClass
+	public static void load() throws IOException {
+		String wordPath = LexiconFixture.write(folder.getRoot());
+		loader = new TrendencyWordsLoader(wordPath);
+		lexicon = new Lexicon(loader);
+	}
+
+	@Test
+	public void lookupMatchesBaseline() {
+		for (String word : LexiconFixture.allWords()) {
+			LexiconEntry entry = lexicon.lookup(word);
+			assertEquals(word, LexiconFixture.baselineType(loader, word), entry.getType());
+			assertEquals(word, LexiconFixture.baselineWeight(loader, word), entry.getWeight(), 0.0D);
+		}
+	}
+
+	@Test
+	public void findMatchesLookup() {
+		for (String word : LexiconFixture.allWords()) {
+			int id = lexicon.find(word);
+			LexiconEntry entry = lexicon.lookup(word);
+			if (id == Lexicon.NOT_FOUND) {
+				assertSame(word, LexiconEntry.NEUTRAL, entry);
+				continue;
+			}
+			assertEquals(word, entry.getType(), lexicon.getType(id));
+			assertEquals(word, entry.getWeight(), lexicon.getWeight(id), 0.0D);
+			assertEquals(word, loader.getPosPMIScoreOfWord(word), lexicon.getPosPMIScore(id), 0.0D);
+			assertEquals(word, loader.getNegPMIScoreOfWord(word), lexicon.getNegPMIScore(id), 0.0D);
+			/* 在更长的文本中按区间查找得到同一个词条 */
+			String text = "《" + word + "》";
+			assertEquals(word, id, lexicon.find(text, 1, text.length() - 1));
+		}
+	}
+
+	/**
+	 * 出现在多个词库中的词按原来的顺序取第一个词性
+	 */
+	@Test
+	public void overlappingWordsKeepBaselinePriority() {
+		assertEquals(WordType.POS, lexicon.lookup("好").getType());
+		assertEquals(WordType.POS, lexicon.lookup("喜欢").getType());
+		assertEquals(WordType.POS_SEM, lexicon.lookup("漂亮").getType());
+		assertEquals(WordType.NEG, lexicon.lookup("差").getType());
+		assertEquals(WordType.NEG_SEM, lexicon.lookup("无聊").getType());
+		assertEquals(WordType.TONE, lexicon.lookup("很").getType());
+		assertEquals(WordType.STOP_WORD, lexicon.lookup("的").getType());
+		assertEquals(WordType.NEUTRAL_WORD, lexicon.lookup("电影").getType());
+		assertNotEquals(Lexicon.NOT_FOUND, lexicon.find("画面很美"));
+		assertEquals(Lexicon.NOT_FOUND, lexicon.find("手机"));
+	}
+}
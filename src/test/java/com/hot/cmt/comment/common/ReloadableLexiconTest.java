@@ -0,0 +1,96 @@
+package com.hot.cmt.comment.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.hot.cmt.comment.common.Constants.WordType;
+
+/**
+ * 热加载在词库正常变化时替换快照，在文件读取出错或者条数大幅减少时保留原来的快照
+ * @author yongleixiao
+ *
+ */
+public class ReloadableLexiconTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private String wordPath;
+	private ReloadableLexicon lexicons;
+
+	@Before
+	public void load() throws IOException {
+		wordPath = LexiconFixture.write(folder.getRoot());
+		lexicons = new ReloadableLexicon(wordPath);
+	}
+
+	@Test
+	public void reloadReplacesSnapshot() throws IOException {
+		Lexicon previous = lexicons.get();
+		assertEquals(WordType.NEUTRAL_WORD, previous.lookup("赞").getType());
+		String[] words = new String[LexiconFixture.POS_SEN_WORDS.length + 1];
+		System.arraycopy(LexiconFixture.POS_SEN_WORDS, 0, words, 0, LexiconFixture.POS_SEN_WORDS.length);
+		words[words.length - 1] = "赞";
+		LexiconFixture.write(new File(wordPath + Constants.POS_SEN_DICT_FILE), words);
+
+		assertTrue(lexicons.reload());
+		Lexicon next = lexicons.get();
+		assertNotSame(previous, next);
+		assertEquals(WordType.POS, next.lookup("赞").getType());
+		assertEquals(1L, lexicons.getReloadCount());
+		/* 已经取得的快照不受影响 */
+		assertEquals(WordType.NEUTRAL_WORD, previous.lookup("赞").getType());
+	}
+
+	/**
+	 * 读取出错的文件只有出错前的部分，不替换原来的快照
+	 */
+	@Test
+	public void rejectsReloadWhenAFileFails() {
+		Lexicon previous = lexicons.get();
+		assertTrue(new File(wordPath + Constants.NEG_CON_DICT_FILE).delete());
+
+		assertFalse(lexicons.reload());
+		assertSame(previous, lexicons.get());
+		assertEquals(0L, lexicons.getReloadCount());
+		assertEquals(WordType.NEG_COMMENT, lexicons.get().lookup("失望").getType());
+	}
+
+	/**
+	 * 新词典的条数少于原来的Lexicon_Reload_Min_Ratio时不替换
+	 */
+	@Test
+	public void rejectsReloadBelowMinRatio() throws IOException {
+		Lexicon previous = lexicons.get();
+		String[] names = {Constants.TONE_WORDS_FILE, Constants.POS_SEN_DICT_FILE, Constants.POS_SEM_DICT_FILE,
+			Constants.POS_CON_DICT_FILE, Constants.NEG_SEN_DICT_FILE, Constants.NEG_SEM_DICT_FILE,
+			Constants.NEG_CON_DICT_FILE, Constants.STOP_WORDS_FILE, Constants.POS_PMI_SCORE_FILE,
+			Constants.NEG_PMI_SCORE_FILE};
+		for (String name : names) {
+			LexiconFixture.write(new File(wordPath + name), new String[0]);
+		}
+		LexiconFixture.write(new File(wordPath + Constants.POS_SEN_DICT_FILE), new String[] {"好"});
+		Lexicon shrunk = new Lexicon(new TrendencyWordsLoader(wordPath));
+		assertTrue(shrunk.size() < previous.size() * Constants.LEXICON_RELOAD_MIN_RATIO);
+
+		assertFalse(lexicons.reload());
+		assertSame(previous, lexicons.get());
+		assertEquals(0L, lexicons.getReloadCount());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void fixedLexiconCannotReload() {
+		new ReloadableLexicon(lexicons.get()).reload();
+	}
+}
@@ -0,0 +1,72 @@
+package com.hot.cmt.comment.metrics;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * 多个线程分散记录到不同的分组后，快照合并出的次数、总和和最大值
+ * @author yongleixiao
+ *
+ */
+public class LatencyHistogramTest {
+
+	@Test
+	public void snapshotMergesStripes() throws Exception {
+		final LatencyHistogram histogram = new LatencyHistogram();
+		final int threads = 8;
+		final int values = 10000;
+		final CountDownLatch ready = new CountDownLatch(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Long>> futures = new ArrayList<Future<Long>>();
+			for (int t = 0; t < threads; t++) {
+				final long base = t * 1000L;
+				futures.add(executor.submit(new Callable<Long>() {
+					public Long call() throws Exception {
+						ready.countDown();
+						ready.await();
+						long sum = 0L;
+						for (int i = 1; i <= values; i++) {
+							histogram.record(base + i);
+							sum += base + i;
+						}
+						return sum;
+					}
+				}));
+			}
+			long sum = 0L;
+			for (Future<Long> future : futures) {
+				sum += future.get();
+			}
+			HistogramSnapshot snapshot = histogram.snapshot();
+			assertEquals((long) threads * values, snapshot.getCount());
+			assertEquals((long) threads * values, histogram.getCount());
+			assertEquals((threads - 1) * 1000L + values, snapshot.getMax());
+			assertEquals((double) sum / (threads * values), snapshot.getMean(), 1e-9);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void resetClearsMax() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(5000L);
+		histogram.record(-1L);
+		assertEquals(5000L, histogram.snapshot().getMax());
+		histogram.reset();
+		assertEquals(0L, histogram.snapshot().getMax());
+		assertEquals(0L, histogram.snapshot().getCount());
+		histogram.record(7L);
+		assertEquals(7L, histogram.snapshot().getMax());
+	}
+}
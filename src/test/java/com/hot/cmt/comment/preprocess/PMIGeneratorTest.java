@@ -0,0 +1,224 @@
+package com.hot.cmt.comment.preprocess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.hot.cmt.comment.common.Constants;
+import com.hot.cmt.comment.common.LexiconFixture;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+import com.hot.cmt.comment.common.Vocabulary;
+
+/**
+ * 一次遍历语料累加共现次数得到的pmi分数文件，与逐个词对求交集计算的结果完全相同；外存模式的输出与内存模式相同
+ * 语料只用英文单词，不受平台默认编码影响
+ * @author yongleixiao
+ *
+ */
+public class PMIGeneratorTest {
+
+	private static final String[] WORDS = {"good", "great", "love", "bad", "awful", "movie", "actor", "plot",
+		"music", "phone", "service", "price", "the", "a", "is", "very", "boring", "fun", "story", "screen"};
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private static TrendencyWordsLoader loader;
+	private static File corpus;
+	private static ForkJoinPool pool;
+
+	@BeforeClass
+	public static void prepare() throws IOException {
+		File dir = folder.newFolder("dict");
+		String wordPath = dir.getAbsolutePath() + File.separator;
+		String[] names = {Constants.TONE_WORDS_FILE, Constants.POS_SEM_DICT_FILE, Constants.POS_CON_DICT_FILE,
+			Constants.NEG_SEM_DICT_FILE, Constants.NEG_CON_DICT_FILE, Constants.POS_PMI_SCORE_FILE,
+			Constants.NEG_PMI_SCORE_FILE};
+		for (String name : names) {
+			LexiconFixture.write(new File(dir, name), new String[0]);
+		}
+		LexiconFixture.write(new File(dir, Constants.POS_SEN_DICT_FILE), new String[] {"good", "great", "love"});
+		LexiconFixture.write(new File(dir, Constants.NEG_SEN_DICT_FILE), new String[] {"bad", "awful", "love", "missing"});
+		LexiconFixture.write(new File(dir, Constants.STOP_WORDS_FILE), new String[] {"the", "a", "is"});
+		loader = new TrendencyWordsLoader(wordPath);
+
+		Random random = new Random(20150601L);
+		String[] lines = new String[6000];
+		for (int i = 0; i < lines.length; i++) {
+			StringBuilder line = new StringBuilder();
+			int length = 1 + random.nextInt(15);
+			for (int j = 0; j < length; j++) {
+				if (j > 0) {
+					line.append(' ');
+				}
+				/* 前面的词出现得更多 */
+				line.append(WORDS[Math.min(random.nextInt(WORDS.length), random.nextInt(WORDS.length))]);
+			}
+			lines[i] = line.toString();
+		}
+		corpus = folder.newFile("corpus.txt");
+		LexiconFixture.write(corpus, lines);
+		/* 多个工作线程，计数任务会被拆分后合并 */
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void shutdown() {
+		pool.shutdown();
+	}
+
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), "UTF-8");
+	}
+
+	/**
+	 * 原来的计算方式：对每个情感词，逐个与共现的词求交集计算pmi并累加，按首次得到分数的顺序输出
+	 */
+	private static String pairwise(PMIGenerator generator, Map<String, Double> senWordsMap) {
+		Vocabulary vocabulary = generator.getVocabulary();
+		Map<Integer, Double> scores = new LinkedHashMap<Integer, Double>();
+		for (String senWord : senWordsMap.keySet()) {
+			int word = vocabulary.find(senWord);
+			if (word == Vocabulary.UNKNOWN) {
+				continue;
+			}
+			for (int coWord = 0; coWord < vocabulary.size(); coWord++) {
+				if (generator.getCoFreq(word, coWord) == 0) {
+					continue;
+				}
+				double pmi = generator.getPMIScore(word, coWord);
+				Double score = scores.get(coWord);
+				scores.put(coWord, score == null ? pmi : pmi + score);
+			}
+		}
+		StringBuilder text = new StringBuilder();
+		for (Map.Entry<Integer, Double> entry : scores.entrySet()) {
+			text.append(vocabulary.word(entry.getKey())).append('=')
+				.append(entry.getValue() / senWordsMap.size()).append('\n');
+		}
+		return text.toString();
+	}
+
+	@Test
+	public void singlePassMatchesPairwiseCounting() throws IOException {
+		PMIGenerator generator = new PMIGenerator(loader, pool);
+		generator.setSpillMemoryMb(0);
+		generator.initFromCorpus(corpus.getPath());
+		File pos = folder.newFile("pos-memory.txt");
+		File neg = folder.newFile("neg-memory.txt");
+		generator.computePMI(pos.getPath(), neg.getPath());
+		String posScores = read(pos);
+		String negScores = read(neg);
+		assertTrue(posScores.length() > 0);
+		assertTrue(negScores.length() > 0);
+		assertEquals(pairwise(generator, loader.getPosSenWordsMap()), posScores);
+		assertEquals(pairwise(generator, loader.getNegSenWordsMap()), negScores);
+		generator.close();
+	}
+
+	@Test
+	public void outOfCoreMatchesInMemory() throws IOException {
+		PMIGenerator memory = new PMIGenerator(loader, pool);
+		memory.setSpillMemoryMb(0);
+		memory.initFromCorpus(corpus.getPath());
+		File pos = folder.newFile("pos-expected.txt");
+		File neg = folder.newFile("neg-expected.txt");
+		memory.computePMI(pos.getPath(), neg.getPath());
+		memory.close();
+
+		PMIGenerator spilling = new PMIGenerator(loader, pool);
+		spilling.setSpillMemoryMb(1);
+		spilling.setSpillDir(folder.newFolder("spill").getPath());
+		spilling.initFromCorpus(corpus.getPath());
+		File spilledPos = folder.newFile("pos-spilled.txt");
+		File spilledNeg = folder.newFile("neg-spilled.txt");
+		spilling.computePMI(spilledPos.getPath(), spilledNeg.getPath());
+		spilling.close();
+		assertEquals(read(pos), read(spilledPos));
+		assertEquals(read(neg), read(spilledNeg));
+	}
+
+	/**
+	 * 一个情感词典写入失败时另一个照常写出，两个任务结束后抛出异常
+	 */
+	@Test
+	public void failedScoreFileThrowsAfterBothTasks() throws IOException {
+		PMIGenerator generator = new PMIGenerator(loader, pool);
+		generator.setSpillMemoryMb(0);
+		generator.initFromCorpus(corpus.getPath());
+		File pos = new File(new File(folder.getRoot(), "missing"), "pos.txt");
+		File neg = new File(folder.getRoot(), "neg-written.txt");
+		try {
+			generator.computePMI(pos.getPath(), neg.getPath());
+			fail("pos directory is missing");
+		} catch (IllegalStateException e) {
+			assertEquals(1, e.getSuppressed().length);
+			assertTrue(e.getSuppressed()[0] instanceof IOException);
+		}
+		assertFalse(pos.exists());
+		assertTrue(read(neg).length() > 0);
+		generator.close();
+	}
+
+	/**
+	 * 读取失败时抛出异常，外存模式下分词结果被删除，之后computePMI也报错
+	 */
+	@Test
+	public void failedIngestionThrows() throws IOException {
+		PMIGenerator generator = new PMIGenerator(loader, pool);
+		generator.setSpillMemoryMb(1);
+		File spillDir = folder.newFolder("failed");
+		generator.setSpillDir(spillDir.getPath());
+		String missing = new File(folder.getRoot(), "missing.txt").getPath();
+		try {
+			generator.initFromCorpus(missing);
+			fail("missing corpus");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertEquals(0, spillDir.list().length);
+		try {
+			generator.computePMI(new File(folder.getRoot(), "pos-failed.txt").getPath(), 
+					new File(folder.getRoot(), "neg-failed.txt").getPath());
+			fail("comment spill was deleted");
+		} catch (IllegalStateException e) {
+			assertFalse(new File(folder.getRoot(), "pos-failed.txt").exists());
+		}
+		generator.close();
+	}
+
+	/**
+	 * 等待分词结果时被中断，抛出异常并保留中断状态
+	 */
+	@Test
+	public void interruptedIngestionKeepsInterruptStatus() {
+		PMIGenerator generator = new PMIGenerator(loader, pool);
+		generator.setSpillMemoryMb(0);
+		Thread.currentThread().interrupt();
+		try {
+			generator.initFromCorpus(corpus.getPath());
+			fail("interrupted");
+		} catch (IllegalStateException e) {
+			assertTrue(e.getCause() instanceof InterruptedException);
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+		generator.close();
+	}
+}
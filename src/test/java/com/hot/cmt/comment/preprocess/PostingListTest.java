@@ -0,0 +1,207 @@
+package com.hot.cmt.comment.preprocess;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.hot.cmt.comment.util.IntArrayList;
+
+/**
+ * PostingList的编码、解码和求交集，交集与逐条比较评论ID的结果一致
+ * @author yongleixiao
+ *
+ */
+public class PostingListTest {
+
+	/* 有100个跳表项的列表长度 */
+	private static final int SKIP_DOCS = PostingList.SKIP_INTERVAL * 100 + 7;
+
+	/**
+	 * 评论ID到出现次数，按ID递增写入列表
+	 */
+	private static PostingList build(Map<Integer, Integer> freqs, int maxDoc) {
+		PostingList list = new PostingList();
+		for (int doc = 1; doc <= maxDoc; doc++) {
+			Integer freq = freqs.get(doc);
+			for (int i = 0; freq != null && i < freq; i++) {
+				list.add(doc);
+			}
+		}
+		list.flush();
+		return list;
+	}
+
+	private static PostingList build(int... docs) {
+		PostingList list = new PostingList();
+		for (int doc : docs) {
+			list.add(doc);
+		}
+		list.flush();
+		return list;
+	}
+
+	/**
+	 * 逐条比较：同时出现的评论取较小的次数求和
+	 */
+	private static int naiveIntersect(Map<Integer, Integer> a, Map<Integer, Integer> b) {
+		int uniFreq = 0;
+		for (Map.Entry<Integer, Integer> entry : a.entrySet()) {
+			Integer freq = b.get(entry.getKey());
+			if (freq != null) {
+				uniFreq += Math.min(entry.getValue(), freq);
+			}
+		}
+		return uniFreq;
+	}
+
+	private static void assertIntersect(int expected, PostingList a, PostingList b) {
+		assertEquals(expected, PostingList.intersect(a, b));
+		assertEquals(expected, PostingList.intersect(b, a));
+	}
+
+	@Test
+	public void emptyAndSingleElement() {
+		PostingList empty = build();
+		assertEquals(0, empty.docCount());
+		assertIntersect(0, empty, empty);
+		assertIntersect(0, empty, build(5));
+		assertIntersect(1, build(5), build(5));
+		assertIntersect(0, build(5), build(6));
+		assertIntersect(2, build(5, 5, 5), build(3, 5, 5, 9));
+		int[] many = new int[SKIP_DOCS];
+		for (int i = 0; i < many.length; i++) {
+			many[i] = 2 * i + 2;
+		}
+		PostingList long1 = build(many);
+		assertIntersect(0, empty, long1);
+		assertIntersect(1, build(2), long1);
+		assertIntersect(1, build(many[many.length - 1]), long1);
+		assertIntersect(1, build(many[many.length / 2]), long1);
+		assertIntersect(0, build(many[many.length / 2] + 1), long1);
+		assertIntersect(0, build(many[many.length - 1] + 2), long1);
+	}
+
+	/**
+	 * 短列表与长很多的列表求交集，长列表按跳表倍增查找
+	 */
+	@Test
+	public void skewedLengthsUseSkips() {
+		Random random = new Random(7L);
+		Map<Integer, Integer> longFreqs = new HashMap<Integer, Integer>();
+		int maxDoc = 200000;
+		for (int doc = 1; doc <= maxDoc; doc++) {
+			if (random.nextInt(3) == 0) {
+				longFreqs.put(doc, 1 + random.nextInt(3));
+			}
+		}
+		PostingList longList = build(longFreqs, maxDoc);
+		int[][] shortDocs = {
+			{1},
+			{maxDoc},
+			{3, 5, maxDoc - 1},
+			{100, 100000, 100001, 199999},
+			{PostingList.SKIP_INTERVAL, PostingList.SKIP_INTERVAL + 1, 64 * PostingList.SKIP_INTERVAL}
+		};
+		for (int[] docs : shortDocs) {
+			Map<Integer, Integer> shortFreqs = new HashMap<Integer, Integer>();
+			for (int doc : docs) {
+				shortFreqs.put(doc, 2);
+			}
+			assertIntersect(naiveIntersect(shortFreqs, longFreqs), build(shortFreqs, maxDoc), longList);
+		}
+	}
+
+	@Test
+	public void randomMatchesNaiveIntersection() {
+		Random random = new Random(20150601L);
+		for (int round = 0; round < 300; round++) {
+			int maxDoc = 1 + random.nextInt(round % 3 == 0 ? 100000 : 2000);
+			/* 一个稠密一个稀疏，或者两个密度相近 */
+			double aDensity = random.nextDouble();
+			double bDensity = round % 2 == 0 ? aDensity * 0.01 : random.nextDouble();
+			boolean single = random.nextBoolean();
+			Map<Integer, Integer> aFreqs = new HashMap<Integer, Integer>();
+			Map<Integer, Integer> bFreqs = new HashMap<Integer, Integer>();
+			Set<Integer> aDocs = new HashSet<Integer>();
+			for (int doc = 1; doc <= maxDoc; doc++) {
+				if (random.nextDouble() < aDensity) {
+					aFreqs.put(doc, single ? 1 : 1 + random.nextInt(4));
+					aDocs.add(doc);
+				}
+				if (random.nextDouble() < bDensity) {
+					bFreqs.put(doc, single ? 1 : 1 + random.nextInt(4));
+				}
+			}
+			PostingList a = build(aFreqs, maxDoc);
+			PostingList b = build(bFreqs, maxDoc);
+			int expected = naiveIntersect(aFreqs, bFreqs);
+			if (single) {
+				Set<Integer> common = new HashSet<Integer>(aDocs);
+				common.retainAll(bFreqs.keySet());
+				assertEquals(common.size(), expected);
+			}
+			assertIntersect(expected, a, b);
+		}
+	}
+
+	@Test
+	public void docsRoundTrip() {
+		Random random = new Random(11L);
+		Map<Integer, Integer> freqs = new HashMap<Integer, Integer>();
+		IntArrayList expected = new IntArrayList();
+		int totalFreq = 0;
+		for (int doc = 1; doc <= 50000; doc++) {
+			if (random.nextInt(5) == 0) {
+				int freq = 1 + random.nextInt(300);
+				freqs.put(doc, freq);
+				expected.add(doc);
+				totalFreq += freq;
+			}
+		}
+		PostingList list = build(freqs, 50000);
+		list.trimToSize();
+		assertEquals(expected.size(), list.docCount());
+		assertEquals(totalFreq, list.totalFreq());
+		IntArrayList docs = new IntArrayList();
+		list.docs(docs);
+		assertEquals(expected.size(), docs.size());
+		for (int i = 0; i < docs.size(); i++) {
+			assertEquals(expected.get(i), docs.get(i));
+		}
+	}
+
+	/**
+	 * 最后一条评论在flush之前也计入docCount和totalFreq，flush之后可以继续追加
+	 */
+	@Test
+	public void pendingDocCountsBeforeFlush() {
+		PostingList list = new PostingList();
+		list.add(3);
+		list.add(3);
+		assertEquals(1, list.docCount());
+		assertEquals(2, list.totalFreq());
+		list.flush();
+		list.add(PostingList.MAX_ID);
+		list.flush();
+		assertEquals(2, list.docCount());
+		assertIntersect(3, list, build(3, 3, 3, PostingList.MAX_ID));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsOutOfOrderIds() {
+		PostingList list = new PostingList();
+		list.add(5);
+		list.add(4);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsIdsAboveMax() {
+		new PostingList().add(PostingList.MAX_ID + 1);
+	}
+}
@@ -0,0 +1,104 @@
+package com.hot.cmt.comment.preprocess;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.hot.cmt.comment.util.LongIntHashMap;
+
+/**
+ * 溢写的run多于一次归并的路数时先归并最早的run，最终的计数与全部在内存中累加的结果一致
+ * @author yongleixiao
+ *
+ */
+public class SpillingPairCounterTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * 同样的词对同时加到counter和内存中的表里，键空间远大于counter的上限，每个run都接近满
+	 */
+	private static LongIntHashMap addRandom(SpillingPairCounter counter, int adds, long seed) {
+		Random random = new Random(seed);
+		LongIntHashMap expected = new LongIntHashMap();
+		for (int i = 0; i < adds; i++) {
+			long key = LongIntHashMap.key(random.nextInt(50), random.nextInt(100000));
+			int delta = 1 + random.nextInt(3);
+			counter.add(key, delta);
+			expected.add(key, delta);
+		}
+		return expected;
+	}
+
+	private static void assertMerged(LongIntHashMap expected, SpillingPairCounter counter, File dir) throws IOException {
+		assertTrue(counter.runCount() > counter.fanIn());
+		SpillingPairCounter.SortedPairs pairs = counter.sorted();
+		assertTrue(counter.runCount() <= counter.fanIn());
+		int size = 0;
+		long previous = -1L;
+		try {
+			while (pairs.next()) {
+				assertTrue(pairs.key() > previous);
+				assertEquals(expected.get(pairs.key()), pairs.count());
+				previous = pairs.key();
+				size++;
+			}
+		} finally {
+			pairs.close();
+		}
+		assertEquals(expected.size(), size);
+		counter.close();
+		assertEquals(0, dir.list().length);
+	}
+
+	/**
+	 * 每个run最多1024个键，run数超过MAX_FAN_IN
+	 */
+	@Test
+	public void mergesOldestRunsAboveMaxFanIn() throws IOException {
+		File dir = folder.newFolder("max");
+		SpillingPairCounter counter = new SpillingPairCounter(dir, 1024, SpillingPairCounter.MAX_FAN_IN);
+		LongIntHashMap expected = addRandom(counter, 200000, 13L);
+		assertMerged(expected, counter, dir);
+	}
+
+	/**
+	 * 很小的内存上限只做MIN_FAN_IN路归并，需要多轮归并
+	 */
+	@Test
+	public void tinyBudgetMergesInRounds() throws IOException {
+		File dir = folder.newFolder("tiny");
+		SpillingPairCounter counter = new SpillingPairCounter(dir, 0L);
+		assertEquals(SpillingPairCounter.MIN_FAN_IN, counter.fanIn());
+		assertEquals(1024, counter.maxPairs());
+		LongIntHashMap expected = addRandom(counter, 40000, 17L);
+		assertTrue(counter.runCount() > SpillingPairCounter.MIN_FAN_IN * SpillingPairCounter.MIN_FAN_IN);
+		assertMerged(expected, counter, dir);
+	}
+
+	/**
+	 * 归并缓冲区和计数表一起不超过内存上限
+	 */
+	@Test
+	public void budgetIncludesMergeBuffers() {
+		File dir = folder.getRoot();
+		long[] budgets = {1L << 20, 8L << 20, 17L << 20};
+		for (long maxBytes : budgets) {
+			SpillingPairCounter counter = new SpillingPairCounter(dir, maxBytes);
+			long used = (long) counter.maxPairs() * SpillingPairCounter.BYTES_PER_PAIR 
+					+ (counter.fanIn() + 1L) * SpillingPairCounter.BUFFER_SIZE;
+			assertTrue(used <= maxBytes);
+			assertTrue(counter.fanIn() <= SpillingPairCounter.MAX_FAN_IN);
+			counter.close();
+		}
+		assertEquals(SpillingPairCounter.MAX_FAN_IN, new SpillingPairCounter(dir, 17L << 20).fanIn());
+	}
+}
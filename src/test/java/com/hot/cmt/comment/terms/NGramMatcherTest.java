@@ -0,0 +1,81 @@
+package com.hot.cmt.comment.terms;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconFixture;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+
+/**
+ * NGramMatcher沿trie跨词匹配的结果，与拼接n-gram字符串后查词典的结果一致
+ * @author yongleixiao
+ *
+ */
+public class NGramMatcherTest {
+
+	/* 能拼出词库中的2-gram和3-gram，也有拼不出任何词的组合 */
+	static final String[] TOKENS = {"非常", "好看", "太", "差劲", "画面", "很", "美", "值得", "一", "看",
+		"好", "的", "电影", "差", "喜欢", "无聊", "不", "推荐", "客服", "配乐", "了", "手机"};
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private static Lexicon lexicon;
+
+	@BeforeClass
+	public static void load() throws IOException {
+		lexicon = new Lexicon(new TrendencyWordsLoader(LexiconFixture.write(folder.getRoot())));
+	}
+
+	/**
+	 * 随机的分词结果，长度0到maxLength
+	 */
+	static List<List<String>> randomSentences(long seed, int count, int maxLength) {
+		Random random = new Random(seed);
+		List<List<String>> sentences = new ArrayList<List<String>>();
+		for (int i = 0; i < count; i++) {
+			int length = random.nextInt(maxLength + 1);
+			List<String> tokens = new ArrayList<String>();
+			for (int j = 0; j < length; j++) {
+				tokens.add(TOKENS[random.nextInt(TOKENS.length)]);
+			}
+			sentences.add(tokens);
+		}
+		return sentences;
+	}
+
+	@Test
+	public void matchesConcatenatedNGrams() {
+		List<List<String>> sentences = randomSentences(20150601L, 500, 12);
+		sentences.add(Arrays.asList("非常", "好看"));
+		sentences.add(Arrays.asList("画面", "很", "美", "值得", "一", "看"));
+		sentences.add(Arrays.asList("太", "差劲", "了"));
+		NGramMatcher matcher = new NGramMatcher();
+		for (List<String> tokens : sentences) {
+			matcher.match(lexicon.getTrie(), tokens);
+			String[] terms = tokens.toArray(new String[0]);
+			assertOrder(tokens, matcher, 1, NGramGenerator.getUniGram(terms));
+			assertOrder(tokens, matcher, 2, NGramGenerator.getBiGram(terms));
+			assertOrder(tokens, matcher, 3, NGramGenerator.getTriGram(terms));
+		}
+	}
+
+	private static void assertOrder(List<String> tokens, NGramMatcher matcher, int order, List<String> grams) {
+		assertEquals(tokens.toString(), grams.size(), matcher.size(order));
+		int[] entries = matcher.entries(order);
+		for (int i = 0; i < grams.size(); i++) {
+			assertEquals(tokens + " " + grams.get(i), lexicon.find(grams.get(i)), entries[i]);
+		}
+	}
+}
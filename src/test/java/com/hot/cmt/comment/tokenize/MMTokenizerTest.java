@@ -0,0 +1,173 @@
+package com.hot.cmt.comment.tokenize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.chenlb.mmseg4j.ComplexSeg;
+import com.chenlb.mmseg4j.Dictionary;
+import com.chenlb.mmseg4j.MMSeg;
+import com.chenlb.mmseg4j.Word;
+
+/**
+ * MMTokenizer复用MMSeg和输入的正确性，以及每线程实例的并发使用
+ * 词典目录在测试资源中配置为classpath:data，使用mmseg4j自带的词典
+ * @author yongleixiao
+ *
+ */
+public class MMTokenizerTest {
+
+	private static final String[] SENTENCES = {
+		"那个好看的笑容里面全是悲伤，他在行尸走肉的活着",
+		"他的故事悲伤的像一场没有结局的黑白电影",
+		"a",
+		"这部电影的画面很美，但是剧情太拖沓了，看得我想睡觉。",
+		"手机用了三天就坏了，客服态度也不好",
+		"Great movie! 演员的表演非常到位 2015年最好看的片子",
+		"  ",
+		"她不知道自己是爱他的的外表，还是爱他的故事，还是爱他身上的那个自己。"
+	};
+
+	/**
+	 * 每句话用新的MMSeg切分的结果
+	 */
+	private static List<Word> fresh(String sentence) throws IOException {
+		List<Word> words = new ArrayList<Word>();
+		MMSeg mmSeg = new MMSeg(new StringReader(sentence), new ComplexSeg(Dictionary.getInstance()));
+		Word word = null;
+		while ((word = mmSeg.next()) != null) {
+			words.add(word);
+		}
+		return words;
+	}
+
+	/**
+	 * 同一个实例连续切分多句话，结果和偏移量与每句话新建MMSeg一致
+	 */
+	@Test
+	public void reusedStateMatchesFreshMMSeg() throws IOException {
+		MMTokenizer tokenizer = new MMTokenizer();
+		TokenOffsets tokens = new TokenOffsets();
+		for (int round = 0; round < 3; round++) {
+			for (String sentence : SENTENCES) {
+				List<Word> expected = fresh(sentence);
+				List<String> words = new ArrayList<String>();
+				tokenizer.getSplitedWords(sentence, words);
+				assertEquals(sentence, expected.size(), words.size());
+				for (int i = 0; i < words.size(); i++) {
+					assertEquals(sentence, expected.get(i).getString(), words.get(i));
+				}
+
+				/* 偏移量相对于当前句子，不随之前读过的字符累计 */
+				tokenizer.tokenize(sentence, tokens);
+				assertEquals(sentence, expected.size(), tokens.size());
+				for (int i = 0; i < tokens.size(); i++) {
+					Word word = expected.get(i);
+					assertEquals(sentence, word.getStartOffset(), tokens.start(i));
+					assertEquals(sentence, word.getEndOffset(), tokens.end(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * current()在同一线程中返回同一个实例，在不同线程中返回不同实例
+	 */
+	@Test
+	public void currentIsPerThread() throws Exception {
+		final MMTokenizer main = MMTokenizer.current();
+		assertSame(main, MMTokenizer.current());
+		int threads = 4;
+		final CountDownLatch started = new CountDownLatch(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<MMTokenizer>> futures = new ArrayList<Future<MMTokenizer>>();
+			for (int i = 0; i < threads; i++) {
+				futures.add(executor.submit(new Callable<MMTokenizer>() {
+					public MMTokenizer call() throws Exception {
+						/* 所有线程同时存活，线程池不会把两个任务交给同一个线程 */
+						started.countDown();
+						started.await();
+						MMTokenizer tokenizer = MMTokenizer.current();
+						assertSame(tokenizer, MMTokenizer.current());
+						return tokenizer;
+					}
+				}));
+			}
+			List<MMTokenizer> seen = new ArrayList<MMTokenizer>();
+			seen.add(main);
+			for (Future<MMTokenizer> future : futures) {
+				MMTokenizer tokenizer = future.get();
+				for (MMTokenizer other : seen) {
+					assertNotSame(other, tokenizer);
+				}
+				seen.add(tokenizer);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * 多个线程各自用current()同时分词，结果与单线程顺序分词一致
+	 */
+	@Test
+	public void concurrentMatchesSequential() throws Exception {
+		final int copies = 50;
+		final List<String> sentences = new ArrayList<String>();
+		for (int i = 0; i < copies; i++) {
+			for (String sentence : SENTENCES) {
+				sentences.add(sentence);
+			}
+		}
+		MMTokenizer sequential = new MMTokenizer();
+		final List<List<String>> expected = new ArrayList<List<String>>();
+		for (String sentence : sentences) {
+			expected.add(sequential.getSplitedWords(sentence));
+		}
+
+		int threads = 4;
+		final CountDownLatch ready = new CountDownLatch(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<List<String>>>> futures = new ArrayList<Future<List<List<String>>>>();
+			for (int t = 0; t < threads; t++) {
+				final int offset = t;
+				futures.add(executor.submit(new Callable<List<List<String>>>() {
+					public List<List<String>> call() throws Exception {
+						ready.countDown();
+						ready.await();
+						MMTokenizer tokenizer = MMTokenizer.current();
+						/* 每个线程从不同的位置开始，同一时刻切分不同的句子 */
+						List<List<String>> results = new ArrayList<List<String>>();
+						for (int i = 0; i < sentences.size(); i++) {
+							results.add(null);
+						}
+						for (int i = 0; i < sentences.size(); i++) {
+							int index = (i + offset * SENTENCES.length / 2) % sentences.size();
+							results.set(index, tokenizer.getSplitedWords(sentences.get(index)));
+						}
+						return results;
+					}
+				}));
+			}
+			for (Future<List<List<String>>> future : futures) {
+				assertEquals(expected, future.get());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
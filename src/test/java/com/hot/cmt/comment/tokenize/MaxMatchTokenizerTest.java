@@ -0,0 +1,73 @@
+package com.hot.cmt.comment.tokenize;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.hot.cmt.comment.common.Constants;
+import com.hot.cmt.comment.common.Lexicon;
+import com.hot.cmt.comment.common.LexiconFixture;
+import com.hot.cmt.comment.common.ReloadableLexicon;
+import com.hot.cmt.comment.common.TrendencyWordsLoader;
+
+/**
+ * MaxMatchTokenizer按词典做最长匹配，传入词典快照时使用该快照而不是重新读取
+ * @author yongleixiao
+ *
+ */
+public class MaxMatchTokenizerTest {
+
+	@ClassRule
+	public static TemporaryFolder folder = new TemporaryFolder();
+
+	private static Lexicon lexicon;
+	/* 去掉了“非常好看”的词典 */
+	private static Lexicon other;
+
+	@BeforeClass
+	public static void load() throws IOException {
+		lexicon = new Lexicon(new TrendencyWordsLoader(LexiconFixture.write(folder.newFolder("full"))));
+		File dir = folder.newFolder("other");
+		String wordPath = LexiconFixture.write(dir);
+		LexiconFixture.write(new File(wordPath + Constants.POS_SEN_DICT_FILE), new String[] {"好", "喜欢", "精彩"});
+		other = new Lexicon(new TrendencyWordsLoader(wordPath));
+	}
+
+	private static List<String> tokens(TokenOffsets tokens) {
+		String[] words = new String[tokens.size()];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = tokens.token(i);
+		}
+		return Arrays.asList(words);
+	}
+
+	@Test
+	public void longestMatchWithNormalization() {
+		MaxMatchTokenizer tokenizer = new MaxMatchTokenizer(new ReloadableLexicon(lexicon));
+		assertEquals(Arrays.asList("这", "部", "电影", "非常好看", "画面很美", "iphone6", "不推荐"),
+				tokenizer.getSplitedWords("这部电影非常好看，画面很美！ＩＰｈｏｎｅ６ 不推荐"));
+	}
+
+	/**
+	 * 传入的快照与tokenizer持有的当前快照不同时，按传入的快照切分
+	 */
+	@Test
+	public void tokenizeUsesGivenSnapshot() {
+		MaxMatchTokenizer tokenizer = new MaxMatchTokenizer(new ReloadableLexicon(lexicon));
+		TokenOffsets tokens = new TokenOffsets();
+		tokenizer.tokenize("非常好看", tokens);
+		assertEquals(Arrays.asList("非常好看"), tokens(tokens));
+		tokenizer.tokenize("非常好看", other, tokens);
+		assertEquals(Arrays.asList("非常", "好", "看"), tokens(tokens));
+		tokenizer.tokenize("非常好看", lexicon, tokens);
+		assertEquals(Arrays.asList("非常好看"), tokens(tokens));
+	}
+}
@@ -0,0 +1,107 @@
+package com.hot.cmt.comment.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * LongIntHashMap的累加、扩容和合并，与HashMap的结果一致
+ * @author yongleixiao
+ *
+ */
+public class LongIntHashMapTest {
+
+	private static void assertSameContents(Map<Long, Integer> expected, LongIntHashMap map) {
+		assertEquals(expected.size(), map.size());
+		long[] keys = map.keys();
+		assertEquals(expected.size(), keys.length);
+		for (long key : keys) {
+			assertTrue(expected.containsKey(key));
+		}
+		for (Map.Entry<Long, Integer> entry : expected.entrySet()) {
+			assertEquals(entry.getValue().intValue(), map.get(entry.getKey()));
+		}
+	}
+
+	@Test
+	public void keyPacksTwoInts() {
+		long key = LongIntHashMap.key(7, Integer.MAX_VALUE);
+		assertEquals(7, LongIntHashMap.high(key));
+		assertEquals(Integer.MAX_VALUE, LongIntHashMap.low(key));
+		assertTrue(LongIntHashMap.key(1, 0) > LongIntHashMap.key(0, Integer.MAX_VALUE));
+		assertEquals(0L, LongIntHashMap.key(0, 0));
+	}
+
+	/**
+	 * 从很小的容量开始多次扩容，扩容前后的值不变
+	 */
+	@Test
+	public void rehashKeepsValues() {
+		Random random = new Random(3L);
+		LongIntHashMap map = new LongIntHashMap(1);
+		Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		long initialFootprint = map.footprintBytes();
+		for (int i = 0; i < 100000; i++) {
+			/* 高位相同、低位连续的键容易聚集在相邻的位置 */
+			long key = LongIntHashMap.key(random.nextInt(4), random.nextInt(30000));
+			int delta = 1 + random.nextInt(5);
+			map.add(key, delta);
+			Integer value = expected.get(key);
+			expected.put(key, value == null ? delta : value + delta);
+		}
+		assertTrue(map.footprintBytes() > initialFootprint);
+		assertSameContents(expected, map);
+		assertEquals(0, map.get(LongIntHashMap.key(5, 0)));
+		assertEquals(0, map.get(-1L));
+	}
+
+	@Test
+	public void addAllMergesCounts() {
+		Random random = new Random(5L);
+		LongIntHashMap a = new LongIntHashMap(16);
+		LongIntHashMap b = new LongIntHashMap(4096);
+		Map<Long, Integer> expected = new HashMap<Long, Integer>();
+		for (int i = 0; i < 20000; i++) {
+			LongIntHashMap target = random.nextBoolean() ? a : b;
+			/* 一部分键只在一边，一部分两边都有 */
+			long key = LongIntHashMap.key(random.nextInt(3), random.nextInt(8000));
+			target.add(key, 1);
+			Integer value = expected.get(key);
+			expected.put(key, value == null ? 1 : value + 1);
+		}
+		LongIntHashMap empty = new LongIntHashMap();
+		a.addAll(empty);
+		a.addAll(b);
+		assertSameContents(expected, a);
+		empty.addAll(a);
+		assertSameContents(expected, empty);
+	}
+
+	@Test
+	public void clearKeepsWorking() {
+		LongIntHashMap map = new LongIntHashMap(8);
+		for (int i = 0; i < 100; i++) {
+			map.add(i, i);
+		}
+		map.clear();
+		assertTrue(map.isEmpty());
+		assertEquals(0, map.keys().length);
+		assertEquals(0, map.get(5L));
+		map.add(5L, 3);
+		map.add(5L, 4);
+		assertEquals(1, map.size());
+		assertEquals(7, map.get(5L));
+		assertEquals(Arrays.toString(new long[] {5L}), Arrays.toString(map.keys()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void rejectsNegativeKeys() {
+		new LongIntHashMap().add(-1L, 1);
+	}
+}